@@ -0,0 +1,190 @@
+package com.arasaka.file_uploader.cache;
+
+import com.arasaka.file_uploader.domain.ImageEntity;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Cache of the decrypted content of images downloaded one by one, bounded by the total size of the cached
+ * content in bytes. Entries are keyed by file name and carry the blob key and update time of the image they
+ * were read from, so an entry of an image updated since is dropped on its next download instead of served.
+ * <p>
+ * The content is optionally kept in direct buffers outside the heap, so a large cache adds nothing to the
+ * heap the garbage collector has to trace; its size is then also limited by {@code -XX:MaxDirectMemorySize}.
+ * <p>
+ * The hits, misses and evictions of the cache are exported as the {@code cache.*} meters of Micrometer,
+ * and the total size of the cached content as the {@value #WEIGHTED_SIZE_METER} gauge, all tagged with
+ * {@code cache=}{@value #CACHE_NAME}.
+ */
+@Component
+@Slf4j
+public class ImageContentCache {
+
+    public static final String CACHE_NAME = "image.content";
+
+    /**
+     * Gauge of the total size of the cached content in bytes.
+     */
+    public static final String WEIGHTED_SIZE_METER = "cache.weighted.size";
+
+    private final Cache<String, CachedContent> cache;
+    private final long maxEntryBytes;
+    private final boolean offHeap;
+
+    /**
+     * Constructor for ImageContentCache.
+     *
+     * @param maxBytes      the total size of the cached content in bytes above which entries are evicted.
+     * @param maxEntryBytes the size in bytes of the largest image that is cached, larger images are always streamed.
+     * @param offHeap       whether the content is kept in direct buffers outside the heap.
+     * @param meterRegistry the registry the meters of the cache are registered in.
+     */
+    public ImageContentCache(@Value("${image.content-cache.max-bytes}") long maxBytes,
+                             @Value("${image.content-cache.max-entry-bytes}") long maxEntryBytes,
+                             @Value("${image.content-cache.off-heap}") boolean offHeap,
+                             MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<String, CachedContent>weigher((fileName, content) -> content.content().capacity())
+                .recordStats()
+                // evicts on the downloading thread rather than later on the common pool, so the byte bound holds at once
+                .executor(Runnable::run)
+                .build();
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.offHeap = offHeap;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder(WEIGHTED_SIZE_METER, this, ImageContentCache::weightedSize)
+                .description("Total size of the entries of a cache")
+                .baseUnit("bytes")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        log.info("Caching decrypted images up to {} bytes, {} bytes per image, {}", maxBytes, this.maxEntryBytes,
+                offHeap ? "off-heap" : "on-heap");
+    }
+
+    /**
+     * Tells whether the content of an image is small enough to be cached.
+     *
+     * @param imageEntity the ImageEntity of the image.
+     * @return true if the content of the image is cached on download, false if it is always streamed.
+     */
+    public boolean isCacheable(ImageEntity imageEntity) {
+        return imageEntity.getFileSize() <= maxEntryBytes;
+    }
+
+    /**
+     * Opens the cached content of an image, reading and caching it first if it is not cached yet,
+     * or if the cached content was read before the image was last updated.
+     *
+     * @param imageEntity the ImageEntity of the image.
+     * @param reader      the function reading the decrypted content of an image.
+     * @return a stream of the decrypted content of the image.
+     */
+    public InputStream open(ImageEntity imageEntity, Function<ImageEntity, byte[]> reader) {
+        CachedContent cached = cache.policy().getIfPresentQuietly(imageEntity.getFileName());
+        if (cached != null && !cached.isVersionOf(imageEntity)) {
+            log.trace("Dropping outdated cached content of image: {}", imageEntity.getFileName());
+            cache.asMap().remove(imageEntity.getFileName(), cached);
+        }
+        CachedContent content = cache.get(imageEntity.getFileName(),
+                fileName -> new CachedContent(imageEntity.getBlobKey(), imageEntity.getUpdatedAt(), store(reader.apply(imageEntity))));
+        return new ByteBufferInputStream(content.content().duplicate());
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the cache since it was created.
+     *
+     * @return the statistics of the cache.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Returns the total size of the cached content in bytes.
+     *
+     * @return the total size of the cached content.
+     */
+    public long weightedSize() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private ByteBuffer store(byte[] content) {
+        if (!offHeap) {
+            return ByteBuffer.wrap(content).asReadOnlyBuffer();
+        }
+        return ByteBuffer.allocateDirect(content.length).put(content).flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * Decrypted content of an image, with the version of the image it was read from.
+     *
+     * @param blobKey   the blob key of the image when the content was read.
+     * @param updatedAt the update time of the image when the content was read.
+     * @param content   the decrypted content, read-only.
+     */
+    record CachedContent(String blobKey, LocalDateTime updatedAt, ByteBuffer content) {
+
+        boolean isVersionOf(ImageEntity imageEntity) {
+            return Objects.equals(blobKey, imageEntity.getBlobKey()) && Objects.equals(updatedAt, imageEntity.getUpdatedAt());
+        }
+    }
+
+    /**
+     * Input stream reading a buffer, without copying it.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.arasaka.file_uploader.cache;
+
+import com.arasaka.file_uploader.type.ImageValidType;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Cache of rendered image variants, bounded by the total size of the cached variants in bytes.
+ * Eviction follows the W-TinyLFU policy of Caffeine, so variants requested often stay cached
+ * even when many variants are requested once.
+ * <p>
+ * Entries are futures: the first request for a variant starts rendering it, and concurrent requests for the
+ * same variant wait for that render instead of starting their own. A failed render is not cached.
+ * <p>
+ * The hits, misses and evictions of the cache are exported as the {@code cache.*} meters of Micrometer,
+ * and the total size of the cached variants as the {@value ImageContentCache#WEIGHTED_SIZE_METER} gauge,
+ * all tagged with {@code cache=}{@value #CACHE_NAME}.
+ */
+@Component
+@Slf4j
+public class ImageVariantCache {
+
+    public static final String CACHE_NAME = "image.variants";
+
+    private final AsyncCache<VariantKey, byte[]> cache;
+
+    /**
+     * Constructor for ImageVariantCache.
+     *
+     * @param maxBytes      the total size of the cached variants in bytes above which variants are evicted.
+     * @param meterRegistry the registry the meters of the cache are registered in.
+     */
+    public ImageVariantCache(@Value("${image.variants.cache-max-bytes}") long maxBytes, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<VariantKey, byte[]>weigher((key, variant) -> variant.length)
+                .recordStats()
+                // weighs completed renders and evicts on the requesting thread rather than later on the common pool
+                .executor(Runnable::run)
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder(ImageContentCache.WEIGHTED_SIZE_METER, this, ImageVariantCache::weightedSize)
+                .description("Total size of the entries of a cache")
+                .baseUnit("bytes")
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        log.info("Caching rendered image variants up to {} bytes", maxBytes);
+    }
+
+    /**
+     * Returns a cached variant, or renders it if it is not cached yet and no render of it is in progress.
+     *
+     * @param key      the key of the variant.
+     * @param renderer the function starting the render of the variant, called at most once per missing variant.
+     * @return the bytes of the variant.
+     */
+    @SneakyThrows
+    public byte[] get(VariantKey key, Function<VariantKey, CompletableFuture<byte[]>> renderer) {
+        try {
+            return cache.get(key, (variantKey, executor) -> renderer.apply(variantKey)).join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Returns the hit, miss and eviction counts of the cache since it was created.
+     *
+     * @return the statistics of the cache.
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Returns the total size of the cached variants in bytes, not counting renders in progress.
+     *
+     * @return the total size of the cached variants.
+     */
+    public long weightedSize() {
+        return cache.synchronous().policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * Key of a rendered variant of an image.
+     *
+     * @param sourceKey the blob key of the image the variant is rendered from.
+     * @param width     the width of the variant.
+     * @param height    the height of the variant.
+     * @param format    the format the variant is encoded in.
+     */
+    public record VariantKey(String sourceKey, int width, int height, ImageValidType format) {
+    }
+}
\ No newline at end of file
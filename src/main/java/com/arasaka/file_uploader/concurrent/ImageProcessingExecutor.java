@@ -0,0 +1,114 @@
+package com.arasaka.file_uploader.concurrent;
+
+import jakarta.annotation.PreDestroy;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded worker pool for the CPU heavy per-image work of uploads (decoding, resizing, encrypting).
+ * The pool is shared by all requests, so its fixed number of threads caps the images processed at once
+ * across concurrent batches, and its bounded queue rejects work instead of piling it up without limit.
+ * <p>
+ * This is deliberately not an {@link java.util.concurrent.Executor} bean, so the executor Spring Boot
+ * configures for asynchronous MVC requests is left in place.
+ */
+@Component
+@Slf4j
+public class ImageProcessingExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructor for ImageProcessingExecutor.
+     *
+     * @param threads       the number of worker threads, or 0 for one per available processor.
+     * @param queueCapacity the number of tasks that may wait for a worker before new tasks are rejected.
+     */
+    public ImageProcessingExecutor(@Value("${image.processing.threads}") int threads,
+                                   @Value("${image.processing.queue-capacity}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("image-processing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Processing images on {} threads with a queue of {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Runs the tasks in parallel on the pool and waits for all of them.
+     * If a task fails, the tasks that have not started yet are cancelled and the exception of the
+     * first failing task is rethrown as is, without waiting for the remaining tasks.
+     *
+     * @param tasks the tasks to run.
+     * @param <T>   the result type of the tasks.
+     * @return the results of the tasks, in the order of the tasks.
+     * @throws RejectedExecutionException if the queue of the pool is full.
+     */
+    @SneakyThrows
+    public <T> List<T> processAll(List<? extends Callable<T>> tasks) {
+        log.trace("Submitting {} tasks", tasks.size());
+        List<CompletableFuture<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(submit(task));
+            }
+        } catch (RejectedExecutionException e) {
+            log.warn("Image processing queue full, rejecting batch of {} tasks", tasks.size());
+            futures.forEach(future -> future.cancel(false));
+            throw e;
+        }
+
+        CompletableFuture<Object> firstFailure = new CompletableFuture<>();
+        futures.forEach(future -> future.whenComplete((result, exception) -> {
+            if (exception != null) {
+                firstFailure.completeExceptionally(exception);
+            }
+        }));
+        try {
+            CompletableFuture.anyOf(CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)), firstFailure).join();
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            throw e.getCause();
+        }
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .toList();
+    }
+
+    /**
+     * Stops the worker threads, letting queued tasks finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs a single task on the pool without waiting for it.
+     *
+     * @param task the task to run.
+     * @param <T>  the result type of the task.
+     * @return the future completed with the result of the task.
+     * @throws RejectedExecutionException if the queue of the pool is full.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> call(task), executor);
+    }
+
+    @SneakyThrows
+    private static <T> T call(Callable<T> task) {
+        return task.call();
+    }
+}
\ No newline at end of file
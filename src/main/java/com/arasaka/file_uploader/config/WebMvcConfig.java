@@ -0,0 +1,44 @@
+package com.arasaka.file_uploader.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Configuration of Spring MVC.
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    /**
+     * Registers the {@link StreamingResourceHttpMessageConverter} ahead of the default converters.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new StreamingResourceHttpMessageConverter());
+    }
+
+    /**
+     * Reads request bodies bound as a {@link Resource}, like the chunks of a chunked upload, as a stream of the request
+     * instead of copying them into a byte array first, so a body is never held in memory as a whole.
+     * Writing resources is left as it is.
+     */
+    static class StreamingResourceHttpMessageConverter extends ResourceHttpMessageConverter {
+
+        StreamingResourceHttpMessageConverter() {
+            super(true);
+        }
+
+        @Override
+        protected Resource readInternal(Class<? extends Resource> clazz, HttpInputMessage inputMessage) throws IOException {
+            return super.readInternal(clazz == Resource.class ? InputStreamResource.class : clazz, inputMessage);
+        }
+    }
+}
\ No newline at end of file
@@ -1,8 +1,17 @@
 package com.arasaka.file_uploader.controller;
 
+import com.arasaka.file_uploader.domain.ImageEntity;
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.TargetSize;
+import com.arasaka.file_uploader.domain.UploadJob;
 import com.arasaka.file_uploader.generated.api.ImageControllerApi;
 import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
+import com.arasaka.file_uploader.generated.dto.UploadJobDto;
+import com.arasaka.file_uploader.mapper.ImageMapper;
 import com.arasaka.file_uploader.service.ImageService;
+import com.arasaka.file_uploader.service.UploadJobService;
+import com.arasaka.file_uploader.type.ImageValidType;
+import com.arasaka.file_uploader.util.ImageIngestUtil;
 import com.arasaka.file_uploader.util.ResourceUtil;
 import com.arasaka.file_uploader.util.SimpleValidatorUtil;
 import lombok.RequiredArgsConstructor;
@@ -10,7 +19,9 @@ import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
 
 /**
@@ -21,43 +32,103 @@ import java.util.List;
 public class ImageController implements ImageControllerApi {
 
     private final ImageService imageService;
+    private final UploadJobService uploadJobService;
+    private final ImageMapper imageMapper;
 
     /**
      * Downloads all images as a ZIP file.
      *
-     * @return ResponseEntity containing the ZIP file of all images.
+     * @return ResponseEntity streaming the ZIP file of all images.
      */
     @Override
-    public ResponseEntity<Resource> _downloadAllImages() {
-        return ResourceUtil.ImagesInZipToResponseEntity(imageService.downloadAllImages());
+    public ResponseEntity<StreamingResponseBody> _downloadAllImages() {
+        return ResourceUtil.ImagesInZipToResponseEntity(imageService::streamAllImages, imageService::openImageContent);
     }
 
     /**
-     * Downloads a specific image by its name.
+     * Downloads a specific image by its name, or a variant of it fitting into w x h. Conditional and range
+     * requests are supported, only the metadata of the image is read to answer a conditional request
+     * with 304 Not Modified. The content of popular images is served from memory.
      *
      * @param imageName the name of the image to download.
+     * @param w         the width of the variant to download, or null to download the stored image.
+     * @param h         the height of the variant to download, or null to download the stored image.
      * @return ResponseEntity containing the requested image.
+     * @throws IllegalArgumentException if only one of w and h is given.
      */
     @Override
-    public ResponseEntity<Resource> _downloadImage(String imageName) {
-        return ResourceUtil.ImageEntityToResponseEntity(imageService.getEntityByName(imageName));
+    public ResponseEntity<Resource> _downloadImage(String imageName, Integer w, Integer h) {
+        if (!SimpleValidatorUtil.isValidTargetSize(w, h)) {
+            throw new IllegalArgumentException("Width and height must be given together");
+        }
+        ImageEntity imageEntity = imageService.getEntityByName(imageName);
+        if (w == null) {
+            return ResourceUtil.ImageEntityToResponseEntity(imageEntity, imageService::openCachedImageContent);
+        }
+        return ResourceUtil.ImageVariantToResponseEntity(imageEntity, w, h, () -> imageService.getImageVariant(imageEntity, w, h));
     }
 
     /**
-     * Uploads a list of images and resizes them to the specified width and height.
+     * Uploads a list of images and resizes them to the specified width and height, or to each of the given sizes,
+     * keeping their originals. Each image is read once on ingest, its detected type is validated and passed on to the service.
      *
      * @param images the list of images to upload.
-     * @param width  the width to resize the images to.
-     * @param height the height to resize the images to.
-     * @return ResponseEntity containing the response DTOs for the uploaded images.
-     * @throws IllegalArgumentException if any of the images have an invalid file type.
+     * @param width  the width to resize the images to, or null together with height to keep their size.
+     * @param height the height to resize the images to, or null together with width to keep their size.
+     * @param format the format to encode the images in, the format of each image is kept if null.
+     * @param sizes  the sizes to store a rendition of every image at as WIDTHxHEIGHT, or null to store each image once.
+     * @return ResponseEntity containing the response DTOs for the uploaded images, or their renditions.
+     * @throws IllegalArgumentException if only one of width and height is given, sizes are given together with them
+     *                                  or are invalid, the format or any of the images have an invalid file type,
+     *                                  or an image exceeds the size limit.
      */
     @Override
-    public ResponseEntity<List<UploadImageResponseDto>> _uploadImages(Integer width, Integer height, List<MultipartFile> images) {
-        if (!SimpleValidatorUtil.isValidFileType(images)) {
-            throw new IllegalArgumentException("Invalid file type");
+    public ResponseEntity<List<UploadImageResponseDto>> _uploadImages(Integer width, Integer height, String format, List<String> sizes, List<MultipartFile> images) {
+        ImageValidType outputFormat = SimpleValidatorUtil.checkUploadParameters(width, height, format);
+        List<TargetSize> renditionSizes = SimpleValidatorUtil.checkRenditionSizes(width, height, sizes);
+        List<IngestedImage> ingestedImages = ImageIngestUtil.ingest(images);
+        SimpleValidatorUtil.checkIngestedImages(ingestedImages);
+        if (!renditionSizes.isEmpty()) {
+            return ResponseEntity.ok(imageService.uploadRenditions(ingestedImages, renditionSizes, outputFormat));
         }
-        return ResponseEntity.ok(imageService.uploadImages(images, width, height));
+        return ResponseEntity.ok(imageService.uploadImages(ingestedImages, width, height, outputFormat));
+    }
+
+    /**
+     * Validates a list of images like {@link #_uploadImages} and queues their upload, without waiting for it.
+     *
+     * @param width  the width to resize the images to, or null together with height to keep their size.
+     * @param height the height to resize the images to, or null together with width to keep their size.
+     * @param format the format to encode the images in, the format of each image is kept if null.
+     * @param images the list of images to upload.
+     * @return ResponseEntity with status 202 containing the queued job, and its status URL in the Location header.
+     * @throws IllegalArgumentException if the parameters or the images are invalid, like on a synchronous upload.
+     * @throws java.util.concurrent.RejectedExecutionException if the job queue is full.
+     */
+    @Override
+    public ResponseEntity<UploadJobDto> _submitUploadJob(Integer width, Integer height, String format, List<MultipartFile> images) {
+        ImageValidType outputFormat = SimpleValidatorUtil.checkUploadParameters(width, height, format);
+        List<IngestedImage> ingestedImages = ImageIngestUtil.ingest(images);
+        SimpleValidatorUtil.checkIngestedImages(ingestedImages);
+        UploadJob job = uploadJobService.submit(ingestedImages, width, height, outputFormat);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/images/jobs/" + job.jobId()))
+                .body(imageMapper.uploadJobToUploadJobDto(job));
+    }
+
+    /**
+     * Retrieves the state of an upload job, with the uploaded images once it is done.
+     *
+     * @param jobId the id of the job.
+     * @return ResponseEntity containing the job.
+     * @throws IllegalArgumentException if the job is unknown or has expired.
+     */
+    @Override
+    public ResponseEntity<UploadJobDto> _getUploadJob(String jobId) {
+        return uploadJobService.findJob(jobId)
+                .map(imageMapper::uploadJobToUploadJobDto)
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new IllegalArgumentException("Upload job not found"));
     }
 
 }
\ No newline at end of file
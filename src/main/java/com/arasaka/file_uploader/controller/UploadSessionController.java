@@ -0,0 +1,112 @@
+package com.arasaka.file_uploader.controller;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.UploadSession;
+import com.arasaka.file_uploader.generated.api.UploadSessionControllerApi;
+import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
+import com.arasaka.file_uploader.generated.dto.UploadSessionDto;
+import com.arasaka.file_uploader.mapper.ImageMapper;
+import com.arasaka.file_uploader.service.ImageService;
+import com.arasaka.file_uploader.service.UploadSessionService;
+import com.arasaka.file_uploader.type.ImageValidType;
+import com.arasaka.file_uploader.util.SimpleValidatorUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Controller for resumable chunked uploads of single images.
+ */
+@RestController
+@RequiredArgsConstructor
+public class UploadSessionController implements UploadSessionControllerApi {
+
+    private final UploadSessionService uploadSessionService;
+    private final ImageService imageService;
+    private final ImageMapper imageMapper;
+
+    /**
+     * Starts a chunked upload.
+     *
+     * @return ResponseEntity with status 201 containing the new session, and its URL in the Location header.
+     */
+    @Override
+    public ResponseEntity<UploadSessionDto> _createUploadSession() {
+        UploadSession session = uploadSessionService.createSession();
+        return ResponseEntity.created(URI.create("/api/uploads/" + session.sessionId()))
+                .body(imageMapper.uploadSessionToUploadSessionDto(session));
+    }
+
+    /**
+     * Retrieves the progress of a chunked upload, so an interrupted upload can be resumed from the next chunk.
+     *
+     * @param sessionId the id of the session.
+     * @return ResponseEntity containing the session.
+     * @throws IllegalArgumentException if the session is unknown or has expired.
+     */
+    @Override
+    public ResponseEntity<UploadSessionDto> _getUploadSession(String sessionId) {
+        return ResponseEntity.ok(imageMapper.uploadSessionToUploadSessionDto(uploadSessionService.getSession(sessionId)));
+    }
+
+    /**
+     * Appends the next chunk of the image of a chunked upload, streaming it from the request into the spool file.
+     *
+     * @param sessionId  the id of the session.
+     * @param chunkIndex the number of the chunk, starting from 0.
+     * @param body       the content of the chunk, streamed from the request.
+     * @return ResponseEntity containing the session after the chunk was appended.
+     * @throws IllegalArgumentException if the session is unknown or committed, the chunk is out of order,
+     *                                  or the chunk or the image exceeds the size limit of chunked uploads.
+     */
+    @Override
+    @SneakyThrows
+    public ResponseEntity<UploadSessionDto> _uploadChunk(String sessionId, Integer chunkIndex, Resource body) {
+        try (InputStream chunk = body.getInputStream()) {
+            return ResponseEntity.ok(imageMapper.uploadSessionToUploadSessionDto(
+                    uploadSessionService.appendChunk(sessionId, chunkIndex, chunk)));
+        }
+    }
+
+    /**
+     * Commits a chunked upload, processing the assembled image like an uploaded image.
+     * The session is deleted once the image is saved, if processing fails the commit can be retried.
+     * While the image is processed the session cannot be deleted or committed again.
+     *
+     * @param sessionId the id of the session.
+     * @param width     the width to resize the image to, or null together with height to keep its size.
+     * @param height    the height to resize the image to, or null together with width to keep its size.
+     * @param format    the format to encode the image in, the format of the image is kept if null.
+     * @return ResponseEntity containing the response DTO of the uploaded image.
+     * @throws IllegalArgumentException if the session is unknown or being committed, the parameters or the image are invalid.
+     */
+    @Override
+    public ResponseEntity<List<UploadImageResponseDto>> _commitUploadSession(String sessionId, Integer width, Integer height, String format) {
+        ImageValidType outputFormat = SimpleValidatorUtil.checkUploadParameters(width, height, format);
+        List<UploadImageResponseDto> uploadedImages = uploadSessionService.commitSession(sessionId, image -> {
+            List<IngestedImage> ingestedImages = List.of(image);
+            SimpleValidatorUtil.checkIngestedImages(ingestedImages);
+            return imageService.uploadImages(ingestedImages, width, height, outputFormat);
+        });
+        return ResponseEntity.ok(uploadedImages);
+    }
+
+    /**
+     * Aborts a chunked upload, discarding the chunks received.
+     *
+     * @param sessionId the id of the session.
+     * @return ResponseEntity with status 204.
+     * @throws IllegalArgumentException if the session is unknown, has expired or is being committed.
+     */
+    @Override
+    public ResponseEntity<Void> _deleteUploadSession(String sessionId) {
+        uploadSessionService.deleteSession(sessionId);
+        return ResponseEntity.noContent().build();
+    }
+}
\ No newline at end of file
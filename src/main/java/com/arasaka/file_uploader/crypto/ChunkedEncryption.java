@@ -0,0 +1,93 @@
+package com.arasaka.file_uploader.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+
+/**
+ * Encryption and decryption of whole byte arrays in the chunked AES-GCM format of {@link ChunkedEncryptionFormat}.
+ * Produces the same bytes as {@link EncryptingOutputStream} and {@link DecryptingInputStream}, but works
+ * directly on arrays sized up front, so small images do not pay for the chunk buffers of the streams.
+ */
+public final class ChunkedEncryption {
+
+    private ChunkedEncryption() {
+    }
+
+    /**
+     * Encrypts a byte array using the default chunk size.
+     *
+     * @param plaintext the bytes to encrypt.
+     * @param secretKey the AES secret key to encrypt with.
+     * @return the header followed by the encrypted chunks.
+     * @throws GeneralSecurityException if an error occurs during encryption.
+     */
+    public static byte[] encrypt(byte[] plaintext, SecretKey secretKey) throws GeneralSecurityException {
+        byte[] noncePrefix = ChunkedEncryptionFormat.newNoncePrefix();
+        byte[] header = ChunkedEncryptionFormat.header(ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE, noncePrefix);
+
+        // an empty or chunk-aligned plaintext still ends with a sealed, possibly empty or full, last chunk
+        int chunks = Math.max(1, (plaintext.length + ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE - 1) / ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE);
+        byte[] encrypted = new byte[ChunkedEncryptionFormat.HEADER_LENGTH + chunks * ChunkedEncryptionFormat.TAG_LENGTH + plaintext.length];
+        System.arraycopy(header, 0, encrypted, 0, header.length);
+
+        Cipher cipher = CipherPool.borrow(ChunkedEncryptionFormat.TRANSFORMATION);
+        try {
+            int inputOffset = 0;
+            int outputOffset = header.length;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                boolean last = chunk == chunks - 1;
+                int length = last ? plaintext.length - inputOffset : ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE;
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, ChunkedEncryptionFormat.chunkParameters(header, chunk, last));
+                cipher.updateAAD(header);
+                outputOffset += cipher.doFinal(plaintext, inputOffset, length, encrypted, outputOffset);
+                inputOffset += length;
+            }
+            return encrypted;
+        } finally {
+            CipherPool.release(cipher);
+        }
+    }
+
+    /**
+     * Decrypts a byte array starting with the header of the chunked format.
+     *
+     * @param encrypted the header followed by the encrypted chunks.
+     * @param secretKey the AES secret key to decrypt with.
+     * @return the decrypted bytes.
+     * @throws GeneralSecurityException if a chunk fails authentication or the data is malformed.
+     */
+    public static byte[] decrypt(byte[] encrypted, SecretKey secretKey) throws GeneralSecurityException {
+        if (!ChunkedEncryptionFormat.hasHeader(encrypted, encrypted.length)) {
+            throw new GeneralSecurityException("Missing or invalid header");
+        }
+        byte[] header = new byte[ChunkedEncryptionFormat.HEADER_LENGTH];
+        System.arraycopy(encrypted, 0, header, 0, header.length);
+        int sealedChunkSize = ChunkedEncryptionFormat.chunkSize(header) + ChunkedEncryptionFormat.TAG_LENGTH;
+
+        int body = encrypted.length - header.length;
+        int lastLength = body % sealedChunkSize;
+        int chunks = body / sealedChunkSize + (lastLength == 0 ? 0 : 1);
+        if (chunks == 0 || (lastLength != 0 && lastLength < ChunkedEncryptionFormat.TAG_LENGTH)) {
+            throw new GeneralSecurityException("Truncated data");
+        }
+        byte[] plaintext = new byte[body - chunks * ChunkedEncryptionFormat.TAG_LENGTH];
+
+        Cipher cipher = CipherPool.borrow(ChunkedEncryptionFormat.TRANSFORMATION);
+        try {
+            int inputOffset = header.length;
+            int outputOffset = 0;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                boolean last = chunk == chunks - 1;
+                int length = last ? encrypted.length - inputOffset : sealedChunkSize;
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, ChunkedEncryptionFormat.chunkParameters(header, chunk, last));
+                cipher.updateAAD(header);
+                outputOffset += cipher.doFinal(encrypted, inputOffset, length, plaintext, outputOffset);
+                inputOffset += length;
+            }
+            return plaintext;
+        } finally {
+            CipherPool.release(cipher);
+        }
+    }
+}
\ No newline at end of file
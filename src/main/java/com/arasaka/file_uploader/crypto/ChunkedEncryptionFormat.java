@@ -0,0 +1,134 @@
+package com.arasaka.file_uploader.crypto;
+
+import lombok.SneakyThrows;
+
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Versioned format of encrypted images: a header followed by independently authenticated AES-GCM chunks.
+ * <pre>
+ * header: magic "AIMG" (4) | version (1) | plaintext chunk size (4) | nonce prefix (8)
+ * chunk:  AES-GCM ciphertext of up to chunk size plaintext bytes | tag (16)
+ * </pre>
+ * The nonce of a chunk is the nonce prefix, the chunk index (3 bytes) and a flag marking the last chunk,
+ * and the header is authenticated with every chunk, so chunks can neither be reordered, truncated nor
+ * moved between images without failing authentication.
+ */
+public final class ChunkedEncryptionFormat {
+
+    /**
+     * Transformation used for encrypting the chunks.
+     */
+    public static final String TRANSFORMATION = "AES/GCM/NoPadding";
+
+    /**
+     * Default number of plaintext bytes per chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Length of the header in bytes.
+     */
+    public static final int HEADER_LENGTH = 17;
+
+    /**
+     * Length of the authentication tag of each chunk in bytes.
+     */
+    public static final int TAG_LENGTH = 16;
+
+    static final int NONCE_PREFIX_LENGTH = 8;
+    static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    static final int MAX_CHUNK_COUNT = 1 << 24;
+
+    private static final byte[] MAGIC = {'A', 'I', 'M', 'G'};
+    private static final byte VERSION = 1;
+    // DRBG generates in memory once seeded, unlike the default NativePRNG, which reads /dev/urandom under a global lock
+    private static final SecureRandom RANDOM = newSecureRandom();
+
+    private ChunkedEncryptionFormat() {
+    }
+
+    /**
+     * Checks whether the given bytes start with the header of this format.
+     *
+     * @param data   the bytes to check.
+     * @param length the number of valid bytes in the array.
+     * @return true if the bytes start with the header of this format, false otherwise.
+     */
+    public static boolean hasHeader(byte[] data, int length) {
+        return length >= HEADER_LENGTH
+                && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)
+                && data[MAGIC.length] == VERSION;
+    }
+
+    /**
+     * Generates a random nonce prefix for a new image.
+     *
+     * @return the nonce prefix.
+     */
+    static byte[] newNoncePrefix() {
+        byte[] noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        RANDOM.nextBytes(noncePrefix);
+        return noncePrefix;
+    }
+
+    /**
+     * Builds the header for the given chunk size and nonce prefix.
+     *
+     * @param chunkSize   the number of plaintext bytes per chunk.
+     * @param noncePrefix the random nonce prefix of the image.
+     * @return the header bytes.
+     */
+    static byte[] header(int chunkSize, byte[] noncePrefix) {
+        return ByteBuffer.allocate(HEADER_LENGTH)
+                .put(MAGIC)
+                .put(VERSION)
+                .putInt(chunkSize)
+                .put(noncePrefix)
+                .array();
+    }
+
+    /**
+     * Reads the chunk size from a header.
+     *
+     * @param header the header bytes.
+     * @return the number of plaintext bytes per chunk.
+     * @throws IllegalArgumentException if the chunk size is out of range.
+     */
+    static int chunkSize(byte[] header) {
+        int chunkSize = ByteBuffer.wrap(header, MAGIC.length + 1, Integer.BYTES).getInt();
+        if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size");
+        }
+        return chunkSize;
+    }
+
+    /**
+     * Builds the GCM parameters of a chunk from the header.
+     *
+     * @param header     the header bytes, holding the nonce prefix.
+     * @param chunkIndex the index of the chunk.
+     * @param last       whether the chunk is the last chunk of the image.
+     * @return the GCM parameters of the chunk.
+     */
+    static GCMParameterSpec chunkParameters(byte[] header, int chunkIndex, boolean last) {
+        if (chunkIndex >= MAX_CHUNK_COUNT) {
+            throw new IllegalStateException("Too many chunks");
+        }
+        byte[] nonce = new byte[NONCE_PREFIX_LENGTH + 4];
+        System.arraycopy(header, HEADER_LENGTH - NONCE_PREFIX_LENGTH, nonce, 0, NONCE_PREFIX_LENGTH);
+        nonce[NONCE_PREFIX_LENGTH] = (byte) (chunkIndex >>> 16);
+        nonce[NONCE_PREFIX_LENGTH + 1] = (byte) (chunkIndex >>> 8);
+        nonce[NONCE_PREFIX_LENGTH + 2] = (byte) chunkIndex;
+        nonce[NONCE_PREFIX_LENGTH + 3] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(TAG_LENGTH * 8, nonce);
+    }
+
+    @SneakyThrows
+    private static SecureRandom newSecureRandom() {
+        return SecureRandom.getInstance("DRBG");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.arasaka.file_uploader.crypto;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.Cipher;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool of reusable Cipher instances, one queue per transformation.
+ * Looking up a provider implementation costs far more than encrypting a typical image chunk,
+ * so Cipher instances are borrowed from the pool and released back after use instead.
+ */
+@Slf4j
+public final class CipherPool {
+
+    private static final Map<String, Queue<Cipher>> POOLS = new ConcurrentHashMap<>();
+
+    private CipherPool() {
+    }
+
+    /**
+     * Takes a Cipher for the given transformation from the pool, or creates a new one if the pool is empty.
+     * The Cipher must be initialized before use and released back to the pool afterwards.
+     *
+     * @param transformation the transformation of the Cipher (e.g., AES/GCM/NoPadding).
+     * @return a Cipher instance for the transformation.
+     */
+    @SneakyThrows
+    public static Cipher borrow(String transformation) {
+        Cipher cipher = pool(transformation).poll();
+        if (cipher == null) {
+            log.trace("Cipher pool for {} empty, creating new Cipher instance", transformation);
+            cipher = Cipher.getInstance(transformation);
+        }
+        return cipher;
+    }
+
+    /**
+     * Releases a Cipher back to the pool of its transformation.
+     *
+     * @param cipher the Cipher to release.
+     */
+    public static void release(Cipher cipher) {
+        pool(cipher.getAlgorithm()).offer(cipher);
+    }
+
+    private static Queue<Cipher> pool(String transformation) {
+        return POOLS.computeIfAbsent(transformation, key -> new ConcurrentLinkedQueue<>());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.arasaka.file_uploader.crypto;
+
+import com.arasaka.file_uploader.util.MetricsUtil;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * Input stream decrypting an image in the chunked AES-GCM format of {@link ChunkedEncryptionFormat}.
+ * Chunks are read and authenticated one at a time, so at most one chunk is held in memory,
+ * and no plaintext of a chunk is returned before the chunk has been authenticated.
+ * Skipping passes over whole chunks without decrypting them, so reading a range only decrypts
+ * the chunks the range falls into. Closing the stream records the time spent decrypting and the plaintext bytes
+ * decrypted as a single execution of the decrypt stage.
+ */
+public class DecryptingInputStream extends InputStream {
+
+    private final PushbackInputStream in;
+    private final SecretKey secretKey;
+    private final byte[] header;
+    private final byte[] ciphertext;
+    private final byte[] plaintext;
+    private Cipher cipher;
+    private int position;
+    private int available;
+    private int chunkIndex;
+    private boolean lastChunkRead;
+    private long decryptNanos;
+    private long plaintextBytes;
+
+    /**
+     * Constructor for DecryptingInputStream, reading the header from the stream.
+     *
+     * @param in        the stream the encrypted image is read from.
+     * @param secretKey the AES secret key to decrypt with.
+     * @throws IOException if the header cannot be read or is invalid.
+     */
+    public DecryptingInputStream(InputStream in, SecretKey secretKey) throws IOException {
+        this.in = new PushbackInputStream(in, 1);
+        this.secretKey = secretKey;
+        this.header = this.in.readNBytes(ChunkedEncryptionFormat.HEADER_LENGTH);
+        if (!ChunkedEncryptionFormat.hasHeader(header, header.length)) {
+            throw new IOException("Missing or invalid header");
+        }
+        int chunkSize = ChunkedEncryptionFormat.chunkSize(header);
+        this.ciphertext = new byte[chunkSize + ChunkedEncryptionFormat.TAG_LENGTH];
+        this.plaintext = new byte[chunkSize];
+        this.cipher = CipherPool.borrow(ChunkedEncryptionFormat.TRANSFORMATION);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == available) {
+            if (lastChunkRead) {
+                return -1;
+            }
+            openChunk();
+        }
+        int count = Math.min(len, available - position);
+        System.arraycopy(plaintext, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    /**
+     * Skips plaintext bytes. Whole chunks are skipped in the underlying stream without being decrypted
+     * as long as the underlying stream reports more bytes after them, so the last chunk is always authenticated.
+     *
+     * @param n the number of plaintext bytes to skip.
+     * @return the number of plaintext bytes skipped, less than requested only at the end of the stream.
+     * @throws IOException if a chunk cannot be read or fails authentication.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n) {
+            if (position == available) {
+                if (lastChunkRead) {
+                    break;
+                }
+                if (n - skipped >= plaintext.length && skipChunk()) {
+                    skipped += plaintext.length;
+                    continue;
+                }
+                openChunk();
+            }
+            int count = (int) Math.min(n - skipped, available - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return available - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (cipher != null) {
+            CipherPool.release(cipher);
+            cipher = null;
+            MetricsUtil.recordDuration(MetricsUtil.DECRYPT, decryptNanos);
+            MetricsUtil.recordBytesOut(MetricsUtil.DECRYPT, plaintextBytes);
+        }
+        in.close();
+    }
+
+    private void openChunk() throws IOException {
+        if (cipher == null) {
+            throw new IOException("Stream closed");
+        }
+        int length = in.readNBytes(ciphertext, 0, ciphertext.length);
+        if (length < ChunkedEncryptionFormat.TAG_LENGTH) {
+            throw new IOException("Truncated chunk " + chunkIndex);
+        }
+        boolean last = length < ciphertext.length || isEndOfStream();
+        long start = System.nanoTime();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, secretKey, ChunkedEncryptionFormat.chunkParameters(header, chunkIndex, last));
+            cipher.updateAAD(header);
+            available = cipher.doFinal(ciphertext, 0, length, plaintext, 0);
+        } catch (GeneralSecurityException e) {
+            MetricsUtil.recordFailure(MetricsUtil.DECRYPT);
+            throw new IOException("Error decrypting chunk " + chunkIndex, e);
+        }
+        decryptNanos += System.nanoTime() - start;
+        plaintextBytes += available;
+        position = 0;
+        chunkIndex++;
+        lastChunkRead = last;
+    }
+
+    private boolean skipChunk() throws IOException {
+        if (cipher == null) {
+            throw new IOException("Stream closed");
+        }
+        if (in.available() <= ciphertext.length) {
+            return false;
+        }
+        in.skipNBytes(ciphertext.length);
+        chunkIndex++;
+        return true;
+    }
+
+    private boolean isEndOfStream() throws IOException {
+        int next = in.read();
+        if (next == -1) {
+            return true;
+        }
+        in.unread(next);
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.arasaka.file_uploader.crypto;
+
+import com.arasaka.file_uploader.util.MetricsUtil;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * Output stream encrypting everything written to it in the chunked AES-GCM format of
+ * {@link ChunkedEncryptionFormat}. At most one chunk of plaintext is buffered, whatever the size of the image.
+ * The last chunk is only sealed on {@link #finish()} or {@link #close()}, which also records the time spent
+ * encrypting and the plaintext bytes of the whole stream as a single execution of the encrypt stage.
+ */
+public class EncryptingOutputStream extends FilterOutputStream {
+
+    private final SecretKey secretKey;
+    private final byte[] header;
+    private final byte[] plaintext;
+    private final byte[] ciphertext;
+    private Cipher cipher;
+    private int buffered;
+    private int chunkIndex;
+    private long encryptNanos;
+    private long plaintextBytes;
+
+    /**
+     * Constructor for EncryptingOutputStream using the default chunk size.
+     *
+     * @param out       the stream the encrypted image is written to.
+     * @param secretKey the AES secret key to encrypt with.
+     * @throws IOException if the header cannot be written.
+     */
+    public EncryptingOutputStream(OutputStream out, SecretKey secretKey) throws IOException {
+        this(out, secretKey, ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor for EncryptingOutputStream.
+     *
+     * @param out       the stream the encrypted image is written to.
+     * @param secretKey the AES secret key to encrypt with.
+     * @param chunkSize the number of plaintext bytes per chunk.
+     * @throws IOException if the header cannot be written.
+     */
+    public EncryptingOutputStream(OutputStream out, SecretKey secretKey, int chunkSize) throws IOException {
+        super(out);
+        byte[] noncePrefix = ChunkedEncryptionFormat.newNoncePrefix();
+        this.secretKey = secretKey;
+        this.header = ChunkedEncryptionFormat.header(chunkSize, noncePrefix);
+        this.plaintext = new byte[chunkSize];
+        this.ciphertext = new byte[chunkSize + ChunkedEncryptionFormat.TAG_LENGTH];
+        this.cipher = CipherPool.borrow(ChunkedEncryptionFormat.TRANSFORMATION);
+        out.write(header);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (buffered == plaintext.length) {
+                // only seal a full chunk once more data arrives, so the last chunk can be flagged as such
+                sealChunk(false);
+            }
+            int count = Math.min(len, plaintext.length - buffered);
+            System.arraycopy(b, off, plaintext, buffered, count);
+            buffered += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * Seals the last chunk without closing the underlying stream. Nothing can be written afterwards.
+     *
+     * @throws IOException if the last chunk cannot be encrypted or written.
+     */
+    public void finish() throws IOException {
+        if (cipher == null) {
+            return;
+        }
+        try {
+            sealChunk(true);
+            MetricsUtil.recordDuration(MetricsUtil.ENCRYPT, encryptNanos);
+            MetricsUtil.recordBytesIn(MetricsUtil.ENCRYPT, plaintextBytes);
+        } finally {
+            CipherPool.release(cipher);
+            cipher = null;
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void sealChunk(boolean last) throws IOException {
+        int length;
+        long start = System.nanoTime();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, secretKey, ChunkedEncryptionFormat.chunkParameters(header, chunkIndex, last));
+            cipher.updateAAD(header);
+            length = cipher.doFinal(plaintext, 0, buffered, ciphertext, 0);
+        } catch (GeneralSecurityException e) {
+            MetricsUtil.recordFailure(MetricsUtil.ENCRYPT);
+            throw new IOException("Error encrypting chunk " + chunkIndex, e);
+        }
+        encryptNanos += System.nanoTime() - start;
+        plaintextBytes += buffered;
+        out.write(ciphertext, 0, length);
+        chunkIndex++;
+        buffered = 0;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (cipher == null) {
+            throw new IOException("Stream already finished");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.arasaka.file_uploader.crypto;
+
+import com.arasaka.file_uploader.util.KeyGeneratorUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+
+/**
+ * Provides the AES secret key used for encrypting images.
+ * The key is loaded, or generated, once on startup and kept in memory afterwards.
+ */
+@Component
+@Slf4j
+public class SecretKeyProvider {
+
+    /**
+     * The AES secret key.
+     */
+    @Getter
+    private final SecretKey secretKey;
+
+    /**
+     * Constructor for SecretKeyProvider, loading or generating the secret key.
+     *
+     * @throws Exception if an error occurs during key generation or retrieval.
+     */
+    public SecretKeyProvider() throws Exception {
+        log.info("Loading secret key");
+        this.secretKey = KeyGeneratorUtil.getOrGenerateSecretKey();
+        log.trace("Secret key loaded successfully");
+    }
+}
\ No newline at end of file
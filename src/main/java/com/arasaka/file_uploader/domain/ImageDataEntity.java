@@ -0,0 +1,42 @@
+package com.arasaka.file_uploader.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Entity representing the encrypted content of an image file, stored apart from its metadata
+ * when images are kept in the database blob store.
+ */
+@Entity
+@Table(name = "file_data", indexes = @Index(name = "idx_stored_at", columnList = "storedAt"))
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageDataEntity {
+
+    /**
+     * Content-addressed key of the image data.
+     */
+    @Id
+    @Column(length = 64)
+    private String blobKey;
+
+    /**
+     * Encrypted data of the file.
+     */
+    @Lob
+    @Column(nullable = false)
+    private byte[] encryptedData;
+
+    /**
+     * Timestamp when the data was last stored.
+     */
+    @Column(nullable = false)
+    private Instant storedAt;
+}
\ No newline at end of file
@@ -17,25 +17,36 @@ import java.time.LocalDateTime;
 @Table(name = "files", indexes = {
         @Index(name = "idx_file_name", columnList = "fileName"),
         @Index(name = "idx_uploaded_at", columnList = "uploadedAt"),
-        @Index(name = "idx_updated_at", columnList = "updatedAt")
-})
+        @Index(name = "idx_updated_at", columnList = "updatedAt"),
+        @Index(name = "idx_blob_key", columnList = "blobKey"),
+        @Index(name = "idx_original_blob_key", columnList = "originalBlobKey"),
+        @Index(name = "idx_source_hash", columnList = "sourceHash, width, height, fileType"),
+        @Index(name = "idx_rendition_group", columnList = "renditionGroup")
+}, uniqueConstraints = @UniqueConstraint(name = ImageEntity.FILE_NAME_CONSTRAINT, columnNames = "fileName"))
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class ImageEntity {
 
+    /**
+     * Name of the unique constraint on the file name.
+     */
+    public static final String FILE_NAME_CONSTRAINT = "uk_file_name";
+
     /**
      * Unique identifier for the image.
+     * Taken from a sequence in blocks of 50, so inserts need no round trip for their ids and can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "files_seq")
+    @SequenceGenerator(name = "files_seq", sequenceName = "files_seq", allocationSize = 50)
     private Long id;
 
     /**
      * Name of the file.
      */
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String fileName;
 
     /**
@@ -51,24 +62,44 @@ public class ImageEntity {
     private long fileSize;
 
     /**
-     * Encrypted data of the file.
+     * Key of the encrypted data of the file in the blob store.
      */
-    @Lob
-    @Column(nullable = false)
-    private byte[] encryptedData;
+    @Column(nullable = false, length = 64)
+    private String blobKey;
+
+    /**
+     * Key of the encrypted data of the file as uploaded, before resizing, in the blob store.
+     * Variants of the image are rendered from it. Null for images uploaded before originals were kept.
+     */
+    @Column(length = 64)
+    private String originalBlobKey;
+
+    /**
+     * SHA-256 hash of the file as uploaded. Uploads of the same file at the same size and in the same format
+     * share the stored blobs of the first one. Null for images uploaded before uploads were hashed.
+     */
+    @Column(length = 64)
+    private String sourceHash;
 
     /**
-     * Width of the image in pixels.
+     * Width of the stored image in pixels.
      */
     @Column(nullable = false)
     private int width;
 
     /**
-     * Height of the image in pixels.
+     * Height of the stored image in pixels.
      */
     @Column(nullable = false)
     private int height;
 
+    /**
+     * Identifier shared by the renditions of an image uploaded at several sizes at once.
+     * Null for images uploaded at a single size.
+     */
+    @Column(length = 36)
+    private String renditionGroup;
+
     /**
      * Timestamp when the image was uploaded.
      */
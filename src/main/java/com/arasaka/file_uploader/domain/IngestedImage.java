@@ -0,0 +1,18 @@
+package com.arasaka.file_uploader.domain;
+
+import org.springframework.core.io.InputStreamSource;
+
+/**
+ * An uploaded image read once at the start of the upload pipeline, together with what was detected from it.
+ * The content is not held in memory, every stage of the pipeline streams it from its source again.
+ *
+ * @param originalFilename the name of the file on the client, used for logging only.
+ * @param content          the source of the bytes of the uploaded file, like the multipart file itself.
+ * @param size             the size of the uploaded file in bytes.
+ * @param mimeType         the MIME type detected from the content.
+ * @param width            the width of the image in pixels read from its header, or 0 if it is not a readable image.
+ * @param height           the height of the image in pixels read from its header, or 0 if it is not a readable image.
+ * @param contentHash      the SHA-256 hash of the content, identifying uploads of the same image.
+ */
+public record IngestedImage(String originalFilename, InputStreamSource content, long size, String mimeType, int width, int height, String contentHash) {
+}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.arasaka.file_uploader.domain;
+
+/**
+ * A size an uploaded image is resized to fit into, as requested by the client.
+ *
+ * @param width  the target width in pixels.
+ * @param height the target height in pixels.
+ */
+public record TargetSize(int width, int height) {
+}
\ No newline at end of file
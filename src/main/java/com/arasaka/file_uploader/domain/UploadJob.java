@@ -0,0 +1,40 @@
+package com.arasaka.file_uploader.domain;
+
+import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
+import com.arasaka.file_uploader.type.UploadJobStatus;
+
+import java.util.List;
+
+/**
+ * A snapshot of the state of an asynchronous upload job. A job moves from QUEUED to RUNNING, then to DONE or FAILED.
+ *
+ * @param jobId  the id of the job, returned to the client to poll its status.
+ * @param status the state of the job.
+ * @param images the uploaded images once the job is done, otherwise null.
+ * @param error  the reason the job failed, otherwise null.
+ */
+public record UploadJob(String jobId, UploadJobStatus status, List<UploadImageResponseDto> images, String error) {
+
+    public static UploadJob queued(String jobId) {
+        return new UploadJob(jobId, UploadJobStatus.QUEUED, null, null);
+    }
+
+    public UploadJob running() {
+        return new UploadJob(jobId, UploadJobStatus.RUNNING, null, null);
+    }
+
+    public UploadJob done(List<UploadImageResponseDto> images) {
+        return new UploadJob(jobId, UploadJobStatus.DONE, images, null);
+    }
+
+    public UploadJob failed(String error) {
+        return new UploadJob(jobId, UploadJobStatus.FAILED, null, error);
+    }
+
+    /**
+     * @return true if the job is done or failed, so its state no longer changes.
+     */
+    public boolean isFinished() {
+        return status == UploadJobStatus.DONE || status == UploadJobStatus.FAILED;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.arasaka.file_uploader.domain;
+
+import java.time.Instant;
+
+/**
+ * A snapshot of the progress of a chunked upload.
+ *
+ * @param sessionId      the id of the session, returned to the client to send its chunks.
+ * @param receivedChunks the number of chunks received, which is also the number of the next chunk to send.
+ * @param receivedBytes  the number of bytes received.
+ * @param expiresAt      the time the session expires unless more chunks are received.
+ */
+public record UploadSession(String sessionId, int receivedChunks, long receivedBytes, Instant expiresAt) {
+}
\ No newline at end of file
@@ -5,17 +5,31 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Object> handleIllegalArgumentException(IllegalArgumentException ex) {
-        if (ex.getMessage().equals("Invalid file type")) {
+        if (ex.getMessage().equals("Invalid file type") || ex.getMessage().equals("Width and height must be given together")
+                || ex.getMessage().equals("Sizes cannot be given together with width and height") || ex.getMessage().equals("Invalid size")) {
             return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
-        } else if (ex.getMessage().equals("Image not found")) {
+        } else if (ex.getMessage().equals("Image not found") || ex.getMessage().equals("Upload job not found")
+                || ex.getMessage().equals("Upload session not found")) {
             return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
+        } else if (ex.getMessage().equals("Image size exceeds limit") || ex.getMessage().equals("Chunk size exceeds limit")) {
+            return new ResponseEntity<>(ex.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
+        } else if (ex.getMessage().equals("Chunk out of order") || ex.getMessage().equals("Upload session already committed")
+                || ex.getMessage().equals("Upload session is being committed")) {
+            return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
         }
         throw ex;
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Object> handleRejectedExecutionException(RejectedExecutionException ex) {
+        return new ResponseEntity<>("Server busy, try again later", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
 }
\ No newline at end of file
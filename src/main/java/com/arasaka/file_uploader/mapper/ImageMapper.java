@@ -1,13 +1,20 @@
 package com.arasaka.file_uploader.mapper;
 
 import com.arasaka.file_uploader.domain.ImageEntity;
+import com.arasaka.file_uploader.domain.UploadJob;
+import com.arasaka.file_uploader.domain.UploadSession;
+import com.arasaka.file_uploader.generated.dto.UploadJobDto;
+import com.arasaka.file_uploader.generated.dto.UploadSessionDto;
 import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
 import org.mapstruct.Mapper;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
 
 /**
- * Mapper interface for converting ImageEntity objects to UploadImageResponseDto objects.
+ * Mapper interface for converting ImageEntity objects to UploadImageResponseDto objects, and upload jobs and sessions to their DTOs.
  */
 @Mapper(componentModel = "spring")
 public interface ImageMapper {
@@ -19,4 +26,30 @@ public interface ImageMapper {
      * @return a list of UploadImageResponseDto objects.
      */
     List<UploadImageResponseDto> imageEntitiesToUploadImageResponseDtos(List<ImageEntity> images);
+
+    /**
+     * Converts an UploadJob to an UploadJobDto.
+     *
+     * @param job the UploadJob to convert.
+     * @return the UploadJobDto.
+     */
+    UploadJobDto uploadJobToUploadJobDto(UploadJob job);
+
+    /**
+     * Converts an UploadSession to an UploadSessionDto.
+     *
+     * @param session the UploadSession to convert.
+     * @return the UploadSessionDto.
+     */
+    UploadSessionDto uploadSessionToUploadSessionDto(UploadSession session);
+
+    /**
+     * Converts an instant to a date-time in UTC.
+     *
+     * @param instant the instant to convert.
+     * @return the date-time in UTC, or null if the instant is null.
+     */
+    default OffsetDateTime instantToOffsetDateTime(Instant instant) {
+        return instant == null ? null : instant.atOffset(ZoneOffset.UTC);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.arasaka.file_uploader.repository;
+
+import com.arasaka.file_uploader.domain.ImageDataEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository interface for accessing ImageDataEntity data from the database.
+ */
+@Repository
+public interface ImageDataRepository extends JpaRepository<ImageDataEntity, String> {
+
+    /**
+     * Sets the storage time of the data of a blob, if it exists.
+     *
+     * @param blobKey  the key of the blob.
+     * @param storedAt the new storage time.
+     * @return the number of updated rows, 0 if the blob does not exist.
+     */
+    @Modifying
+    @Query("update ImageDataEntity d set d.storedAt = :storedAt where d.blobKey = :blobKey")
+    int updateStoredAt(@Param("blobKey") String blobKey, @Param("storedAt") Instant storedAt);
+
+    /**
+     * Lists the keys of the blobs last stored before the given instant.
+     *
+     * @param storedBefore the instant the blobs were last stored before.
+     * @return a list of the keys.
+     */
+    @Query("select d.blobKey from ImageDataEntity d where d.storedAt < :storedBefore")
+    List<String> findBlobKeysStoredBefore(@Param("storedBefore") Instant storedBefore);
+}
\ No newline at end of file
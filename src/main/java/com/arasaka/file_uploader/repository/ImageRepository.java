@@ -1,10 +1,18 @@
 package com.arasaka.file_uploader.repository;
 
 import com.arasaka.file_uploader.domain.ImageEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for accessing ImageEntity data from the database.
@@ -19,4 +27,48 @@ public interface ImageRepository extends JpaRepository<ImageEntity, Long> {
      * @return an Optional containing the found ImageEntity, or empty if not found.
      */
     Optional<ImageEntity> findByFileName(String fileName);
+
+    /**
+     * Finds one ImageEntity, the first saved, for each size and format stored from any of the given source hashes.
+     * Every upload of a stored file adds another row referring to the same blobs, so loading all rows with the
+     * source hashes would get slower with each repeated upload.
+     *
+     * @param sourceHashes the SHA-256 hashes of the uploaded files.
+     * @return a list of the ImageEntities, one per source hash, width, height and file type.
+     */
+    @Query("select i from ImageEntity i where i.id in (select min(r.id) from ImageEntity r where r.sourceHash in :sourceHashes"
+            + " group by r.sourceHash, r.width, r.height, r.fileType)")
+    List<ImageEntity> findRenditionsBySourceHashIn(@Param("sourceHashes") Collection<String> sourceHashes);
+
+    /**
+     * Finds which of the given blob keys are the blob key of an image.
+     *
+     * @param blobKeys the blob keys to look for.
+     * @return the blob keys referred to by an image.
+     */
+    @Query("select distinct i.blobKey from ImageEntity i where i.blobKey in :blobKeys")
+    List<String> findReferencedBlobKeys(@Param("blobKeys") Collection<String> blobKeys);
+
+    /**
+     * Finds which of the given blob keys are the original blob key of an image.
+     *
+     * @param blobKeys the blob keys to look for.
+     * @return the blob keys referred to by an image as its original.
+     */
+    @Query("select distinct i.originalBlobKey from ImageEntity i where i.originalBlobKey in :blobKeys")
+    List<String> findReferencedOriginalBlobKeys(@Param("blobKeys") Collection<String> blobKeys);
+
+    /**
+     * Streams all ImageEntities over a database cursor instead of loading them into a list.
+     * Rows are fetched from the database in batches of the JDBC fetch size and must be consumed
+     * inside a transaction.
+     *
+     * @return a Stream of all ImageEntities, which must be closed after use.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select i from ImageEntity i")
+    Stream<ImageEntity> streamAll();
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.arasaka.file_uploader.resample;
+
+/**
+ * Reconstruction filters of the {@link Resampler}. When downscaling, the filter is stretched by the scale,
+ * so every target pixel is computed from all the source pixels it covers and a margin around them.
+ */
+public enum ResampleFilter {
+
+    /**
+     * Triangle filter of radius one: linear interpolation when upscaling, a tent-weighted average when downscaling.
+     * Cheap, but softens detail.
+     */
+    BILINEAR(1) {
+        @Override
+        double weight(double x) {
+            double distance = Math.abs(x);
+            return distance < 1 ? 1 - distance : 0;
+        }
+    },
+
+    /**
+     * Windowed sinc filter of radius three, keeping fine detail sharp with some ringing next to hard edges.
+     */
+    LANCZOS3(3) {
+        @Override
+        double weight(double x) {
+            if (x == 0) {
+                return 1;
+            }
+            if (Math.abs(x) >= 3) {
+                return 0;
+            }
+            double px = Math.PI * x;
+            return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+        }
+    };
+
+    private final int radius;
+
+    ResampleFilter(int radius) {
+        this.radius = radius;
+    }
+
+    /**
+     * Returns the distance in source pixels, before stretching, beyond which the filter weighs nothing.
+     *
+     * @return the radius of the filter.
+     */
+    int radius() {
+        return radius;
+    }
+
+    /**
+     * Returns the weight of a source pixel at a distance from the center of a target pixel.
+     *
+     * @param x the distance in source pixels, divided by the downscale factor.
+     * @return the unnormalized weight.
+     */
+    abstract double weight(double x);
+}
\ No newline at end of file
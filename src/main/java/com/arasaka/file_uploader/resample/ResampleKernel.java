@@ -0,0 +1,91 @@
+package com.arasaka.file_uploader.resample;
+
+/**
+ * Inner loops of the {@link Resampler}, computing weighted sums of the samples of a single channel.
+ * The horizontal pass reads the weights of a target pixel from {@code taps} consecutive floats and the samples
+ * they weigh from {@code taps} consecutive source positions, all of which lie inside the source row.
+ */
+public interface ResampleKernel {
+
+    String VECTOR_MODULE = "jdk.incubator.vector";
+
+    String VECTOR_KERNEL_CLASS = "com.arasaka.file_uploader.resample.VectorResampleKernel";
+
+    /**
+     * Resamples a row: {@code target[targetOffset + o]} is the sum of {@code weights[o * taps + k] * row[starts[o] + k]}
+     * over the taps, for every target pixel {@code o} below {@code count}.
+     *
+     * @param row          the samples of the source row.
+     * @param starts       the first source position of every target pixel.
+     * @param weights      the weights of every target pixel, {@code taps} floats each.
+     * @param taps         the number of source positions per target pixel.
+     * @param target       the array the resampled row is written to.
+     * @param targetOffset the position of the resampled row in the target.
+     * @param count        the number of target pixels.
+     */
+    void horizontal(float[] row, int[] starts, float[] weights, int taps, float[] target, int targetOffset, int count);
+
+    /**
+     * Resamples rows of unsigned bytes into one: {@code target[i]} is the sum of
+     * {@code weights[weightOffset + k] * (source[(start + k) * rowLength + i] & 0xFF)} over the taps,
+     * for every {@code i} below the row length. Rows of interleaved pixels are resampled all channels at once.
+     *
+     * @param source       the source rows, one after the other.
+     * @param rowLength    the number of bytes of a row.
+     * @param start        the first source row.
+     * @param weights      the weights of the source rows.
+     * @param weightOffset the position of the first weight.
+     * @param taps         the number of source rows.
+     * @param target       the array the resampled row is written to.
+     */
+    void vertical(byte[] source, int rowLength, int start, float[] weights, int weightOffset, int taps, float[] target);
+
+    /**
+     * Returns the number of floats the kernel multiplies at once. The taps of the horizontal pass are padded
+     * with zero weights to a multiple of it, so no target pixel ends in a partial vector.
+     *
+     * @return the number of lanes of the kernel.
+     */
+    int lanes();
+
+    /**
+     * Returns a short name of the kernel, for logging.
+     *
+     * @return the name of the kernel.
+     */
+    String name();
+
+    /**
+     * Tells whether the incubating Vector API can be used, which only holds if the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}.
+     *
+     * @return true if the Vector API module is in the boot layer.
+     */
+    static boolean vectorApiAvailable() {
+        return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+    }
+
+    /**
+     * Creates the fastest kernel this JVM can run: the SIMD kernel if it was compiled, the Vector API is available
+     * and the CPU has wide enough vectors, the scalar kernel otherwise. The SIMD kernel is only compiled by the
+     * {@code vector} Maven profile and is looked up by name, and only loaded if the module is there,
+     * since it cannot be linked without it.
+     *
+     * @return the kernel.
+     */
+    static ResampleKernel create() {
+        if (vectorApiAvailable()) {
+            try {
+                Class<?> kernelClass = Class.forName(VECTOR_KERNEL_CLASS);
+                if ((Boolean) kernelClass.getMethod("supported").invoke(null)) {
+                    return (ResampleKernel) kernelClass.getConstructor().newInstance();
+                }
+            } catch (ClassNotFoundException e) {
+                // built without the vector profile
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create the SIMD resample kernel", e);
+            }
+        }
+        return new ScalarResampleKernel();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.arasaka.file_uploader.resample;
+
+/**
+ * Filter weights of resampling one axis, computed once per resize and shared by all rows or columns.
+ * Every target pixel has the same number of taps, so the kernels run fixed-length loops: target pixels near
+ * the edges, which would reach outside the source, are moved inside with zero weights for the extra positions
+ * and their weights renormalized, which amounts to cropping the filter at the edge.
+ */
+final class ResampleWeights {
+
+    final int taps;
+    final int[] starts;
+    final float[] weights;
+
+    private ResampleWeights(int taps, int[] starts, float[] weights) {
+        this.taps = taps;
+        this.starts = starts;
+        this.weights = weights;
+    }
+
+    /**
+     * Computes the weights of resampling an axis, mapping pixel centers onto pixel centers.
+     *
+     * @param sourceLength the number of source pixels along the axis.
+     * @param targetLength the number of target pixels along the axis.
+     * @param filter       the reconstruction filter.
+     * @param lanes        the number of taps is rounded up to a multiple of it, as long as the source is long enough.
+     * @return the weights.
+     */
+    static ResampleWeights compute(int sourceLength, int targetLength, ResampleFilter filter, int lanes) {
+        double scale = (double) sourceLength / targetLength;
+        double filterScale = Math.max(1, scale);
+        double support = filter.radius() * filterScale;
+        int filterTaps = (int) Math.ceil(2 * support) + 1;
+        int taps = Math.min(sourceLength, (filterTaps + lanes - 1) / lanes * lanes);
+
+        int[] starts = new int[targetLength];
+        float[] weights = new float[targetLength * taps];
+        for (int o = 0; o < targetLength; o++) {
+            double center = (o + 0.5) * scale - 0.5;
+            int start = Math.max(0, Math.min((int) Math.floor(center - support) + 1, sourceLength - taps));
+            double sum = 0;
+            for (int k = 0; k < taps; k++) {
+                sum += filter.weight((start + k - center) / filterScale);
+            }
+            for (int k = 0; k < taps; k++) {
+                weights[o * taps + k] = (float) (filter.weight((start + k - center) / filterScale) / sum);
+            }
+            starts[o] = start;
+        }
+        return new ResampleWeights(taps, starts, weights);
+    }
+}
\ No newline at end of file
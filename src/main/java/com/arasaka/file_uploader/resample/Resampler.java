@@ -0,0 +1,121 @@
+package com.arasaka.file_uploader.resample;
+
+import com.arasaka.file_uploader.util.ImageBufferUtil;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Separable image resampler: every target row is first computed at the source width as a weighted sum of whole source
+ * rows, then resampled along the row to the target width. Filtering the two axes apart costs the sum instead of the
+ * product of the filter widths per pixel, and keeps both inner loops over contiguous arrays that the
+ * {@link ResampleKernel} can run a SIMD vector at a time. Filtering vertically first works on the interleaved bytes
+ * of the source rows, all channels at once and without converting them first, and leaves only the target rows
+ * to split into channels and filter horizontally.
+ * <p>
+ * Images are resampled channel by channel, the alpha channel too if they have one, without premultiplying,
+ * into a BGR or ABGR image. Instances hold no state of a resize and can be shared between threads.
+ */
+public final class Resampler {
+
+    private final ResampleFilter filter;
+    private final ResampleKernel kernel;
+
+    /**
+     * Constructor for Resampler.
+     *
+     * @param filter the reconstruction filter.
+     * @param kernel the kernel running the inner loops.
+     */
+    public Resampler(ResampleFilter filter, ResampleKernel kernel) {
+        this.filter = filter;
+        this.kernel = kernel;
+    }
+
+    /**
+     * Creates a resampler with the fastest kernel this JVM can run, see {@link ResampleKernel#create()}.
+     *
+     * @param filter the reconstruction filter.
+     * @return the resampler.
+     */
+    public static Resampler create(ResampleFilter filter) {
+        return new Resampler(filter, ResampleKernel.create());
+    }
+
+    /**
+     * Returns the name of the kernel running the inner loops.
+     *
+     * @return the name of the kernel.
+     */
+    public String kernelName() {
+        return kernel.name();
+    }
+
+    /**
+     * Resamples an image to exactly the given size, without keeping its proportions.
+     *
+     * @param image  the image to resample.
+     * @param width  the width of the resampled image.
+     * @param height the height of the resampled image.
+     * @return a new BGR image, or ABGR if the source has an alpha channel.
+     */
+    public BufferedImage resize(BufferedImage image, int width, int height) {
+        int sourceWidth = image.getWidth();
+        int channels = image.getColorModel().hasAlpha() ? 4 : 3;
+        int type = channels == 4 ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR;
+        byte[] source = packedBytes(image, type);
+        int rowLength = sourceWidth * channels;
+        ResampleWeights vertical = ResampleWeights.compute(image.getHeight(), height, filter, 1);
+        ResampleWeights horizontal = ResampleWeights.compute(sourceWidth, width, filter, kernel.lanes());
+
+        float[] interleavedRow = new float[rowLength];
+        float[] channelRow = new float[sourceWidth];
+        float[] row = new float[width];
+        BufferedImage resized = new BufferedImage(width, height, type);
+        byte[] pixels = ((DataBufferByte) resized.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < height; y++) {
+            kernel.vertical(source, rowLength, vertical.starts[y], vertical.weights, y * vertical.taps, vertical.taps, interleavedRow);
+            for (int c = 0; c < channels; c++) {
+                for (int x = 0, i = c; x < sourceWidth; x++, i += channels) {
+                    channelRow[x] = interleavedRow[i];
+                }
+                kernel.horizontal(channelRow, horizontal.starts, horizontal.weights, horizontal.taps, row, 0, width);
+                for (int x = 0, p = y * width * channels + c; x < width; x++, p += channels) {
+                    pixels[p] = toByte(row[x]);
+                }
+            }
+        }
+        return resized;
+    }
+
+    /**
+     * Returns the pixels of an image as interleaved bytes: the pixel buffer itself for the BGR and ABGR images
+     * decoded by ImageIO, a converted copy for any other image.
+     *
+     * @param image the image.
+     * @param type  the BGR or ABGR type the bytes are laid out in.
+     * @return the interleaved bytes, row after row.
+     */
+    private static byte[] packedBytes(BufferedImage image, int type) {
+        byte[] pixels = ImageBufferUtil.interleavedBytes(image);
+        if (pixels != null && image.getType() == type) {
+            return pixels;
+        }
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D graphics = copy.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return ((DataBufferByte) copy.getRaster().getDataBuffer()).getData();
+    }
+
+    private static byte toByte(float value) {
+        int rounded = (int) (value + 0.5f);
+        return (byte) (rounded < 0 ? 0 : Math.min(rounded, 255));
+    }
+}
\ No newline at end of file
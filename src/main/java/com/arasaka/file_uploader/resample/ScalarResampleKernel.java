@@ -0,0 +1,46 @@
+package com.arasaka.file_uploader.resample;
+
+import java.util.Arrays;
+
+/**
+ * Resample kernel of plain loops, used when the Vector API is not available or the CPU has narrow vectors.
+ * The JIT compiler of Java 21 does not vectorize widening the source bytes to floats on its own, so the vertical
+ * pass runs a sample at a time and is several times slower than with the Vector API.
+ */
+public final class ScalarResampleKernel implements ResampleKernel {
+
+    @Override
+    public void horizontal(float[] row, int[] starts, float[] weights, int taps, float[] target, int targetOffset, int count) {
+        for (int o = 0; o < count; o++) {
+            int start = starts[o];
+            int weightOffset = o * taps;
+            float sum = 0;
+            for (int k = 0; k < taps; k++) {
+                sum += weights[weightOffset + k] * row[start + k];
+            }
+            target[targetOffset + o] = sum;
+        }
+    }
+
+    @Override
+    public void vertical(byte[] source, int rowLength, int start, float[] weights, int weightOffset, int taps, float[] target) {
+        Arrays.fill(target, 0, rowLength, 0);
+        for (int k = 0; k < taps; k++) {
+            float weight = weights[weightOffset + k];
+            int rowOffset = (start + k) * rowLength;
+            for (int i = 0; i < rowLength; i++) {
+                target[i] += weight * (source[rowOffset + i] & 0xFF);
+            }
+        }
+    }
+
+    @Override
+    public int lanes() {
+        return 1;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.arasaka.file_uploader.resample;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Resample kernel written with the incubating Vector API, using the widest float vectors the CPU supports.
+ * The horizontal pass multiplies the taps of a target pixel a vector at a time and adds the lanes up at the end,
+ * the vertical pass computes a vector of adjacent samples at a time with fused multiply-adds, widening the source
+ * bytes to floats in registers.
+ * The class can only be loaded if the JVM was started with {@code --add-modules jdk.incubator.vector},
+ * see {@link ResampleKernel#create()}, and only used on CPUs with 256-bit or wider vectors, see {@link #supported()}.
+ */
+public final class VectorResampleKernel implements ResampleKernel {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    // as many bytes as float lanes, at least the smallest vector shape; only 8 or more float lanes are supported
+    private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(64, FLOATS.length() * Byte.SIZE)));
+
+    /**
+     * Tells whether the CPU has float vectors of at least 8 lanes, each filled from a vector of as many bytes.
+     * With 4 lanes the kernel gains too little over the scalar one to be worth it.
+     *
+     * @return true if the kernel can run on this CPU.
+     */
+    public static boolean supported() {
+        return FLOATS.length() >= 8;
+    }
+
+    @Override
+    public void horizontal(float[] row, int[] starts, float[] weights, int taps, float[] target, int targetOffset, int count) {
+        int vectorTaps = FLOATS.loopBound(taps);
+        for (int o = 0; o < count; o++) {
+            int start = starts[o];
+            int weightOffset = o * taps;
+            int k = 0;
+            float sum = 0;
+            if (vectorTaps > 0) {
+                FloatVector accumulator = FloatVector.zero(FLOATS);
+                for (; k < vectorTaps; k += FLOATS.length()) {
+                    accumulator = FloatVector.fromArray(FLOATS, weights, weightOffset + k)
+                            .fma(FloatVector.fromArray(FLOATS, row, start + k), accumulator);
+                }
+                sum = accumulator.reduceLanes(VectorOperators.ADD);
+            }
+            for (; k < taps; k++) {
+                sum += weights[weightOffset + k] * row[start + k];
+            }
+            target[targetOffset + o] = sum;
+        }
+    }
+
+    @Override
+    public void vertical(byte[] source, int rowLength, int start, float[] weights, int weightOffset, int taps, float[] target) {
+        float weightSum = 0;
+        for (int k = 0; k < taps; k++) {
+            weightSum += weights[weightOffset + k];
+        }
+        FloatVector offset = FloatVector.broadcast(FLOATS, 128 * weightSum);
+        int lanes = FLOATS.length();
+        int i = 0;
+        // four independent accumulators, so the fused multiply-adds of the taps do not wait for each other
+        for (; i + 4 * lanes <= rowLength; i += 4 * lanes) {
+            FloatVector accumulator0 = offset;
+            FloatVector accumulator1 = offset;
+            FloatVector accumulator2 = offset;
+            FloatVector accumulator3 = offset;
+            for (int k = 0; k < taps; k++) {
+                FloatVector weight = FloatVector.broadcast(FLOATS, weights[weightOffset + k]);
+                int rowOffset = (start + k) * rowLength + i;
+                accumulator0 = samples(source, rowOffset).fma(weight, accumulator0);
+                accumulator1 = samples(source, rowOffset + lanes).fma(weight, accumulator1);
+                accumulator2 = samples(source, rowOffset + 2 * lanes).fma(weight, accumulator2);
+                accumulator3 = samples(source, rowOffset + 3 * lanes).fma(weight, accumulator3);
+            }
+            accumulator0.intoArray(target, i);
+            accumulator1.intoArray(target, i + lanes);
+            accumulator2.intoArray(target, i + 2 * lanes);
+            accumulator3.intoArray(target, i + 3 * lanes);
+        }
+        for (; i + lanes <= rowLength; i += lanes) {
+            FloatVector accumulator = offset;
+            for (int k = 0; k < taps; k++) {
+                accumulator = samples(source, (start + k) * rowLength + i).fma(FloatVector.broadcast(FLOATS, weights[weightOffset + k]), accumulator);
+            }
+            accumulator.intoArray(target, i);
+        }
+        for (; i < rowLength; i++) {
+            float sum = 0;
+            for (int k = 0; k < taps; k++) {
+                sum += weights[weightOffset + k] * (source[(start + k) * rowLength + i] & 0xFF);
+            }
+            target[i] = sum;
+        }
+    }
+
+    /**
+     * Loads a vector of unsigned bytes as floats less 128: flipping the sign bit maps the unsigned byte b to the
+     * signed b - 128, which converts in one step, and the vertical pass adds the 128 back once per sum.
+     */
+    private static FloatVector samples(byte[] source, int offset) {
+        return (FloatVector) ByteVector.fromArray(BYTES, source, offset)
+                .lanewise(VectorOperators.XOR, (byte) 0x80)
+                .convertShape(VectorOperators.B2F, FLOATS, 0);
+    }
+
+    @Override
+    public int lanes() {
+        return FLOATS.length();
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + FLOATS.vectorBitSize();
+    }
+}
\ No newline at end of file
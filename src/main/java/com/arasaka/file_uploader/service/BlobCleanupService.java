@@ -0,0 +1,17 @@
+package com.arasaka.file_uploader.service;
+
+/**
+ * Service interface for reclaiming the stored blobs no image refers to any more.
+ */
+public interface BlobCleanupService {
+
+    /**
+     * Deletes the blobs stored before the grace period that no image refers to, as its blob or as its original.
+     * Blobs are shared by content and the images referring to them are their only references, so the blobs are
+     * collected by marking the referenced ones and sweeping the rest. The grace period keeps the blobs of uploads
+     * that are still being processed, whose images are not saved yet.
+     *
+     * @return the number of deleted blobs.
+     */
+    int removeUnreferencedBlobs();
+}
\ No newline at end of file
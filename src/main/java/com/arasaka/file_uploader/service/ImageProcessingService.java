@@ -1,19 +1,72 @@
 package com.arasaka.file_uploader.service;
 
+import com.arasaka.file_uploader.domain.TargetSize;
+import com.arasaka.file_uploader.type.ImageValidType;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
 /**
  * Service interface for processing images.
  */
 public interface ImageProcessingService {
 
     /**
-     * Resizes an image to the specified width and height.
+     * Resizes an image to the specified width and height, decoding it from a stream and encoding it into another.
      *
-     * @param file   the byte array of the image file to resize.
+     * @param file   the stream of the image file to resize, left open.
+     * @param target the stream the resized image is written to, left open.
      * @param width  the target width of the resized image.
      * @param height the target height of the resized image.
-     * @return a byte array of the resized image.
+     * @param format the format to encode the resized image in.
+     * @return the number of bytes of the resized image written to the target.
      */
-    byte[] resizeImage(byte[] file, @NotNull Integer width, @NotNull Integer height);
+    long resizeImage(InputStream file, OutputStream target, @NotNull Integer width, @NotNull Integer height, @NotNull ImageValidType format);
+
+    /**
+     * Renders an image at several sizes, decoding it from a stream only once. Each rendition is handed to the consumer
+     * as soon as it is resized, which encodes it into a stream of its choice.
+     *
+     * @param file     the stream of the image file to render, left open.
+     * @param sizes    the sizes to render the image at.
+     * @param format   the format to encode the renditions in.
+     * @param consumer the consumer of the renditions, called once for every size.
+     */
+    void renderRenditions(InputStream file, @NotEmpty List<TargetSize> sizes, @NotNull ImageValidType format, @NotNull RenditionConsumer consumer);
+
+    /**
+     * Consumer of the renditions of an image.
+     */
+    @FunctionalInterface
+    interface RenditionConsumer {
+
+        /**
+         * Accepts a resized rendition.
+         *
+         * @param index   the index of the size of the rendition in the requested sizes.
+         * @param encoder the encoder of the rendition.
+         * @throws IOException if the rendition cannot be stored.
+         */
+        void accept(int index, RenditionEncoder encoder) throws IOException;
+    }
+
+    /**
+     * Encoder of a resized rendition.
+     */
+    @FunctionalInterface
+    interface RenditionEncoder {
+
+        /**
+         * Encodes the rendition into a stream.
+         *
+         * @param target the stream the rendition is written to, left open.
+         * @return the number of bytes of the rendition written to the target.
+         * @throws IOException if the rendition cannot be encoded or written.
+         */
+        long encodeTo(OutputStream target) throws IOException;
+    }
 }
\ No newline at end of file
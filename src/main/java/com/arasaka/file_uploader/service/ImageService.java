@@ -1,10 +1,14 @@
 package com.arasaka.file_uploader.service;
 
 import com.arasaka.file_uploader.domain.ImageEntity;
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.TargetSize;
 import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
-import org.springframework.web.multipart.MultipartFile;
+import com.arasaka.file_uploader.type.ImageValidType;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing image-related operations.
@@ -20,19 +24,67 @@ public interface ImageService {
     ImageEntity getEntityByName(String fileName);
 
     /**
-     * Downloads all images from the database.
+     * Reads and decrypts the content of an image.
      *
-     * @return a list of all ImageEntity objects.
+     * @param imageEntity the ImageEntity whose content to read.
+     * @return the decrypted content of the image.
      */
-    List<ImageEntity> downloadAllImages();
+    byte[] getImageContent(ImageEntity imageEntity);
+
+    /**
+     * Opens the content of an image as a stream, decrypting it while it is read.
+     *
+     * @param imageEntity the ImageEntity whose content to open.
+     * @return a stream of the decrypted content of the image, to be closed by the caller.
+     */
+    InputStream openImageContent(ImageEntity imageEntity);
+
+    /**
+     * Opens the content of an image downloaded on its own, served from memory if it is cached.
+     *
+     * @param imageEntity the ImageEntity whose content to open.
+     * @return a stream of the decrypted content of the image, to be closed by the caller.
+     */
+    InputStream openCachedImageContent(ImageEntity imageEntity);
+
+    /**
+     * Returns a variant of an image fitting into the given size, rendered from the original of the image
+     * on first request and cached.
+     *
+     * @param imageEntity the ImageEntity to render the variant of.
+     * @param width       the width of the variant.
+     * @param height      the height of the variant.
+     * @return the encoded variant, in the format of the image.
+     */
+    byte[] getImageVariant(ImageEntity imageEntity, int width, int height);
+
+    /**
+     * Streams all images from the database to the given consumer, one at a time.
+     *
+     * @param consumer the consumer receiving each ImageEntity.
+     */
+    void streamAllImages(Consumer<ImageEntity> consumer);
 
     /**
      * Uploads and processes a list of images, resizing them to the specified dimensions.
+     * The originals of the images are stored as well.
      *
-     * @param images the list of MultipartFile objects to upload.
-     * @param width  the target width for resizing the images.
-     * @param height the target height for resizing the images.
+     * @param images the list of ingested images to upload.
+     * @param width  the target width for resizing the images, or null to keep their size.
+     * @param height the target height for resizing the images, or null to keep their size.
+     * @param format the format to encode the images in, or null to keep the format of each image.
      * @return a list of UploadImageResponseDto objects representing the uploaded images.
      */
-    List<UploadImageResponseDto> uploadImages(List<MultipartFile> images, Integer width, Integer height);
+    List<UploadImageResponseDto> uploadImages(List<IngestedImage> images, Integer width, Integer height, ImageValidType format);
+
+    /**
+     * Uploads and processes a list of images, storing a rendition of every image at each of the given sizes.
+     * Every image is decoded once for all of its renditions, and the originals of the images are stored as well.
+     *
+     * @param images the list of ingested images to upload.
+     * @param sizes  the sizes to store the renditions at.
+     * @param format the format to encode the renditions in, or null to keep the format of each image.
+     * @return a list of UploadImageResponseDto objects representing the renditions, in the order of the sizes, image after image.
+     */
+    List<UploadImageResponseDto> uploadRenditions(List<IngestedImage> images, List<TargetSize> sizes, ImageValidType format);
 }
\ No newline at end of file
@@ -2,8 +2,11 @@ package com.arasaka.file_uploader.service;
 
 import com.arasaka.file_uploader.domain.ImageEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Service interface for handling image transactions.
@@ -19,11 +22,11 @@ public interface ImageTransactionService {
     List<ImageEntity> saveImages(List<ImageEntity> imageEntities);
 
     /**
-     * Retrieves all ImageEntity objects from the repository.
+     * Streams all ImageEntity objects from the repository to the given consumer, one at a time.
      *
-     * @return a list of all ImageEntity objects.
+     * @param consumer the consumer receiving each ImageEntity.
      */
-    List<ImageEntity> getAllImages();
+    void streamAllImages(Consumer<ImageEntity> consumer);
 
     /**
      * Finds an ImageEntity by its file name.
@@ -32,4 +35,20 @@ public interface ImageTransactionService {
      * @return an Optional containing the found ImageEntity, or empty if not found.
      */
     Optional<ImageEntity> findImageByFileName(String fileName);
+
+    /**
+     * Finds one ImageEntity for each size and format stored from any of the given source hashes.
+     *
+     * @param sourceHashes the SHA-256 hashes of the uploaded files.
+     * @return a list of the ImageEntities, one per source hash, width, height and file type.
+     */
+    List<ImageEntity> findImagesBySourceHashes(Collection<String> sourceHashes);
+
+    /**
+     * Finds which of the given blob keys an ImageEntity refers to, as its blob or as its original.
+     *
+     * @param blobKeys the blob keys to look for.
+     * @return the blob keys referred to by an ImageEntity.
+     */
+    Set<String> findReferencedBlobKeys(Collection<String> blobKeys);
 }
\ No newline at end of file
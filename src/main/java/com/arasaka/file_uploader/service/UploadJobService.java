@@ -0,0 +1,34 @@
+package com.arasaka.file_uploader.service;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.UploadJob;
+import com.arasaka.file_uploader.type.ImageValidType;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Service interface for uploading images asynchronously, in jobs processed in the background.
+ */
+public interface UploadJobService {
+
+    /**
+     * Queues the upload of already validated images and returns without waiting for it.
+     *
+     * @param images the ingested images to upload.
+     * @param width  the width to resize the images to, or null together with height to keep their size.
+     * @param height the height to resize the images to, or null together with width to keep their size.
+     * @param format the format to encode the images in, the format of each image is kept if null.
+     * @return the queued job.
+     * @throws java.util.concurrent.RejectedExecutionException if the job queue is full.
+     */
+    UploadJob submit(List<IngestedImage> images, Integer width, Integer height, ImageValidType format);
+
+    /**
+     * Retrieves the current state of a job.
+     *
+     * @param jobId the id of the job.
+     * @return the job, or empty if it is unknown or has expired.
+     */
+    Optional<UploadJob> findJob(String jobId);
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.arasaka.file_uploader.service;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.UploadSession;
+
+import java.io.InputStream;
+import java.util.function.Function;
+
+/**
+ * Service interface for resumable chunked uploads of single images.
+ */
+public interface UploadSessionService {
+
+    /**
+     * Starts a new upload session with no chunks received.
+     *
+     * @return the new session.
+     */
+    UploadSession createSession();
+
+    /**
+     * Retrieves the progress of a session.
+     *
+     * @param sessionId the id of the session.
+     * @return the session.
+     * @throws IllegalArgumentException if the session is unknown or has expired.
+     */
+    UploadSession getSession(String sessionId);
+
+    /**
+     * Appends a chunk to the image of a session. A chunk that was already received is ignored, so sending a chunk
+     * again after a dropped connection is safe.
+     *
+     * @param sessionId  the id of the session.
+     * @param chunkIndex the number of the chunk, starting from 0.
+     * @param chunk      the content of the chunk.
+     * @return the session after the chunk was appended.
+     * @throws IllegalArgumentException if the session is unknown, already committed, the chunk is out of order,
+     *                                  or the image would exceed the size limit of chunked uploads.
+     */
+    UploadSession appendChunk(String sessionId, int chunkIndex, InputStream chunk);
+
+    /**
+     * Closes a session to further chunks, ingests the assembled image and passes it to the processor. The image is
+     * read from the spool file of the session while it is processed, so until the processor returns the session
+     * can be neither deleted nor committed again, and it does not expire. The session is deleted once the processor
+     * returns; if the processor fails, the session is kept, so the commit can be retried.
+     *
+     * @param sessionId the id of the session.
+     * @param processor the processor of the ingested image.
+     * @param <T>       the type of the result of the processor.
+     * @return the result of the processor.
+     * @throws IllegalArgumentException if the session is unknown or is already being committed.
+     */
+    <T> T commitSession(String sessionId, Function<IngestedImage, T> processor);
+
+    /**
+     * Deletes a session together with the chunks received.
+     *
+     * @param sessionId the id of the session.
+     * @throws IllegalArgumentException if the session is unknown or is being committed.
+     */
+    void deleteSession(String sessionId);
+}
\ No newline at end of file
@@ -0,0 +1,320 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.domain.TargetSize;
+import com.arasaka.file_uploader.service.ImageProcessingService;
+import com.arasaka.file_uploader.type.ImageValidType;
+import com.arasaka.file_uploader.util.MetricsUtil;
+import com.arasaka.file_uploader.util.SimpleValidatorUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Base of the image processing services, decoding and encoding images with ImageIO.
+ * Implementations only provide the resize of the decoded image.
+ */
+@Slf4j
+public abstract class AbstractImageProcessingService implements ImageProcessingService {
+
+    static {
+        // images are decoded from streams that are read once, caching them in a temporary file only adds disk I/O to every upload
+        ImageIO.setUseCache(false);
+    }
+
+    private final float jpegQuality;
+    private final boolean jpegProgressive;
+    private final int pngCompressionLevel;
+    private final String jpegSettings;
+    private final String pngSettings;
+
+    /**
+     * Constructor for AbstractImageProcessingService.
+     *
+     * @param jpegQuality         the JPEG quality between 0 and 1, higher is larger and better.
+     * @param jpegProgressive     whether JPEG images are encoded progressive.
+     * @param pngCompressionLevel the PNG deflate level between 0 and 9, higher is smaller and slower.
+     */
+    protected AbstractImageProcessingService(float jpegQuality, boolean jpegProgressive, int pngCompressionLevel) {
+        if (jpegQuality < 0 || jpegQuality > 1) {
+            throw new IllegalArgumentException("JPEG quality must be between 0 and 1");
+        }
+        if (pngCompressionLevel < 0 || pngCompressionLevel > 9) {
+            throw new IllegalArgumentException("PNG compression level must be between 0 and 9");
+        }
+        this.jpegQuality = jpegQuality;
+        this.jpegProgressive = jpegProgressive;
+        this.pngCompressionLevel = pngCompressionLevel;
+        this.jpegSettings = "quality=" + jpegQuality + ",progressive=" + jpegProgressive;
+        this.pngSettings = "compression=" + pngCompressionLevel;
+    }
+
+    /**
+     * Resizes an image to the specified width and height and encodes it in the given format.
+     * The dimensions are read from the header first, so images above the size limit are rejected before
+     * any pixel is decoded, and large images are decoded subsampled, close to the target size.
+     * The image is decoded straight from the source stream and encoded straight into the target stream.
+     *
+     * @param file   the stream of the image file to resize, left open.
+     * @param target the stream the resized image is written to, left open.
+     * @param width  the target width of the resized image.
+     * @param height the target height of the resized image.
+     * @param format the format to encode the resized image in.
+     * @return the number of bytes of the resized image written to the target.
+     * @throws IllegalArgumentException if the image exceeds the size limit.
+     * @throws RuntimeException         if an error occurs during the resizing process.
+     */
+    @Override
+    public long resizeImage(InputStream file, OutputStream target, Integer width, Integer height, ImageValidType format) {
+        log.info("Starting image resize process for width: {} and height: {}", width, height);
+        long encodedSize = MetricsUtil.time(MetricsUtil.RESIZE, () -> resize(file, target, width, height, format));
+        MetricsUtil.recordBytesOut(MetricsUtil.RESIZE, encodedSize);
+        return encodedSize;
+    }
+
+    private long resize(InputStream file, OutputStream target, int width, int height, ImageValidType format) {
+        try {
+            BufferedImage originalImage = readImage(file, width, height);
+            log.trace("Original image read successfully");
+
+            BufferedImage resizedImage = resize(originalImage, width, height);
+            log.trace("Image resized successfully");
+
+            long encodedSize = writeImage(resizedImage, format, target);
+            log.trace("Resized image written to output stream successfully");
+
+            log.info("Image resize process completed successfully");
+            return encodedSize;
+        } catch (IOException e) {
+            log.error("Error resizing image", e);
+            throw new RuntimeException("Error resizing image", e);
+        }
+    }
+
+    /**
+     * Renders an image at several sizes from a single decode. The image is decoded subsampled for the largest size,
+     * and the renditions are resized from the largest to the smallest: each one is resized from the smallest
+     * rendition already resized that is still at least twice its size in both directions, like the decode itself,
+     * or from the decoded image if there is none, so the small renditions are resized from few pixels
+     * without losing quality.
+     *
+     * @param file     the stream of the image file to render, left open.
+     * @param sizes    the sizes to render the image at.
+     * @param format   the format to encode the renditions in.
+     * @param consumer the consumer of the renditions, called from the largest size to the smallest.
+     * @throws IllegalArgumentException if the image exceeds the size limit.
+     * @throws RuntimeException         if an error occurs during the rendering process.
+     */
+    @Override
+    public void renderRenditions(InputStream file, List<TargetSize> sizes, ImageValidType format, RenditionConsumer consumer) {
+        log.info("Starting image rendition process for {} sizes", sizes.size());
+        long encodedSize = MetricsUtil.time(MetricsUtil.RESIZE, () -> render(file, sizes, format, consumer));
+        MetricsUtil.recordBytesOut(MetricsUtil.RESIZE, encodedSize);
+    }
+
+    private long render(InputStream file, List<TargetSize> sizes, ImageValidType format, RenditionConsumer consumer) {
+        try {
+            int maxWidth = sizes.stream().mapToInt(TargetSize::width).max().orElseThrow();
+            int maxHeight = sizes.stream().mapToInt(TargetSize::height).max().orElseThrow();
+            BufferedImage originalImage = readImage(file, maxWidth, maxHeight);
+            log.trace("Original image read successfully");
+
+            List<Integer> order = IntStream.range(0, sizes.size()).boxed()
+                    .sorted(Comparator.comparingLong((Integer index) -> area(originalImage, sizes.get(index))).reversed())
+                    .toList();
+            List<BufferedImage> renditions = new ArrayList<>();
+            long encodedSize = 0;
+            for (int index : order) {
+                TargetSize size = sizes.get(index);
+                BufferedImage rendition = resize(resizeSource(originalImage, renditions, size), size.width(), size.height());
+                renditions.add(rendition);
+                log.trace("Rendition {}x{} resized successfully", size.width(), size.height());
+
+                long[] renditionSize = new long[1];
+                consumer.accept(index, target -> renditionSize[0] = writeImage(rendition, format, target));
+                encodedSize += renditionSize[0];
+            }
+            log.info("Image rendition process completed successfully");
+            return encodedSize;
+        } catch (IOException e) {
+            log.error("Error resizing image", e);
+            throw new RuntimeException("Error resizing image", e);
+        }
+    }
+
+    /**
+     * Picks the image to resize a rendition from: the last, so smallest, of the renditions resized so far that is
+     * at least twice the fitted size of the rendition in both directions, or the decoded image.
+     *
+     * @param originalImage the decoded image.
+     * @param renditions    the renditions resized so far, from the largest to the smallest.
+     * @param size          the target size of the rendition.
+     * @return the image to resize the rendition from.
+     */
+    private static BufferedImage resizeSource(BufferedImage originalImage, List<BufferedImage> renditions, TargetSize size) {
+        int[] fitted = fittedSize(originalImage.getWidth(), originalImage.getHeight(), size.width(), size.height());
+        for (int i = renditions.size() - 1; i >= 0; i--) {
+            BufferedImage rendition = renditions.get(i);
+            if (rendition.getWidth() >= 2 * fitted[0] && rendition.getHeight() >= 2 * fitted[1]) {
+                return rendition;
+            }
+        }
+        return originalImage;
+    }
+
+    private static long area(BufferedImage image, TargetSize size) {
+        int[] fitted = fittedSize(image.getWidth(), image.getHeight(), size.width(), size.height());
+        return (long) fitted[0] * fitted[1];
+    }
+
+    /**
+     * Resizes a decoded image to fit the target size, keeping its proportions: landscape and square images
+     * are fitted to the target width, portrait images to the target height.
+     *
+     * @param image  the decoded image.
+     * @param width  the target width of the resized image.
+     * @param height the target height of the resized image.
+     * @return the resized image.
+     */
+    protected abstract BufferedImage resize(BufferedImage image, int width, int height);
+
+    /**
+     * Fits a target size to the proportions of an image like ImgScalr does: landscape and square images keep
+     * the target width, portrait images keep the target height.
+     *
+     * @param sourceWidth  the width of the image.
+     * @param sourceHeight the height of the image.
+     * @param width        the target width.
+     * @param height       the target height.
+     * @return the fitted width and height.
+     */
+    protected static int[] fittedSize(int sourceWidth, int sourceHeight, int width, int height) {
+        float ratio = (float) sourceHeight / (float) sourceWidth;
+        if (ratio <= 1) {
+            return new int[]{width, Math.max(1, Math.round(width * ratio))};
+        }
+        return new int[]{Math.max(1, Math.round(height / ratio)), height};
+    }
+
+    /**
+     * Decodes an image, subsampled by the largest factor that still leaves at least twice the target size
+     * in both directions, so the quality resize has enough pixels to work with while the heap used
+     * depends on the target size rather than on the source size.
+     *
+     * @param file   the stream of the image file to decode.
+     * @param width  the target width of the resized image.
+     * @param height the target height of the resized image.
+     * @return the decoded image.
+     * @throws IOException if no reader supports the image or it cannot be decoded.
+     */
+    private BufferedImage readImage(InputStream file, int width, int height) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                SimpleValidatorUtil.checkImageSize(sourceWidth, sourceHeight);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(sourceWidth / (2 * Math.max(1, width)), sourceHeight / (2 * Math.max(1, height))));
+                if (subsampling > 1) {
+                    log.trace("Decoding {}x{} image subsampled by {}", sourceWidth, sourceHeight, subsampling);
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Encodes an image with the configured settings of its format, recording the encode time and the encoded size
+     * as metrics tagged with the format and the settings.
+     *
+     * @param image  the image to encode.
+     * @param format the format to encode the image in.
+     * @param target the stream the encoded image is written to, left open.
+     * @return the number of bytes of the encoded image.
+     * @throws IOException if the image cannot be encoded or written.
+     */
+    private long writeImage(BufferedImage image, ImageValidType format, OutputStream target) throws IOException {
+        long start = System.nanoTime();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format.getFormatName()).next();
+        long encodedSize;
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(output);
+            if (format == ImageValidType.JPEG) {
+                writer.write(null, new IIOImage(withoutAlpha(image), null, null), jpegWriteParam(writer));
+            } else {
+                writer.write(null, new IIOImage(image, null, null), pngWriteParam(writer));
+            }
+            encodedSize = output.getStreamPosition();
+        } finally {
+            writer.dispose();
+        }
+        MetricsUtil.recordEncode(format.getFormatName(), format == ImageValidType.JPEG ? jpegSettings : pngSettings,
+                System.nanoTime() - start, encodedSize);
+        return encodedSize;
+    }
+
+    private ImageWriteParam jpegWriteParam(ImageWriter writer) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        param.setProgressiveMode(jpegProgressive ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+        return param;
+    }
+
+    private ImageWriteParam pngWriteParam(ImageWriter writer) {
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            // the PNG writer derives the deflate level from the quality as 9 - round(9 * quality)
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality((9 - pngCompressionLevel) / 9f);
+        }
+        return param;
+    }
+
+    /**
+     * Drops the alpha channel of an image, which JPEG cannot store, by drawing it onto a white opaque image.
+     *
+     * @param image the image to convert.
+     * @return the image itself if it has no alpha channel, otherwise an opaque copy.
+     */
+    private BufferedImage withoutAlpha(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage opaqueImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = opaqueImage.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return opaqueImage;
+    }
+}
\ No newline at end of file
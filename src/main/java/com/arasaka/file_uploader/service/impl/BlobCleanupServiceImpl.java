@@ -0,0 +1,88 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.service.BlobCleanupService;
+import com.arasaka.file_uploader.service.ImageTransactionService;
+import com.arasaka.file_uploader.storage.BlobStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the BlobCleanupService interface.
+ * The keys of the blobs older than the grace period are listed from the blob store and checked against the images
+ * in batches, so neither all keys nor all images are held in memory. Storing a blob that already exists refreshes
+ * its storage time, so a blob that an upload in progress stores again is kept as well.
+ */
+@Service
+@Slf4j
+public class BlobCleanupServiceImpl implements BlobCleanupService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final BlobStore blobStore;
+    private final ImageTransactionService imageTransactionService;
+    private final Duration gracePeriod;
+
+    /**
+     * Constructor for BlobCleanupServiceImpl.
+     *
+     * @param blobStore               the store of the blobs.
+     * @param imageTransactionService the service finding the images referring to the blobs.
+     * @param gracePeriod             how long a blob is kept after it was stored, even if no image refers to it.
+     */
+    public BlobCleanupServiceImpl(BlobStore blobStore, ImageTransactionService imageTransactionService,
+                                  @Value("${image.storage.cleanup-grace-period}") Duration gracePeriod) {
+        this.blobStore = blobStore;
+        this.imageTransactionService = imageTransactionService;
+        this.gracePeriod = gracePeriod;
+    }
+
+    @Override
+    @Scheduled(initialDelayString = "${image.storage.cleanup-interval}", fixedDelayString = "${image.storage.cleanup-interval}")
+    public int removeUnreferencedBlobs() {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        log.info("Removing unreferenced blobs stored before: {}", cutoff);
+        int removed = 0;
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        try (Stream<String> keys = blobStore.keysStoredBefore(cutoff)) {
+            Iterator<String> key = keys.iterator();
+            while (key.hasNext()) {
+                batch.add(key.next());
+                if (batch.size() == BATCH_SIZE || !key.hasNext()) {
+                    removed += removeUnreferenced(batch);
+                    batch.clear();
+                }
+            }
+        }
+        log.info("Removed {} unreferenced blobs", removed);
+        return removed;
+    }
+
+    /**
+     * Deletes the blobs of a batch that no image refers to.
+     *
+     * @param keys the keys of the blobs.
+     * @return the number of deleted blobs.
+     */
+    private int removeUnreferenced(List<String> keys) {
+        Set<String> referenced = imageTransactionService.findReferencedBlobKeys(keys);
+        int removed = 0;
+        for (String key : keys) {
+            if (!referenced.contains(key)) {
+                log.info("Removing unreferenced blob: {}", key);
+                blobStore.delete(key);
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
\ No newline at end of file
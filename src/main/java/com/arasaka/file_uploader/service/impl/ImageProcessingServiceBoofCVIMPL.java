@@ -0,0 +1,143 @@
+package com.arasaka.file_uploader.service.impl;
+
+import boofcv.abst.distort.FDistort;
+import boofcv.alg.filter.misc.AverageDownSampleOps;
+import boofcv.alg.interpolate.InterpolationType;
+import boofcv.struct.image.GrayU8;
+import boofcv.struct.image.Planar;
+import com.arasaka.file_uploader.util.ImageBufferUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Service implementation for processing images using the BoofCV library.
+ * The decoded image is copied once into the primitive byte arrays of a BoofCV planar image, one array per band,
+ * and resized there: images are first scaled down by the largest integer factor that keeps them at least as large as
+ * the target, averaging each block of source pixels, and the remaining step of less than two, or any upscale,
+ * is done by bilinear interpolation. Averaging whole blocks is much cheaper than averaging the fractional area
+ * each target pixel covers, and leaves too little to the interpolation to alias. The resized bands are interleaved
+ * straight into the pixel buffer of the image to encode. The target size is fitted to the proportions of the image
+ * the same way as by ImgScalr, so both implementations produce images of the same size.
+ */
+@Service
+@Profile("boofcv")
+public class ImageProcessingServiceBoofCVIMPL extends AbstractImageProcessingService {
+
+    /**
+     * Constructor for ImageProcessingServiceBoofCVIMPL.
+     *
+     * @param jpegQuality         the JPEG quality between 0 and 1, higher is larger and better.
+     * @param jpegProgressive     whether JPEG images are encoded progressive.
+     * @param pngCompressionLevel the PNG deflate level between 0 and 9, higher is smaller and slower.
+     */
+    public ImageProcessingServiceBoofCVIMPL(@Value("${image.encoding.jpeg-quality}") float jpegQuality,
+                                            @Value("${image.encoding.jpeg-progressive}") boolean jpegProgressive,
+                                            @Value("${image.encoding.png-compression-level}") int pngCompressionLevel) {
+        super(jpegQuality, jpegProgressive, pngCompressionLevel);
+    }
+
+    @Override
+    protected BufferedImage resize(BufferedImage image, int width, int height) {
+        int[] size = fittedSize(image.getWidth(), image.getHeight(), width, height);
+        Planar<GrayU8> source = toPlanar(image);
+        int factor = Math.max(1, Math.min(source.width / size[0], source.height / size[1]));
+        if (factor > 1) {
+            Planar<GrayU8> reduced = source.createSameShape();
+            AverageDownSampleOps.reshapeDown(reduced, source.width, source.height, factor);
+            AverageDownSampleOps.down(source, factor, reduced);
+            source = reduced;
+        }
+        if (source.width == size[0] && source.height == size[1]) {
+            return toBufferedImage(source);
+        }
+        Planar<GrayU8> resized = new Planar<>(GrayU8.class, size[0], size[1], source.getNumBands());
+        new FDistort(source, resized).interp(InterpolationType.BILINEAR).scaleExt().apply();
+        return toBufferedImage(resized);
+    }
+
+    /**
+     * Copies an image into a planar image with red, green, blue and, if the image has one, alpha bands.
+     * The interleaved bytes of the BGR and ABGR images decoded by ImageIO are read straight from their pixel buffer,
+     * other images are read a row of packed ARGB pixels at a time.
+     *
+     * @param image the image to copy.
+     * @return the planar image.
+     */
+    private static Planar<GrayU8> toPlanar(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean alpha = image.getColorModel().hasAlpha();
+        Planar<GrayU8> planar = new Planar<>(GrayU8.class, width, height, alpha ? 4 : 3);
+        byte[] red = planar.getBand(0).data;
+        byte[] green = planar.getBand(1).data;
+        byte[] blue = planar.getBand(2).data;
+        byte[] opacity = alpha ? planar.getBand(3).data : null;
+
+        byte[] pixels = ImageBufferUtil.interleavedBytes(image);
+        if (pixels != null && image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            for (int i = 0, p = 0; i < width * height; i++, p += 3) {
+                blue[i] = pixels[p];
+                green[i] = pixels[p + 1];
+                red[i] = pixels[p + 2];
+            }
+        } else if (pixels != null && image.getType() == BufferedImage.TYPE_4BYTE_ABGR) {
+            for (int i = 0, p = 0; i < width * height; i++, p += 4) {
+                opacity[i] = pixels[p];
+                blue[i] = pixels[p + 1];
+                green[i] = pixels[p + 2];
+                red[i] = pixels[p + 3];
+            }
+        } else {
+            int[] row = new int[width];
+            for (int y = 0, i = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++, i++) {
+                    int argb = row[x];
+                    red[i] = (byte) (argb >> 16);
+                    green[i] = (byte) (argb >> 8);
+                    blue[i] = (byte) argb;
+                    if (alpha) {
+                        opacity[i] = (byte) (argb >>> 24);
+                    }
+                }
+            }
+        }
+        return planar;
+    }
+
+    /**
+     * Interleaves a planar image into the pixel buffer of a new BGR or, with an alpha band, ABGR image.
+     *
+     * @param planar the planar image.
+     * @return the image to encode.
+     */
+    private static BufferedImage toBufferedImage(Planar<GrayU8> planar) {
+        boolean alpha = planar.getNumBands() == 4;
+        BufferedImage image = new BufferedImage(planar.width, planar.height, alpha ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        byte[] red = planar.getBand(0).data;
+        byte[] green = planar.getBand(1).data;
+        byte[] blue = planar.getBand(2).data;
+        int pixelCount = planar.width * planar.height;
+        if (alpha) {
+            byte[] opacity = planar.getBand(3).data;
+            for (int i = 0, p = 0; i < pixelCount; i++, p += 4) {
+                pixels[p] = opacity[i];
+                pixels[p + 1] = blue[i];
+                pixels[p + 2] = green[i];
+                pixels[p + 3] = red[i];
+            }
+        } else {
+            for (int i = 0, p = 0; i < pixelCount; i++, p += 3) {
+                pixels[p] = blue[i];
+                pixels[p + 1] = green[i];
+                pixels[p + 2] = red[i];
+            }
+        }
+        return image;
+    }
+}
\ No newline at end of file
@@ -1,54 +1,38 @@
 package com.arasaka.file_uploader.service.impl;
 
-import com.arasaka.file_uploader.service.ImageProcessingService;
-import lombok.extern.slf4j.Slf4j;
 import org.imgscalr.Scalr;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 
 /**
  * Service implementation for processing images using the ImgScalr library.
  */
 @Service
-@Slf4j
 @Profile("imgscalr")
-public class ImageProcessingServiceImgScalrIMPL implements ImageProcessingService {
+public class ImageProcessingServiceImgScalrIMPL extends AbstractImageProcessingService {
 
     /**
-     * Resizes an image to the specified width and height.
+     * Constructor for ImageProcessingServiceImgScalrIMPL.
      *
-     * @param file   the byte array of the image file to resize.
-     * @param width  the target width of the resized image.
-     * @param height the target height of the resized image.
-     * @return a byte array of the resized image.
-     * @throws RuntimeException if an error occurs during the resizing process.
+     * @param jpegQuality         the JPEG quality between 0 and 1, higher is larger and better.
+     * @param jpegProgressive     whether JPEG images are encoded progressive.
+     * @param pngCompressionLevel the PNG deflate level between 0 and 9, higher is smaller and slower.
      */
-    @Override
-    public byte[] resizeImage(byte[] file, Integer width, Integer height) {
-        log.info("Starting image resize process for width: {} and height: {}", width, height);
-        try {
-            ByteArrayInputStream bais = new ByteArrayInputStream(file);
-            BufferedImage originalImage = ImageIO.read(bais);
-            log.trace("Original image read successfully");
-
-            BufferedImage resizedImage = Scalr.resize(originalImage, Scalr.Method.QUALITY, width, height);
-            log.trace("Image resized successfully");
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(resizedImage, "jpg", baos);
-            log.trace("Resized image written to output stream successfully");
+    public ImageProcessingServiceImgScalrIMPL(@Value("${image.encoding.jpeg-quality}") float jpegQuality,
+                                              @Value("${image.encoding.jpeg-progressive}") boolean jpegProgressive,
+                                              @Value("${image.encoding.png-compression-level}") int pngCompressionLevel) {
+        super(jpegQuality, jpegProgressive, pngCompressionLevel);
+    }
 
-            log.info("Image resize process completed successfully");
-            return baos.toByteArray();
-        } catch (IOException e) {
-            log.error("Error resizing image", e);
-            throw new RuntimeException("Error resizing image", e);
-        }
+    /**
+     * Resizes an image with the QUALITY method of ImgScalr, which halves the image step by step with bicubic
+     * interpolation until it reaches the target size.
+     */
+    @Override
+    protected BufferedImage resize(BufferedImage image, int width, int height) {
+        return Scalr.resize(image, Scalr.Method.QUALITY, width, height);
     }
 }
\ No newline at end of file
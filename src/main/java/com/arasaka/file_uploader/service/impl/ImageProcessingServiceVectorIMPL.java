@@ -0,0 +1,49 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.resample.ResampleFilter;
+import com.arasaka.file_uploader.resample.Resampler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Service implementation for processing images with the separable {@link Resampler}, whose inner loops run
+ * on SIMD vectors through the incubating Vector API. The SIMD kernel is only compiled by the {@code vector} Maven
+ * profile ({@code mvn -Pvector package}) and only used when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}; built without the profile, {@code ResampleKernel.create()} falls back
+ * to the scalar kernel of plain loops, even if the module is added. The target size is fitted to the
+ * proportions of the image the same way as by ImgScalr, so all implementations produce images of the same size.
+ */
+@Slf4j
+@Service
+@Profile("vector")
+public class ImageProcessingServiceVectorIMPL extends AbstractImageProcessingService {
+
+    private final Resampler resampler;
+
+    /**
+     * Constructor for ImageProcessingServiceVectorIMPL.
+     *
+     * @param jpegQuality         the JPEG quality between 0 and 1, higher is larger and better.
+     * @param jpegProgressive     whether JPEG images are encoded progressive.
+     * @param pngCompressionLevel the PNG deflate level between 0 and 9, higher is smaller and slower.
+     * @param filter              the reconstruction filter of the resampler.
+     */
+    public ImageProcessingServiceVectorIMPL(@Value("${image.encoding.jpeg-quality}") float jpegQuality,
+                                            @Value("${image.encoding.jpeg-progressive}") boolean jpegProgressive,
+                                            @Value("${image.encoding.png-compression-level}") int pngCompressionLevel,
+                                            @Value("${image.resampling.filter}") ResampleFilter filter) {
+        super(jpegQuality, jpegProgressive, pngCompressionLevel);
+        this.resampler = Resampler.create(filter);
+        log.info("Resampling images with the {} filter on the {} kernel", filter, resampler.kernelName());
+    }
+
+    @Override
+    protected BufferedImage resize(BufferedImage image, int width, int height) {
+        int[] size = fittedSize(image.getWidth(), image.getHeight(), width, height);
+        return resampler.resize(image, size[0], size[1]);
+    }
+}
\ No newline at end of file
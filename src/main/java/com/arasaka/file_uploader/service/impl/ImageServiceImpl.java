@@ -1,22 +1,45 @@
 package com.arasaka.file_uploader.service.impl;
 
+import com.arasaka.file_uploader.cache.ImageContentCache;
+import com.arasaka.file_uploader.cache.ImageVariantCache;
+import com.arasaka.file_uploader.concurrent.ImageProcessingExecutor;
+import com.arasaka.file_uploader.crypto.SecretKeyProvider;
 import com.arasaka.file_uploader.domain.ImageEntity;
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.TargetSize;
 import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
 import com.arasaka.file_uploader.mapper.ImageMapper;
 import com.arasaka.file_uploader.service.ImageProcessingService;
 import com.arasaka.file_uploader.service.ImageService;
 import com.arasaka.file_uploader.service.ImageTransactionService;
-import com.arasaka.file_uploader.util.ApacheUtil;
+import com.arasaka.file_uploader.storage.BlobStore;
+import com.arasaka.file_uploader.type.ImageValidType;
 import com.arasaka.file_uploader.util.FileEncryptionUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Service implementation for managing image-related operations.
@@ -26,9 +49,16 @@ import java.util.UUID;
 @Slf4j
 public final class ImageServiceImpl implements ImageService {
 
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+
     private final ImageTransactionService imageTransactionService;
     private final ImageProcessingService imageProcessingService;
     private final ImageMapper imageMapper;
+    private final BlobStore blobStore;
+    private final SecretKeyProvider secretKeyProvider;
+    private final ImageProcessingExecutor imageProcessingExecutor;
+    private final ImageVariantCache imageVariantCache;
+    private final ImageContentCache imageContentCache;
 
     /**
      * Retrieves an ImageEntity by its file name.
@@ -48,67 +78,424 @@ public final class ImageServiceImpl implements ImageService {
     }
 
     /**
-     * Downloads all images from the database.
+     * Reads the encrypted content of an image from the blob store and decrypts it.
      *
-     * @return a list of all ImageEntity objects.
+     * @param imageEntity the ImageEntity whose content to read.
+     * @return the decrypted content of the image.
      */
     @Override
-    public List<ImageEntity> downloadAllImages() {
-        log.info("Downloading all images");
-        return imageTransactionService.getAllImages();
+    @SneakyThrows
+    public byte[] getImageContent(ImageEntity imageEntity) {
+        log.info("Reading content of image: {}", imageEntity.getFileName());
+        return FileEncryptionUtil.decryptFileFromBytes(blobStore.read(imageEntity.getBlobKey()), secretKeyProvider.getSecretKey());
     }
 
     /**
-     * Uploads and processes a list of images, resizing them to the specified dimensions.
+     * Opens the encrypted content of an image in the blob store as a stream decrypting it chunk by chunk.
      *
-     * @param images the list of MultipartFile objects to upload.
-     * @param width  the target width for resizing the images.
-     * @param height the target height for resizing the images.
-     * @return a list of UploadImageResponseDto objects representing the uploaded images.
+     * @param imageEntity the ImageEntity whose content to open.
+     * @return a stream of the decrypted content of the image, to be closed by the caller.
      */
     @Override
     @SneakyThrows
-    public List<UploadImageResponseDto> uploadImages(List<MultipartFile> images, Integer width, Integer height) {
+    public InputStream openImageContent(ImageEntity imageEntity) {
+        log.info("Opening content stream of image: {}", imageEntity.getFileName());
+        return FileEncryptionUtil.decryptingStream(blobStore.openStream(imageEntity.getBlobKey()), secretKeyProvider.getSecretKey());
+    }
+
+    /**
+     * Opens the content of an image from the content cache, reading and decrypting it as a whole on a miss.
+     * Images too large for the cache are streamed from the blob store as by {@link #openImageContent}.
+     *
+     * @param imageEntity the ImageEntity whose content to open.
+     * @return a stream of the decrypted content of the image, to be closed by the caller.
+     */
+    @Override
+    public InputStream openCachedImageContent(ImageEntity imageEntity) {
+        if (!imageContentCache.isCacheable(imageEntity)) {
+            return openImageContent(imageEntity);
+        }
+        log.info("Opening cached content of image: {}", imageEntity.getFileName());
+        return imageContentCache.open(imageEntity, this::getImageContent);
+    }
+
+    /**
+     * Returns a variant of an image from the variant cache. A missing variant is rendered on the image processing
+     * pool from the original of the image, or from the stored image if it has no original.
+     *
+     * @param imageEntity the ImageEntity to render the variant of.
+     * @param width       the width of the variant.
+     * @param height      the height of the variant.
+     * @return the encoded variant, in the format of the image.
+     */
+    @Override
+    public byte[] getImageVariant(ImageEntity imageEntity, int width, int height) {
+        log.info("Fetching variant {}x{} of image: {}", width, height, imageEntity.getFileName());
+        String sourceKey = imageEntity.getOriginalBlobKey() != null ? imageEntity.getOriginalBlobKey() : imageEntity.getBlobKey();
+        ImageValidType format = ImageValidType.fromType(imageEntity.getFileType())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid file type"));
+        return imageVariantCache.get(new ImageVariantCache.VariantKey(sourceKey, width, height, format),
+                key -> imageProcessingExecutor.submit(() -> renderVariant(key)));
+    }
+
+    /**
+     * Streams all images from the database to the given consumer, one at a time.
+     *
+     * @param consumer the consumer receiving each ImageEntity.
+     */
+    @Override
+    public void streamAllImages(Consumer<ImageEntity> consumer) {
+        log.info("Streaming all images");
+        imageTransactionService.streamAllImages(consumer);
+    }
+
+    /**
+     * Uploads and processes a list of images, resizing them to the specified dimensions.
+     * Images already stored from the same file, at the same size and in the same format, are neither resized
+     * nor encrypted again: the new images refer to the stored blobs. The remaining images of the batch,
+     * each distinct one once, are resized and encrypted in parallel on the shared image processing pool,
+     * reusing the stored original of a file already uploaded at another size or in another format.
+     *
+     * @param images the list of ingested images to upload.
+     * @param width  the target width for resizing the images, or null to keep their size.
+     * @param height the target height for resizing the images, or null to keep their size.
+     * @param format the format to encode the images in, or null to keep the format of each image.
+     * @return a list of UploadImageResponseDto objects representing the uploaded images, in the order of the images.
+     */
+    @Override
+    public List<UploadImageResponseDto> uploadImages(List<IngestedImage> images, Integer width, Integer height, ImageValidType format) {
         log.info("Starting upload of {} images with target width: {} and height: {}", images.size(), width, height);
+        Map<StoredImageKey, ImageEntity> storedImages = findStoredImages(images);
+        Map<String, String> storedOriginals = storedOriginalBlobKeys(storedImages);
+
+        Map<StoredImageKey, IngestedImage> newImages = new LinkedHashMap<>();
+        images.forEach(image -> {
+            StoredImageKey key = storedImageKey(image, width, height, format);
+            if (!storedImages.containsKey(key)) {
+                newImages.putIfAbsent(key, image);
+            }
+        });
+        log.info("Processing {} new images, the other {} are already stored", newImages.size(), images.size() - newImages.size());
+        List<ImageEntity> processedImages = imageProcessingExecutor.processAll(newImages.values().stream()
+                .<Callable<ImageEntity>>map(image -> () -> processImage(image, storedOriginals.get(image.contentHash()), width, height, format))
+                .toList());
+        Iterator<ImageEntity> processedImage = processedImages.iterator();
+        newImages.keySet().forEach(key -> storedImages.put(key, processedImage.next()));
+
+        List<ImageEntity> imageEntities = images.stream()
+                .map(image -> referenceTo(storedImages.get(storedImageKey(image, width, height, format))))
+                .toList();
+        log.info("Uploading images to the database");
+        return imageMapper.imageEntitiesToUploadImageResponseDtos(saveWithUniqueFileNames(imageEntities));
+    }
+
+    /**
+     * Uploads and processes a list of images, storing a rendition of every image at each of the given sizes.
+     * Renditions already stored from the same file, at the same size and in the same format, are reused like by
+     * {@link #uploadImages}. Each distinct image with missing renditions is decoded once on the shared image
+     * processing pool, and all of its missing renditions are resized from that decode, reusing the stored original
+     * of the file if it has one. The renditions of each
+     * uploaded image share a new rendition group, and all of them are saved in a single batch.
+     *
+     * @param images the list of ingested images to upload.
+     * @param sizes  the sizes to store the renditions at.
+     * @param format the format to encode the renditions in, or null to keep the format of each image.
+     * @return a list of UploadImageResponseDto objects representing the renditions, in the order of the sizes, image after image.
+     */
+    @Override
+    public List<UploadImageResponseDto> uploadRenditions(List<IngestedImage> images, List<TargetSize> sizes, ImageValidType format) {
+        log.info("Starting upload of {} images at {} sizes", images.size(), sizes.size());
+        Map<StoredImageKey, ImageEntity> storedImages = findStoredImages(images);
+        Map<String, String> storedOriginals = storedOriginalBlobKeys(storedImages);
+
+        Map<String, IngestedImage> newImages = new LinkedHashMap<>();
+        Map<String, List<TargetSize>> missingSizes = new HashMap<>();
+        images.forEach(image -> {
+            if (missingSizes.containsKey(image.contentHash())) {
+                return;
+            }
+            List<TargetSize> missing = sizes.stream()
+                    .filter(size -> !storedImages.containsKey(storedImageKey(image, size.width(), size.height(), format)))
+                    .toList();
+            missingSizes.put(image.contentHash(), missing);
+            if (!missing.isEmpty()) {
+                newImages.put(image.contentHash(), image);
+            }
+        });
+        log.info("Rendering {} new images, the renditions of the other {} are already stored", newImages.size(), images.size() - newImages.size());
+        List<List<ImageEntity>> processedImages = imageProcessingExecutor.processAll(newImages.values().stream()
+                .<Callable<List<ImageEntity>>>map(image -> () -> processRenditions(image, storedOriginals.get(image.contentHash()),
+                        missingSizes.get(image.contentHash()), format))
+                .toList());
+        processedImages.stream().flatMap(List::stream).forEach(imageEntity -> storedImages.put(
+                new StoredImageKey(imageEntity.getSourceHash(), imageEntity.getWidth(), imageEntity.getHeight(), imageEntity.getFileType()),
+                imageEntity));
+
         List<ImageEntity> imageEntities = new ArrayList<>();
-        for (MultipartFile image : images) {
-            try {
-                byte[] resizedImage = imageProcessingService.resizeImage(image.getBytes(), width, height);
-                log.trace("Image resized successfully");
-
-                String mimeType = ApacheUtil.getMimeTypeFromInputStream(image.getInputStream());
-                log.trace("MIME type determined: {}", mimeType);
-
-                ImageEntity imageEntity = ImageEntity.builder()
-                        .fileName(getFileName())
-                        .fileType(mimeType)
-                        .fileSize(resizedImage.length)
-                        .encryptedData(FileEncryptionUtil.encryptFileToBytes(resizedImage))
-                        .width(width)
-                        .height(height)
-                        .build();
+        images.forEach(image -> {
+            String renditionGroup = UUID.randomUUID().toString();
+            sizes.forEach(size -> {
+                ImageEntity imageEntity = referenceTo(storedImages.get(storedImageKey(image, size.width(), size.height(), format)));
+                imageEntity.setRenditionGroup(renditionGroup);
                 imageEntities.add(imageEntity);
-            } catch (Exception e) {
-                log.error("Error processing image: {}", image.getOriginalFilename(), e);
-                throw e;
+            });
+        });
+        log.info("Uploading renditions to the database");
+        return imageMapper.imageEntitiesToUploadImageResponseDtos(saveWithUniqueFileNames(imageEntities));
+    }
+
+    /**
+     * Finds the stored images uploaded from the same files as the given images, one for each size and format.
+     *
+     * @param images the ingested images being uploaded.
+     * @return the stored images by the key of their source, size and format.
+     */
+    private Map<StoredImageKey, ImageEntity> findStoredImages(List<IngestedImage> images) {
+        Set<String> sourceHashes = images.stream()
+                .map(IngestedImage::contentHash)
+                .collect(Collectors.toSet());
+        Map<StoredImageKey, ImageEntity> storedImages = new HashMap<>();
+        imageTransactionService.findImagesBySourceHashes(sourceHashes).forEach(imageEntity -> storedImages.put(
+                new StoredImageKey(imageEntity.getSourceHash(), imageEntity.getWidth(), imageEntity.getHeight(), imageEntity.getFileType()),
+                imageEntity));
+        return storedImages;
+    }
+
+    /**
+     * Collects the keys of the stored originals of the files the stored images were uploaded from.
+     * The original is encrypted with a random nonce, so storing it again would not be deduplicated by the blob store.
+     *
+     * @param storedImages the stored images by the key of their source, size and format.
+     * @return the key of the stored original by the source hash, for the files whose original is stored.
+     */
+    private static Map<String, String> storedOriginalBlobKeys(Map<StoredImageKey, ImageEntity> storedImages) {
+        Map<String, String> storedOriginals = new HashMap<>();
+        storedImages.values().stream()
+                .filter(imageEntity -> imageEntity.getOriginalBlobKey() != null)
+                .forEach(imageEntity -> storedOriginals.putIfAbsent(imageEntity.getSourceHash(), imageEntity.getOriginalBlobKey()));
+        return storedOriginals;
+    }
+
+    /**
+     * Builds a new ImageEntity under a new file name referring to the blobs of a stored or just processed image.
+     * The ImageEntities referring to a blob are its only references: the BlobCleanupService deletes a blob
+     * once none of them is left.
+     *
+     * @param storedImage the image whose blobs to refer to.
+     * @return the new ImageEntity, not yet saved.
+     */
+    private ImageEntity referenceTo(ImageEntity storedImage) {
+        return ImageEntity.builder()
+                .fileName(UUID.randomUUID().toString())
+                .fileType(storedImage.getFileType())
+                .fileSize(storedImage.getFileSize())
+                .blobKey(storedImage.getBlobKey())
+                .originalBlobKey(storedImage.getOriginalBlobKey())
+                .sourceHash(storedImage.getSourceHash())
+                .width(storedImage.getWidth())
+                .height(storedImage.getHeight())
+                .build();
+    }
+
+    private StoredImageKey storedImageKey(IngestedImage image, Integer width, Integer height, ImageValidType format) {
+        return new StoredImageKey(image.contentHash(), width != null ? width : image.width(), height != null ? height : image.height(),
+                outputFormat(image, format).getType());
+    }
+
+    private ImageValidType outputFormat(IngestedImage image, ImageValidType format) {
+        return format != null ? format : ImageValidType.fromType(image.mimeType())
+                .orElseThrow(() -> new IllegalArgumentException("Invalid file type"));
+    }
+
+    /**
+     * Saves the images in a single batch. File names are random UUIDs, so they are not checked up front;
+     * the unique constraint on the file name rejects the batch in the unlikely case of a collision,
+     * and the batch is then retried with new file names. Violations of any other constraint are not retried.
+     *
+     * @param imageEntities the ImageEntity objects to save.
+     * @return the saved ImageEntity objects.
+     * @throws DataIntegrityViolationException if the batch violates another constraint, or still collides
+     *                                         on a file name after all attempts.
+     */
+    private List<ImageEntity> saveWithUniqueFileNames(List<ImageEntity> imageEntities) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return imageTransactionService.saveImages(imageEntities);
+            } catch (DataIntegrityViolationException e) {
+                if (!isFileNameCollision(e)) {
+                    log.error("Saving images violated a constraint", e);
+                    throw e;
+                }
+                if (attempt == MAX_SAVE_ATTEMPTS) {
+                    log.error("Saving images failed after {} attempts", attempt, e);
+                    throw e;
+                }
+                log.warn("Saving images collided on a file name, retrying with new file names", e);
+                imageEntities.forEach(imageEntity -> {
+                    imageEntity.setId(null);
+                    imageEntity.setFileName(UUID.randomUUID().toString());
+                });
             }
         }
-        log.info("Uploading images to the database");
-        return imageMapper.imageEntitiesToUploadImageResponseDtos(imageTransactionService.saveImages(imageEntities));
     }
 
     /**
-     * Generates a unique file name for an image.
+     * Checks whether a constraint violation is the violation of the unique constraint on the file name.
+     * Databases report the name of the constraint, or of the index backing it, in their own case and qualified
+     * by the schema, so the name is matched ignoring case.
      *
-     * @return a unique file name.
+     * @param e the constraint violation.
+     * @return true if the file name constraint was violated.
      */
-    String getFileName() {
-        String generatedFileName = UUID.randomUUID().toString();
-        while (imageTransactionService.findImageByFileName(generatedFileName).isPresent()) {
-            log.trace("Generated file name already exists: {}", generatedFileName);
-            generatedFileName = UUID.randomUUID().toString();
+    private static boolean isFileNameCollision(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return violation.getConstraintName() != null
+                        && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(ImageEntity.FILE_NAME_CONSTRAINT);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resizes a single image, then encrypts and stores both its original and the resized image.
+     * The content and MIME type detected on ingest are used as they are, and the stored file type is the format
+     * the image is encoded in. An image keeping both its size and its format is stored only once, and an original
+     * already stored from the same file is referred to instead of being stored again.
+     * The content is streamed from its source through the decoder or straight into the encrypting stream
+     * of the blob store, so neither the original nor the resized image is held in memory as a whole.
+     *
+     * @param image                 the ingested image to process.
+     * @param storedOriginalBlobKey the key of the original already stored from the same file, or null.
+     * @param width                 the target width for resizing the image, or null to keep its size.
+     * @param height                the target height for resizing the image, or null to keep its size.
+     * @param format                the format to encode the image in, or null to keep the format of the image.
+     * @return the ImageEntity describing the stored blobs of the image, without a file name.
+     * @throws Exception if the image cannot be processed.
+     */
+    private ImageEntity processImage(IngestedImage image, String storedOriginalBlobKey, Integer width, Integer height,
+                                     ImageValidType format) throws Exception {
+        try {
+            ImageValidType outputFormat = outputFormat(image, format);
+            boolean keepOriginal = width == null && outputFormat.getType().equals(image.mimeType());
+            int targetWidth = width != null ? width : image.width();
+            int targetHeight = height != null ? height : image.height();
+
+            SecretKey secretKey = secretKeyProvider.getSecretKey();
+            AtomicLong fileSize = new AtomicLong(image.size());
+            String resizedBlobKey = keepOriginal ? null : blobStore.write(out -> {
+                try (InputStream source = image.content().getInputStream();
+                     OutputStream encrypted = FileEncryptionUtil.encryptingStream(out, secretKey)) {
+                    fileSize.set(imageProcessingService.resizeImage(source, encrypted, targetWidth, targetHeight, outputFormat));
+                }
+            });
+            log.trace("Image resized successfully");
+
+            String originalBlobKey = storedOriginalBlobKey != null ? storedOriginalBlobKey : storeOriginal(image, secretKey);
+            String blobKey = keepOriginal ? originalBlobKey : resizedBlobKey;
+
+            return ImageEntity.builder()
+                    .fileType(outputFormat.getType())
+                    .fileSize(fileSize.get())
+                    .blobKey(blobKey)
+                    .originalBlobKey(originalBlobKey)
+                    .sourceHash(image.contentHash())
+                    .width(targetWidth)
+                    .height(targetHeight)
+                    .build();
+        } catch (Exception e) {
+            log.error("Error processing image: {}", image.originalFilename(), e);
+            throw e;
         }
-        log.trace("Generated unique file name: {}", generatedFileName);
-        return generatedFileName;
+    }
+
+    /**
+     * Renders a single image at several sizes from one decode, then encrypts and stores each rendition and the original,
+     * unless an original is already stored from the same file.
+     * Every rendition is encoded straight into the encrypting stream of the blob store as soon as it is resized.
+     *
+     * @param image                 the ingested image to process.
+     * @param storedOriginalBlobKey the key of the original already stored from the same file, or null.
+     * @param sizes                 the sizes to render the image at.
+     * @param format                the format to encode the renditions in, or null to keep the format of the image.
+     * @return the ImageEntities describing the stored blobs of the renditions, without file names, in the order of the sizes.
+     * @throws Exception if the image cannot be processed.
+     */
+    private List<ImageEntity> processRenditions(IngestedImage image, String storedOriginalBlobKey, List<TargetSize> sizes,
+                                                ImageValidType format) throws Exception {
+        try {
+            ImageValidType outputFormat = outputFormat(image, format);
+            SecretKey secretKey = secretKeyProvider.getSecretKey();
+            String originalBlobKey = storedOriginalBlobKey != null ? storedOriginalBlobKey : storeOriginal(image, secretKey);
+
+            ImageEntity[] renditions = new ImageEntity[sizes.size()];
+            try (InputStream source = image.content().getInputStream()) {
+                imageProcessingService.renderRenditions(source, sizes, outputFormat, (index, encoder) -> {
+                    AtomicLong fileSize = new AtomicLong();
+                    String blobKey = blobStore.write(out -> {
+                        try (OutputStream encrypted = FileEncryptionUtil.encryptingStream(out, secretKey)) {
+                            fileSize.set(encoder.encodeTo(encrypted));
+                        }
+                    });
+                    renditions[index] = ImageEntity.builder()
+                            .fileType(outputFormat.getType())
+                            .fileSize(fileSize.get())
+                            .blobKey(blobKey)
+                            .originalBlobKey(originalBlobKey)
+                            .sourceHash(image.contentHash())
+                            .width(sizes.get(index).width())
+                            .height(sizes.get(index).height())
+                            .build();
+                });
+            }
+            log.trace("Image rendered at {} sizes successfully", sizes.size());
+            return Arrays.asList(renditions);
+        } catch (Exception e) {
+            log.error("Error processing image: {}", image.originalFilename(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams the content of an image as uploaded into the encrypting stream of the blob store.
+     *
+     * @param image     the ingested image whose original to store.
+     * @param secretKey the key to encrypt the original with.
+     * @return the key of the stored original.
+     */
+    private String storeOriginal(IngestedImage image, SecretKey secretKey) {
+        return blobStore.write(out -> {
+            try (InputStream source = image.content().getInputStream();
+                 OutputStream encrypted = FileEncryptionUtil.encryptingStream(out, secretKey)) {
+                source.transferTo(encrypted);
+            }
+        });
+    }
+
+    /**
+     * Streams the source of a variant from the blob store through decryption into the decoder, and resizes it.
+     *
+     * @param key the key of the variant to render.
+     * @return the encoded variant.
+     * @throws Exception if the variant cannot be rendered.
+     */
+    private byte[] renderVariant(ImageVariantCache.VariantKey key) throws Exception {
+        log.info("Rendering variant {}x{} of blob: {}", key.width(), key.height(), key.sourceKey());
+        ByteArrayOutputStream variant = new ByteArrayOutputStream();
+        try (InputStream source = FileEncryptionUtil.decryptingStream(blobStore.openStream(key.sourceKey()), secretKeyProvider.getSecretKey())) {
+            imageProcessingService.resizeImage(source, variant, key.width(), key.height(), key.format());
+        }
+        return variant.toByteArray();
+    }
+
+    /**
+     * Key of a stored image: the file it was uploaded from, its size and its format.
+     *
+     * @param sourceHash the SHA-256 hash of the uploaded file.
+     * @param width      the width of the stored image.
+     * @param height     the height of the stored image.
+     * @param fileType   the MIME type of the stored image.
+     */
+    private record StoredImageKey(String sourceHash, int width, int height, String fileType) {
     }
 }
\ No newline at end of file
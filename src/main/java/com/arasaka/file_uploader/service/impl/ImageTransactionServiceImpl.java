@@ -3,13 +3,20 @@ package com.arasaka.file_uploader.service.impl;
 import com.arasaka.file_uploader.domain.ImageEntity;
 import com.arasaka.file_uploader.repository.ImageRepository;
 import com.arasaka.file_uploader.service.ImageTransactionService;
+import com.arasaka.file_uploader.util.MetricsUtil;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service implementation for handling image transactions.
@@ -21,9 +28,11 @@ import java.util.Optional;
 public class ImageTransactionServiceImpl implements ImageTransactionService {
 
     private final ImageRepository imageRepository;
+    private final EntityManager entityManager;
 
     /**
      * Saves a list of ImageEntity objects to the repository.
+     * The inserts are sent to the database in JDBC batches when the transaction is flushed.
      *
      * @param imageEntities the list of ImageEntity objects to save.
      * @return the list of saved ImageEntity objects.
@@ -32,22 +41,27 @@ public class ImageTransactionServiceImpl implements ImageTransactionService {
     @Transactional
     public List<ImageEntity> saveImages(List<ImageEntity> imageEntities) {
         log.info("Saving {} images", imageEntities.size());
-        List<ImageEntity> savedImages = imageRepository.saveAll(imageEntities);
+        List<ImageEntity> savedImages = MetricsUtil.time(MetricsUtil.SAVE, () -> imageRepository.saveAll(imageEntities));
         log.trace("Images saved successfully");
         return savedImages;
     }
 
     /**
-     * Retrieves all ImageEntity objects from the repository.
+     * Streams all ImageEntity objects from the repository to the given consumer, one at a time.
+     * Each entity is detached once consumed, so the persistence context does not grow with the table.
      *
-     * @return a list of all ImageEntity objects.
+     * @param consumer the consumer receiving each ImageEntity.
      */
     @Override
-    public List<ImageEntity> getAllImages() {
-        log.info("Fetching all images");
-        List<ImageEntity> images = imageRepository.findAll();
-        log.trace("Fetched {} images", images.size());
-        return images;
+    public void streamAllImages(Consumer<ImageEntity> consumer) {
+        log.info("Streaming all images");
+        try (Stream<ImageEntity> images = imageRepository.streamAll()) {
+            images.forEach(imageEntity -> {
+                consumer.accept(imageEntity);
+                entityManager.detach(imageEntity);
+            });
+        }
+        log.trace("Finished streaming images");
     }
 
     /**
@@ -59,7 +73,7 @@ public class ImageTransactionServiceImpl implements ImageTransactionService {
     @Override
     public Optional<ImageEntity> findImageByFileName(String fileName) {
         log.info("Finding image by file name: {}", fileName);
-        Optional<ImageEntity> imageEntity = imageRepository.findByFileName(fileName);
+        Optional<ImageEntity> imageEntity = MetricsUtil.time(MetricsUtil.FIND, () -> imageRepository.findByFileName(fileName));
         if (imageEntity.isPresent()) {
             log.trace("Image found: {}", fileName);
         } else {
@@ -67,4 +81,33 @@ public class ImageTransactionServiceImpl implements ImageTransactionService {
         }
         return imageEntity;
     }
+
+    /**
+     * Finds one ImageEntity for each size and format stored from any of the given source hashes.
+     *
+     * @param sourceHashes the SHA-256 hashes of the uploaded files.
+     * @return a list of the ImageEntities, one per source hash, width, height and file type.
+     */
+    @Override
+    public List<ImageEntity> findImagesBySourceHashes(Collection<String> sourceHashes) {
+        log.info("Finding images by {} source hashes", sourceHashes.size());
+        List<ImageEntity> images = imageRepository.findRenditionsBySourceHashIn(sourceHashes);
+        log.trace("Found {} stored renditions", images.size());
+        return images;
+    }
+
+    /**
+     * Finds which of the given blob keys an ImageEntity refers to, as its blob or as its original.
+     *
+     * @param blobKeys the blob keys to look for.
+     * @return the blob keys referred to by an ImageEntity.
+     */
+    @Override
+    public Set<String> findReferencedBlobKeys(Collection<String> blobKeys) {
+        log.info("Finding references to {} blobs", blobKeys.size());
+        Set<String> referenced = new HashSet<>(imageRepository.findReferencedBlobKeys(blobKeys));
+        referenced.addAll(imageRepository.findReferencedOriginalBlobKeys(blobKeys));
+        log.trace("Found references to {} blobs", referenced.size());
+        return referenced;
+    }
 }
\ No newline at end of file
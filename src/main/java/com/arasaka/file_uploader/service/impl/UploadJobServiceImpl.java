@@ -0,0 +1,191 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.UploadJob;
+import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
+import com.arasaka.file_uploader.service.ImageService;
+import com.arasaka.file_uploader.service.UploadJobService;
+import com.arasaka.file_uploader.type.ImageValidType;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import jakarta.annotation.PreDestroy;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of the UploadJobService interface.
+ * Jobs wait in a bounded queue for a small pool of job workers, each worker runs one upload at a time through
+ * {@link ImageService}, so the images of a job are still processed on the shared image processing pool.
+ * The images are spooled to temporary files until their job has run, since the multipart files of the request
+ * are cleaned up once it is answered.
+ * The state of finished jobs is kept for the configured retention after they finish, then forgotten;
+ * queued and running jobs are never forgotten, however long they wait for a worker.
+ */
+@Service
+@Slf4j
+public class UploadJobServiceImpl implements UploadJobService {
+
+    private final ImageService imageService;
+    private final Path spoolDirectory;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, UploadJob> jobs;
+
+    /**
+     * Constructor for UploadJobServiceImpl.
+     *
+     * @param imageService  the service uploading the images of a job.
+     * @param threads       the number of jobs running at once.
+     * @param queueCapacity the number of jobs that may wait for a worker before new jobs are rejected.
+     * @param retention      how long the state of a job is kept after it finishes.
+     * @param spoolDirectory the directory the images of queued jobs are spooled to.
+     */
+    public UploadJobServiceImpl(ImageService imageService,
+                                @Value("${image.jobs.threads}") int threads,
+                                @Value("${image.jobs.queue-capacity}") int queueCapacity,
+                                @Value("${image.jobs.retention}") Duration retention,
+                                @Value("${image.jobs.spool-directory}") Path spoolDirectory) {
+        this.imageService = imageService;
+        this.spoolDirectory = spoolDirectory;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("upload-job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new FinishedJobExpiry(retention))
+                .build();
+        log.info("Running upload jobs on {} threads with a queue of {}", threads, queueCapacity);
+    }
+
+    @Override
+    @SneakyThrows
+    public UploadJob submit(List<IngestedImage> images, Integer width, Integer height, ImageValidType format) {
+        log.info("Submitting upload job of {} images", images.size());
+        if (executor.getQueue().remainingCapacity() == 0) {
+            // spares spooling the images of a job that would be rejected anyway
+            log.warn("Upload job queue full, rejecting job of {} images", images.size());
+            throw new RejectedExecutionException("Upload job queue full");
+        }
+        List<Path> spooledFiles = new ArrayList<>(images.size());
+        UploadJob job = UploadJob.queued(UUID.randomUUID().toString());
+        try {
+            List<IngestedImage> spooledImages = new ArrayList<>(images.size());
+            for (IngestedImage image : images) {
+                spooledImages.add(spool(image, spooledFiles));
+            }
+            jobs.put(job.jobId(), job);
+            executor.execute(() -> run(job, spooledImages, spooledFiles, width, height, format));
+        } catch (RejectedExecutionException e) {
+            log.warn("Upload job queue full, rejecting job of {} images", images.size());
+            jobs.invalidate(job.jobId());
+            deleteAll(spooledFiles);
+            throw e;
+        } catch (IOException e) {
+            log.error("Error spooling upload job", e);
+            deleteAll(spooledFiles);
+            throw e;
+        }
+        log.trace("Upload job {} queued", job.jobId());
+        return job;
+    }
+
+    @Override
+    public Optional<UploadJob> findJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId));
+    }
+
+    /**
+     * Stops the job workers, letting queued jobs finish.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void run(UploadJob job, List<IngestedImage> images, List<Path> spooledFiles, Integer width, Integer height, ImageValidType format) {
+        log.info("Running upload job {}", job.jobId());
+        jobs.put(job.jobId(), job.running());
+        UploadJob finished;
+        try {
+            List<UploadImageResponseDto> uploaded = imageService.uploadImages(images, width, height, format);
+            finished = job.done(uploaded);
+            log.trace("Upload job {} done", job.jobId());
+        } catch (Exception e) {
+            // checked exceptions of the image processing pool and the blob store are rethrown sneakily
+            log.error("Upload job {} failed", job.jobId(), e);
+            finished = job.failed(e instanceof RejectedExecutionException ? "Server busy, try again later" : e.getMessage());
+        } finally {
+            deleteAll(spooledFiles);
+        }
+        // published only after the spooled files are gone, so a finished job leaves nothing behind
+        jobs.put(job.jobId(), finished);
+    }
+
+    /**
+     * Copies the content of an image to a temporary file in the spool directory.
+     *
+     * @param image        the image to spool.
+     * @param spooledFiles the spooled files of the job, the new file is added to it.
+     * @return the image reading its content from the spooled file.
+     * @throws IOException if the file cannot be written.
+     */
+    private IngestedImage spool(IngestedImage image, List<Path> spooledFiles) throws IOException {
+        Files.createDirectories(spoolDirectory);
+        Path file = Files.createTempFile(spoolDirectory, "upload-job-", ".tmp");
+        spooledFiles.add(file);
+        try (InputStream content = image.content().getInputStream()) {
+            Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new IngestedImage(image.originalFilename(), new FileSystemResource(file), image.size(), image.mimeType(),
+                image.width(), image.height(), image.contentHash());
+    }
+
+    private static void deleteAll(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Could not delete spooled file: {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Expires the state of a job the retention after it finishes, counted from the write of its final state.
+     */
+    private record FinishedJobExpiry(Duration retention) implements Expiry<String, UploadJob> {
+
+        @Override
+        public long expireAfterCreate(String jobId, UploadJob job, long currentTime) {
+            return job.isFinished() ? retention.toNanos() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String jobId, UploadJob job, long currentTime, long currentDuration) {
+            return expireAfterCreate(jobId, job, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String jobId, UploadJob job, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
\ No newline at end of file
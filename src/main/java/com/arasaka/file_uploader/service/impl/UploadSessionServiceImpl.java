@@ -0,0 +1,307 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.UploadSession;
+import com.arasaka.file_uploader.service.UploadSessionService;
+import com.arasaka.file_uploader.util.ImageIngestUtil;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of the UploadSessionService interface.
+ * The chunks of a session are appended to a spool file named after the session, the state of the sessions is kept
+ * in memory. Sessions without activity for the session timeout are removed periodically, together with spool files
+ * left behind by sessions of an earlier run. Each session is guarded by its own lock rather than a monitor,
+ * since chunks are streamed from the socket to the spool file while it is held, which would pin a virtual thread.
+ */
+@Service
+@Slf4j
+public class UploadSessionServiceImpl implements UploadSessionService {
+
+    private static final String SPOOL_FILE_SUFFIX = ".part";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path spoolDirectory;
+    private final Duration sessionTimeout;
+    private final long maxBytes;
+    private final long maxChunkBytes;
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for UploadSessionServiceImpl.
+     *
+     * @param spoolDirectory the directory the chunks are appended to files in.
+     * @param sessionTimeout how long a session is kept without activity.
+     * @param maxBytes       the largest image accepted in a chunked upload, in bytes.
+     * @param maxChunkBytes  the largest chunk accepted in a chunked upload, in bytes.
+     */
+    public UploadSessionServiceImpl(@Value("${image.uploads.spool-directory}") Path spoolDirectory,
+                                    @Value("${image.uploads.session-timeout}") Duration sessionTimeout,
+                                    @Value("${image.uploads.max-bytes}") long maxBytes,
+                                    @Value("${image.uploads.max-chunk-bytes}") long maxChunkBytes) {
+        this.spoolDirectory = spoolDirectory.toAbsolutePath();
+        this.sessionTimeout = sessionTimeout;
+        this.maxBytes = maxBytes;
+        this.maxChunkBytes = maxChunkBytes;
+        log.info("Spooling chunked uploads under: {}", this.spoolDirectory);
+    }
+
+    @Override
+    @SneakyThrows
+    public UploadSession createSession() {
+        String sessionId = UUID.randomUUID().toString();
+        log.info("Creating upload session: {}", sessionId);
+        Files.createDirectories(spoolDirectory);
+        SessionState state = new SessionState(Files.createFile(spoolDirectory.resolve(sessionId + SPOOL_FILE_SUFFIX)));
+        sessions.put(sessionId, state);
+        return state.snapshot(sessionId);
+    }
+
+    @Override
+    public UploadSession getSession(String sessionId) {
+        SessionState state = findState(sessionId);
+        state.lock.lock();
+        try {
+            return state.snapshot(sessionId);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public UploadSession appendChunk(String sessionId, int chunkIndex, InputStream chunk) {
+        log.info("Appending chunk {} to upload session: {}", chunkIndex, sessionId);
+        SessionState state = findState(sessionId);
+        state.lock.lock();
+        try {
+            if (state.committed) {
+                throw new IllegalArgumentException("Upload session already committed");
+            }
+            if (chunkIndex < state.receivedChunks) {
+                log.trace("Chunk {} already received, ignoring it", chunkIndex);
+                return state.snapshot(sessionId);
+            }
+            if (chunkIndex > state.receivedChunks) {
+                log.warn("Chunk {} out of order, expected chunk {}", chunkIndex, state.receivedChunks);
+                throw new IllegalArgumentException("Chunk out of order");
+            }
+            state.receivedBytes = append(state.file, state.receivedBytes, chunk);
+            state.receivedChunks++;
+            state.lastActivity = Instant.now();
+            log.trace("Chunk {} appended, {} bytes received", chunkIndex, state.receivedBytes);
+            return state.snapshot(sessionId);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    @Override
+    public <T> T commitSession(String sessionId, Function<IngestedImage, T> processor) {
+        log.info("Committing upload session: {}", sessionId);
+        SessionState state = findState(sessionId);
+        IngestedImage image;
+        state.lock.lock();
+        try {
+            checkNotProcessing(sessionId, state);
+            state.committed = true;
+            state.lastActivity = Instant.now();
+            image = ImageIngestUtil.ingest("upload-session-" + sessionId, new FileSystemResource(state.file), state.receivedBytes);
+            state.processing = true;
+        } finally {
+            state.lock.unlock();
+        }
+
+        // the spool file is read while the image is processed, so the lock is not held and the session is marked instead
+        boolean processed = false;
+        try {
+            T result = processor.apply(image);
+            processed = true;
+            return result;
+        } finally {
+            state.lock.lock();
+            try {
+                state.processing = false;
+                state.lastActivity = Instant.now();
+                if (processed && sessions.remove(sessionId, state)) {
+                    log.trace("Upload session committed: {}", sessionId);
+                    deleteSpoolFile(state.file);
+                }
+            } finally {
+                state.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void deleteSession(String sessionId) {
+        log.info("Deleting upload session: {}", sessionId);
+        SessionState state = findState(sessionId);
+        state.lock.lock();
+        try {
+            checkNotProcessing(sessionId, state);
+            if (!sessions.remove(sessionId, state)) {
+                throw new IllegalArgumentException("Upload session not found");
+            }
+            deleteSpoolFile(state.file);
+        } finally {
+            state.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the sessions without activity for the session timeout, and the spool files of the same age
+     * that belong to no session. Sessions whose image is being processed are kept.
+     */
+    @Scheduled(fixedDelayString = "${image.uploads.cleanup-interval}")
+    public void removeExpiredSessions() {
+        Instant cutoff = Instant.now().minus(sessionTimeout);
+        sessions.forEach((sessionId, state) -> {
+            // a session whose lock is held is in use, so it is not expired
+            if (!state.lock.tryLock()) {
+                return;
+            }
+            try {
+                if (!state.processing && state.lastActivity.isBefore(cutoff) && sessions.remove(sessionId, state)) {
+                    log.info("Upload session expired: {}", sessionId);
+                    deleteSpoolFile(state.file);
+                }
+            } finally {
+                state.lock.unlock();
+            }
+        });
+        removeOrphanedSpoolFiles(cutoff);
+    }
+
+    private static void checkNotProcessing(String sessionId, SessionState state) {
+        if (state.processing) {
+            log.warn("Upload session is being committed: {}", sessionId);
+            throw new IllegalArgumentException("Upload session is being committed");
+        }
+    }
+
+    private SessionState findState(String sessionId) {
+        SessionState state = sessions.get(sessionId);
+        if (state == null) {
+            log.warn("Upload session not found: {}", sessionId);
+            throw new IllegalArgumentException("Upload session not found");
+        }
+        return state;
+    }
+
+    /**
+     * Appends a chunk to a spool file at the given position. If the chunk cannot be read completely, it exceeds the
+     * chunk size limit, or the file would exceed the size limit, the file is truncated back to the position,
+     * so the chunk can be sent again.
+     *
+     * @param file     the spool file.
+     * @param position the number of bytes received before the chunk.
+     * @param chunk    the content of the chunk.
+     * @return the number of bytes received including the chunk.
+     * @throws IOException if the chunk cannot be read or written.
+     */
+    private long append(Path file, long position, InputStream chunk) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.position(position);
+            try {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                long size = position;
+                int count;
+                while ((count = chunk.read(buffer)) >= 0) {
+                    size += count;
+                    if (size - position > maxChunkBytes) {
+                        log.warn("Chunk exceeds limit of {} bytes", maxChunkBytes);
+                        throw new IllegalArgumentException("Chunk size exceeds limit");
+                    }
+                    if (size > maxBytes) {
+                        log.warn("Chunked upload exceeds limit of {} bytes", maxBytes);
+                        throw new IllegalArgumentException("Image size exceeds limit");
+                    }
+                    ByteBuffer data = ByteBuffer.wrap(buffer, 0, count);
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                }
+                return size;
+            } catch (IOException | RuntimeException e) {
+                channel.truncate(position);
+                throw e;
+            }
+        }
+    }
+
+    private void removeOrphanedSpoolFiles(Instant cutoff) {
+        if (!Files.isDirectory(spoolDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SPOOL_FILE_SUFFIX))
+                    .filter(file -> !sessions.containsKey(file.getFileName().toString().replace(SPOOL_FILE_SUFFIX, "")))
+                    .filter(file -> isModifiedBefore(file, cutoff))
+                    .forEach(file -> {
+                        log.info("Removing orphaned spool file: {}", file);
+                        deleteSpoolFile(file);
+                    });
+        } catch (IOException e) {
+            log.warn("Could not list spool directory: {}", spoolDirectory, e);
+        }
+    }
+
+    private static boolean isModifiedBefore(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteSpoolFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete spool file: {}", file, e);
+        }
+    }
+
+    /**
+     * Mutable state of a session, guarded by its own lock.
+     */
+    private final class SessionState {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Path file;
+        private int receivedChunks;
+        private long receivedBytes;
+        private boolean committed;
+        private boolean processing;
+        private Instant lastActivity = Instant.now();
+
+        private SessionState(Path file) {
+            this.file = file;
+        }
+
+        private UploadSession snapshot(String sessionId) {
+            return new UploadSession(sessionId, receivedChunks, receivedBytes, lastActivity.plus(sessionTimeout));
+        }
+    }
+}
\ No newline at end of file
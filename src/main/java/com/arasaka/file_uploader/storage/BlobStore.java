@@ -0,0 +1,62 @@
+package com.arasaka.file_uploader.storage;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Store for the encrypted content of images. Blobs are content-addressed: the key of a blob
+ * is derived from its bytes, so storing the same bytes twice yields the same key.
+ * Storing a blob that already exists refreshes its storage time.
+ */
+public interface BlobStore {
+
+    /**
+     * Stores a blob.
+     *
+     * @param data the bytes to store.
+     * @return the key under which the blob is stored.
+     */
+    String put(byte[] data);
+
+    /**
+     * Stores a blob written to a stream, without holding it in memory as a whole.
+     * If the writer fails, nothing is stored.
+     *
+     * @param writer the writer of the bytes to store.
+     * @return the key under which the blob is stored.
+     */
+    String write(BlobWriter writer);
+
+    /**
+     * Reads a blob.
+     *
+     * @param key the key of the blob.
+     * @return the bytes of the blob.
+     */
+    byte[] read(String key);
+
+    /**
+     * Opens a blob for reading as a stream, without loading it into memory as a whole.
+     *
+     * @param key the key of the blob.
+     * @return a stream of the bytes of the blob, to be closed by the caller.
+     */
+    InputStream openStream(String key);
+
+    /**
+     * Lists the keys of the blobs last stored before the given instant.
+     *
+     * @param storedBefore the instant the blobs were last stored before.
+     * @return a stream of the keys, to be closed by the caller.
+     */
+    Stream<String> keysStoredBefore(Instant storedBefore);
+
+    /**
+     * Deletes a blob, if it exists. A blob is shared by every image stored with the same content, so it may
+     * only be deleted once no image refers to it, as done by the BlobCleanupService.
+     *
+     * @param key the key of the blob.
+     */
+    void delete(String key);
+}
\ No newline at end of file
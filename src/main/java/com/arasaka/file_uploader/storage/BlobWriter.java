@@ -0,0 +1,19 @@
+package com.arasaka.file_uploader.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the content of a blob to the stream of a {@link BlobStore}, so the blob never has to be held in memory.
+ */
+@FunctionalInterface
+public interface BlobWriter {
+
+    /**
+     * Writes the content of the blob.
+     *
+     * @param out the stream to write the blob to. It is closed by the store, closing it here has no effect.
+     * @throws IOException if the content cannot be produced or written.
+     */
+    void writeTo(OutputStream out) throws IOException;
+}
\ No newline at end of file
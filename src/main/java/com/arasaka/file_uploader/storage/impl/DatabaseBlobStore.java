@@ -0,0 +1,128 @@
+package com.arasaka.file_uploader.storage.impl;
+
+import com.arasaka.file_uploader.domain.ImageDataEntity;
+import com.arasaka.file_uploader.repository.ImageDataRepository;
+import com.arasaka.file_uploader.storage.BlobStore;
+import com.arasaka.file_uploader.storage.BlobWriter;
+import com.arasaka.file_uploader.util.HashUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * Blob store keeping blobs in the database, next to the image metadata.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "image.storage.type", havingValue = "database")
+public class DatabaseBlobStore implements BlobStore {
+
+    private final ImageDataRepository imageDataRepository;
+
+    /**
+     * Stores a blob as a row keyed by the SHA-256 hash of its content.
+     *
+     * @param data the bytes to store.
+     * @return the key under which the blob is stored.
+     */
+    @Override
+    @Transactional
+    public String put(byte[] data) {
+        String key = HashUtil.sha256Hex(data);
+        Instant now = Instant.now();
+        if (imageDataRepository.updateStoredAt(key, now) > 0) {
+            log.trace("Blob already stored: {}", key);
+            return key;
+        }
+        log.info("Storing blob: {}", key);
+        imageDataRepository.save(ImageDataEntity.builder()
+                .blobKey(key)
+                .encryptedData(data)
+                .storedAt(now)
+                .build());
+        return key;
+    }
+
+    /**
+     * Stores a blob written to a stream as a row. The column is written in one go, so the blob is collected
+     * in memory first.
+     *
+     * @param writer the writer of the bytes to store.
+     * @return the key under which the blob is stored.
+     */
+    @Override
+    @Transactional
+    @SneakyThrows
+    public String write(BlobWriter writer) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writer.writeTo(data);
+        return put(data.toByteArray());
+    }
+
+    /**
+     * Reads a blob from its row.
+     *
+     * @param key the key of the blob.
+     * @return the bytes of the blob.
+     * @throws IllegalStateException if the blob does not exist.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public byte[] read(String key) {
+        log.info("Reading blob: {}", key);
+        return imageDataRepository.findById(key)
+                .map(ImageDataEntity::getEncryptedData)
+                .orElseThrow(() -> {
+                    log.error("Blob not found: {}", key);
+                    return new IllegalStateException("Blob not found");
+                });
+    }
+
+    /**
+     * Opens a blob for reading as a stream. The row is loaded as a whole, since the column is read in one go.
+     *
+     * @param key the key of the blob.
+     * @return a stream of the bytes of the blob.
+     * @throws IllegalStateException if the blob does not exist.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public InputStream openStream(String key) {
+        return new ByteArrayInputStream(read(key));
+    }
+
+    /**
+     * Lists the keys of the rows last stored before the given instant. The keys are loaded as a whole,
+     * so the stream does not hold a transaction open while it is consumed.
+     *
+     * @param storedBefore the instant the blobs were last stored before.
+     * @return a stream of the keys.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Stream<String> keysStoredBefore(Instant storedBefore) {
+        return imageDataRepository.findBlobKeysStoredBefore(storedBefore).stream();
+    }
+
+    /**
+     * Deletes the row of a blob, if it exists.
+     *
+     * @param key the key of the blob.
+     */
+    @Override
+    @Transactional
+    public void delete(String key) {
+        log.info("Deleting blob: {}", key);
+        imageDataRepository.deleteById(key);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,287 @@
+package com.arasaka.file_uploader.storage.impl;
+
+import com.arasaka.file_uploader.storage.BlobStore;
+import com.arasaka.file_uploader.storage.BlobWriter;
+import com.arasaka.file_uploader.util.HashUtil;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Blob store keeping blobs as files on the local file system.
+ * Files are sharded into two levels of directories by the first characters of their key, written to a
+ * temporary file and renamed into place, so a blob is either fully visible or not at all.
+ * Large blobs are read and streamed through a memory-mapped buffer, so their bytes come straight from the page cache.
+ * The last modification time of a blob file is its storage time.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "image.storage.type", havingValue = "filesystem", matchIfMissing = true)
+public class LocalFileSystemBlobStore implements BlobStore {
+
+    private static final int MAPPED_READ_THRESHOLD = 64 * 1024;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path rootDirectory;
+
+    /**
+     * Constructor for LocalFileSystemBlobStore.
+     *
+     * @param rootDirectory the directory under which the blobs are stored.
+     */
+    public LocalFileSystemBlobStore(@Value("${image.storage.root-directory}") Path rootDirectory) {
+        this.rootDirectory = rootDirectory.toAbsolutePath();
+        log.info("Storing blobs under: {}", this.rootDirectory);
+    }
+
+    /**
+     * Stores a blob as a file named after the SHA-256 hash of its content.
+     *
+     * @param data the bytes to store.
+     * @return the key under which the blob is stored.
+     */
+    @Override
+    @SneakyThrows
+    public String put(byte[] data) {
+        String key = HashUtil.sha256Hex(data);
+        Path target = resolve(key);
+        if (Files.exists(target)) {
+            log.trace("Blob already stored: {}", key);
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return key;
+        }
+
+        log.info("Storing blob: {}", key);
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        log.trace("Blob stored successfully: {}", key);
+        return key;
+    }
+
+    /**
+     * Stores a blob written to a stream as a file named after the SHA-256 hash of its content. The blob is written
+     * to a temporary file while it is hashed, and renamed into place once its key is known.
+     *
+     * @param writer the writer of the bytes to store.
+     * @return the key under which the blob is stored.
+     */
+    @Override
+    @SneakyThrows
+    public String write(BlobWriter writer) {
+        Files.createDirectories(rootDirectory);
+        Path temporary = Files.createTempFile(rootDirectory, "blob", ".tmp");
+        try {
+            MessageDigest digest = HashUtil.newSha256Digest();
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                OutputStream out = new BufferedOutputStream(new DigestOutputStream(Channels.newOutputStream(channel), digest), WRITE_BUFFER_SIZE);
+                writer.writeTo(new NonClosingOutputStream(out));
+                out.flush();
+                channel.force(true);
+            }
+            String key = HashUtil.toHex(digest);
+            Path target = resolve(key);
+            if (Files.exists(target)) {
+                log.trace("Blob already stored: {}", key);
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return key;
+            }
+            log.info("Storing blob: {}", key);
+            Files.createDirectories(target.getParent());
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            log.trace("Blob stored successfully: {}", key);
+            return key;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a blob from its file.
+     *
+     * @param key the key of the blob.
+     * @return the bytes of the blob.
+     */
+    @Override
+    @SneakyThrows
+    public byte[] read(String key) {
+        log.info("Reading blob: {}", key);
+        try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            long size = channel.size();
+            byte[] data = new byte[Math.toIntExact(size)];
+            if (size >= MAPPED_READ_THRESHOLD) {
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size).get(data);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    log.trace("Read {} of {} bytes", buffer.position(), size);
+                }
+            }
+            log.trace("Blob read successfully: {}", key);
+            return data;
+        }
+    }
+
+    /**
+     * Opens the file of a blob for reading as a stream. Large blobs are streamed from a memory-mapped buffer,
+     * which stays valid after the file is closed, small ones from the file itself.
+     *
+     * @param key the key of the blob.
+     * @return a stream of the bytes of the blob, to be closed by the caller.
+     */
+    @Override
+    @SneakyThrows
+    public InputStream openStream(String key) {
+        log.info("Opening blob stream: {}", key);
+        Path file = resolve(key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAPPED_READ_THRESHOLD) {
+                return new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+        }
+        return Files.newInputStream(file);
+    }
+
+    /**
+     * Lists the keys of the blob files last modified before the given instant. Temporary files are skipped.
+     *
+     * @param storedBefore the instant the blobs were last stored before.
+     * @return a stream of the keys, walking the directories lazily, to be closed by the caller.
+     */
+    @Override
+    @SneakyThrows
+    public Stream<String> keysStoredBefore(Instant storedBefore) {
+        if (!Files.isDirectory(rootDirectory)) {
+            return Stream.empty();
+        }
+        FileTime cutoff = FileTime.from(storedBefore);
+        return Files.find(rootDirectory, 3, (file, attributes) -> attributes.isRegularFile()
+                        && KEY_PATTERN.matcher(file.getFileName().toString()).matches()
+                        && attributes.lastModifiedTime().compareTo(cutoff) < 0)
+                .map(file -> file.getFileName().toString());
+    }
+
+    /**
+     * Deletes the file of a blob, if it exists.
+     *
+     * @param key the key of the blob.
+     */
+    @Override
+    @SneakyThrows
+    public void delete(String key) {
+        log.info("Deleting blob: {}", key);
+        Files.deleteIfExists(resolve(key));
+    }
+
+    /**
+     * Resolves the path of a blob file from its key.
+     *
+     * @param key the key of the blob.
+     * @return the path of the blob file.
+     * @throws IllegalArgumentException if the key is not a valid blob key.
+     */
+    Path resolve(String key) {
+        if (!KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key");
+        }
+        return rootDirectory.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    /**
+     * Input stream over a memory-mapped blob file.
+     */
+    private static final class MappedInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private MappedInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Output stream passed to a {@link BlobWriter}, keeping the file open when the writer closes it.
+     */
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
\ No newline at end of file
@@ -2,22 +2,52 @@ package com.arasaka.file_uploader.type;
 
 import lombok.Getter;
 
+import java.util.Arrays;
+import java.util.Optional;
+
 /**
  * Enum representing valid image types.
  */
 @Getter
 public enum ImageValidType {
-    PNG("image/png"),
-    JPEG("image/jpeg");
+    PNG("image/png", "png"),
+    JPEG("image/jpeg", "jpeg");
 
     private final String type;
+    private final String formatName;
 
     /**
      * Constructor for ImageValidType.
      *
-     * @param type the MIME type of the image.
+     * @param type       the MIME type of the image.
+     * @param formatName the ImageIO format name of the image, also used to request the format on upload.
      */
-    ImageValidType(String type) {
+    ImageValidType(String type, String formatName) {
         this.type = type;
+        this.formatName = formatName;
+    }
+
+    /**
+     * Finds the valid image type of a MIME type.
+     *
+     * @param type the MIME type of the image.
+     * @return the valid image type, or empty if the MIME type is not a valid image type.
+     */
+    public static Optional<ImageValidType> fromType(String type) {
+        return Arrays.stream(values())
+                .filter(validType -> validType.type.equals(type))
+                .findFirst();
+    }
+
+    /**
+     * Finds the valid image type of a format name.
+     *
+     * @param formatName the format name of the image.
+     * @return the valid image type, or empty if the format name is not a valid image type.
+     */
+    public static Optional<ImageValidType> fromFormatName(String formatName) {
+        return Arrays.stream(values())
+                .filter(validType -> validType.formatName.equals(formatName))
+                .findFirst();
     }
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.arasaka.file_uploader.type;
+
+/**
+ * Enum representing the states of an asynchronous upload job.
+ */
+public enum UploadJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
\ No newline at end of file
@@ -2,28 +2,41 @@ package com.arasaka.file_uploader.util;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
+import org.apache.tika.mime.MimeTypeException;
 import org.apache.tika.mime.MimeTypes;
 
 import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utility class for handling MIME type and file extension operations using Apache Tika.
+ * The detector and the MIME type registry are created once and shared, both are thread-safe.
  */
 @Slf4j
 public class ApacheUtil {
 
+    private static final Tika TIKA = new Tika();
+    private static final MimeTypes MIME_TYPES = MimeTypes.getDefaultMimeTypes();
+    private static final Map<String, String> EXTENSIONS = new ConcurrentHashMap<>();
+
     /**
-     * Retrieves the file extension for a given MIME type.
+     * Retrieves the file extension for a given MIME type. Extensions are cached per MIME type,
+     * as the same few types are looked up on every download.
      *
      * @param mimeType the MIME type for which to get the file extension.
      * @return the file extension corresponding to the given MIME type.
      * @throws Exception if an error occurs while retrieving the file extension.
      */
     public static String getExtensionFromMimeType(String mimeType) throws Exception {
+        String cached = EXTENSIONS.get(mimeType);
+        if (cached != null) {
+            return cached;
+        }
         log.info("Getting extension for MIME type: {}", mimeType);
-        MimeTypes allTypes = MimeTypes.getDefaultMimeTypes();
         try {
-            String extension = allTypes.forName(mimeType).getExtension();
+            String extension = lookupExtension(mimeType);
+            EXTENSIONS.putIfAbsent(mimeType, extension);
             log.trace("Extension found: {}", extension);
             return extension;
         } catch (Exception e) {
@@ -41,9 +54,8 @@ public class ApacheUtil {
      */
     public static String getMimeTypeFromInputStream(InputStream inputStream) throws Exception {
         log.info("Detecting MIME type from InputStream");
-        Tika tika = new Tika();
         try {
-            String mimeType = tika.detect(inputStream);
+            String mimeType = MetricsUtil.time(MetricsUtil.DETECT_MIME, () -> TIKA.detect(inputStream));
             log.trace("MIME type detected: {}", mimeType);
             return mimeType;
         } catch (Exception e) {
@@ -51,4 +63,20 @@ public class ApacheUtil {
             throw e;
         }
     }
+
+    /**
+     * Detects the MIME type from the start of a file already in memory, without copying it.
+     *
+     * @param content the bytes of the file.
+     * @return the detected MIME type as a String.
+     */
+    public static String getMimeTypeFromBytes(byte[] content) {
+        String mimeType = MetricsUtil.time(MetricsUtil.DETECT_MIME, () -> TIKA.detect(content));
+        log.trace("MIME type detected: {}", mimeType);
+        return mimeType;
+    }
+
+    private static String lookupExtension(String mimeType) throws MimeTypeException {
+        return MIME_TYPES.forName(mimeType).getExtension();
+    }
 }
\ No newline at end of file
@@ -1,32 +1,44 @@
 package com.arasaka.file_uploader.util;
 
+import com.arasaka.file_uploader.crypto.ChunkedEncryption;
+import com.arasaka.file_uploader.crypto.ChunkedEncryptionFormat;
+import com.arasaka.file_uploader.crypto.CipherPool;
+import com.arasaka.file_uploader.crypto.DecryptingInputStream;
+import com.arasaka.file_uploader.crypto.EncryptingOutputStream;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.security.GeneralSecurityException;
 
 /**
  * Utility class for file encryption and decryption using AES algorithm.
+ * Files are encrypted in the chunked AES-GCM format of {@link ChunkedEncryptionFormat}. Files encrypted
+ * in the legacy single block AES/ECB format, which have no header, are still decrypted transparently.
  */
 @Slf4j
 public class FileEncryptionUtil {
 
-    private static final String ALGORITHM = "AES";
+    private static final String LEGACY_TRANSFORMATION = "AES/ECB/PKCS5Padding";
 
     /**
      * Encrypts a file represented as a byte array.
      *
-     * @param file the byte array representing the file to be encrypted.
+     * @param file      the byte array representing the file to be encrypted.
+     * @param secretKey the AES secret key to encrypt with.
      * @return the encrypted byte array.
      * @throws Exception if an error occurs during encryption.
      */
-    public static byte[] encryptFileToBytes(byte[] file) throws Exception {
+    public static byte[] encryptFileToBytes(byte[] file, SecretKey secretKey) throws Exception {
         log.info("Starting file encryption");
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, KeyGeneratorUtil.getOrGenerateSecretKey());
-
         try {
-            byte[] encryptedData = cipher.doFinal(file);
+            byte[] encryptedData = MetricsUtil.time(MetricsUtil.ENCRYPT, () -> ChunkedEncryption.encrypt(file, secretKey));
+            MetricsUtil.recordBytesIn(MetricsUtil.ENCRYPT, file.length);
             log.trace("File encryption successful");
             return encryptedData;
         } catch (Exception e) {
@@ -36,20 +48,20 @@ public class FileEncryptionUtil {
     }
 
     /**
-     * Decrypts a file represented as an encrypted byte array.
+     * Decrypts a file represented as an encrypted byte array, in either the chunked or the legacy format.
      *
      * @param encryptedData the byte array representing the encrypted file.
+     * @param secretKey     the AES secret key to decrypt with.
      * @return the decrypted byte array.
      * @throws Exception if an error occurs during decryption.
      */
-    public static byte[] decryptFileFromBytes(byte[] encryptedData) throws Exception {
+    public static byte[] decryptFileFromBytes(byte[] encryptedData, SecretKey secretKey) throws Exception {
         log.info("Starting file decryption");
-        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
-        SecretKey secretKey = KeyGeneratorUtil.getOrGenerateSecretKey();
-        cipher.init(Cipher.DECRYPT_MODE, secretKey);
-
         try {
-            byte[] decryptedData = cipher.doFinal(encryptedData);
+            byte[] decryptedData = MetricsUtil.time(MetricsUtil.DECRYPT, () -> ChunkedEncryptionFormat.hasHeader(encryptedData, encryptedData.length)
+                    ? ChunkedEncryption.decrypt(encryptedData, secretKey)
+                    : decryptLegacy(encryptedData, secretKey));
+            MetricsUtil.recordBytesOut(MetricsUtil.DECRYPT, decryptedData.length);
             log.trace("File decryption successful");
             return decryptedData;
         } catch (Exception e) {
@@ -57,4 +69,115 @@ public class FileEncryptionUtil {
             throw e;
         }
     }
+
+    /**
+     * Wraps an output stream so everything written to it is encrypted in the chunked format.
+     * The returned stream must be closed to seal the last chunk.
+     *
+     * @param target    the stream the encrypted file is written to.
+     * @param secretKey the AES secret key to encrypt with.
+     * @return the encrypting output stream.
+     * @throws IOException if the header cannot be written.
+     */
+    public static OutputStream encryptingStream(OutputStream target, SecretKey secretKey) throws IOException {
+        return new EncryptingOutputStream(target, secretKey);
+    }
+
+    /**
+     * Wraps an input stream of an encrypted file, in either the chunked or the legacy format,
+     * so reading from it returns the decrypted file.
+     *
+     * @param source    the stream the encrypted file is read from.
+     * @param secretKey the AES secret key to decrypt with.
+     * @return the decrypting input stream.
+     * @throws IOException if the start of the file cannot be read.
+     */
+    public static InputStream decryptingStream(InputStream source, SecretKey secretKey) throws IOException {
+        PushbackInputStream pushbackStream = new PushbackInputStream(source, ChunkedEncryptionFormat.HEADER_LENGTH);
+        byte[] start = pushbackStream.readNBytes(ChunkedEncryptionFormat.HEADER_LENGTH);
+        pushbackStream.unread(start);
+        if (ChunkedEncryptionFormat.hasHeader(start, start.length)) {
+            return new DecryptingInputStream(pushbackStream, secretKey);
+        }
+        log.trace("No header found, decrypting legacy format");
+        return new LegacyDecryptingInputStream(pushbackStream, secretKey);
+    }
+
+    /**
+     * Decrypts a file encrypted in the legacy AES/ECB format.
+     *
+     * @param encryptedData the byte array representing the encrypted file.
+     * @param secretKey     the AES secret key to decrypt with.
+     * @return the decrypted byte array.
+     * @throws GeneralSecurityException if an error occurs during decryption.
+     */
+    private static byte[] decryptLegacy(byte[] encryptedData, SecretKey secretKey) throws GeneralSecurityException {
+        Cipher cipher = CipherPool.borrow(LEGACY_TRANSFORMATION);
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, secretKey);
+            return cipher.doFinal(encryptedData);
+        } finally {
+            CipherPool.release(cipher);
+        }
+    }
+
+    /**
+     * Input stream decrypting a file in the legacy AES/ECB format, releasing its Cipher on close.
+     */
+    private static final class LegacyDecryptingInputStream extends CipherInputStream {
+
+        private final Cipher cipher;
+        private boolean closed;
+
+        private LegacyDecryptingInputStream(InputStream source, SecretKey secretKey) throws IOException {
+            this(source, initLegacyCipher(secretKey));
+        }
+
+        private LegacyDecryptingInputStream(InputStream source, Cipher cipher) {
+            super(source, cipher);
+            this.cipher = cipher;
+        }
+
+        /**
+         * Skips by reading through the decrypted bytes, since the skip of CipherInputStream
+         * only skips what it has already decrypted.
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] discarded = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int count = read(discarded, 0, (int) Math.min(n - skipped, discarded.length));
+                if (count < 0) {
+                    break;
+                }
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                super.close();
+            } finally {
+                CipherPool.release(cipher);
+            }
+        }
+
+        private static Cipher initLegacyCipher(SecretKey secretKey) throws IOException {
+            Cipher cipher = CipherPool.borrow(LEGACY_TRANSFORMATION);
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, secretKey);
+                return cipher;
+            } catch (GeneralSecurityException e) {
+                CipherPool.release(cipher);
+                throw new IOException("Error initializing legacy cipher", e);
+            }
+        }
+    }
 }
\ No newline at end of file
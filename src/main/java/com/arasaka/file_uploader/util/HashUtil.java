@@ -0,0 +1,49 @@
+package com.arasaka.file_uploader.util;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * Utility class for computing content hashes.
+ */
+@Slf4j
+public class HashUtil {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    /**
+     * Computes the SHA-256 hash of a byte array.
+     *
+     * @param data the byte array to hash.
+     * @return the hash as a lowercase hexadecimal string.
+     */
+    @SneakyThrows
+    public static String sha256Hex(byte[] data) {
+        log.trace("Computing SHA-256 hash of {} bytes", data.length);
+        MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+        return HexFormat.of().formatHex(digest.digest(data));
+    }
+
+    /**
+     * Creates a SHA-256 digest, for hashing content while it is streamed.
+     *
+     * @return a new SHA-256 digest.
+     */
+    @SneakyThrows
+    public static MessageDigest newSha256Digest() {
+        return MessageDigest.getInstance(ALGORITHM);
+    }
+
+    /**
+     * Completes a digest and formats its hash.
+     *
+     * @param digest the digest the content was fed into.
+     * @return the hash as a lowercase hexadecimal string.
+     */
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.arasaka.file_uploader.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.WritableRaster;
+
+/**
+ * Utility class for reading the pixel buffers of decoded images directly, instead of a pixel at a time.
+ */
+public class ImageBufferUtil {
+
+    /**
+     * Returns the pixel buffer of an image whose bytes are interleaved row after row without padding,
+     * like those of the BGR and ABGR images decoded by ImageIO.
+     *
+     * @param image the image.
+     * @return the pixel buffer, or null if the image is laid out otherwise.
+     */
+    public static byte[] interleavedBytes(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferByte buffer) || !(raster.getSampleModel() instanceof ComponentSampleModel sampleModel)
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0 || buffer.getNumBanks() != 1
+                || sampleModel.getScanlineStride() != image.getWidth() * sampleModel.getPixelStride()) {
+            return null;
+        }
+        return buffer.getData();
+    }
+}
\ No newline at end of file
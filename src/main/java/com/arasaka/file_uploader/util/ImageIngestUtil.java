@@ -0,0 +1,107 @@
+package com.arasaka.file_uploader.util;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Utility class for reading uploaded images once and detecting their type, dimensions and content hash.
+ * Everything later in the upload pipeline works on the returned {@link IngestedImage},
+ * so an upload is neither read nor detected twice.
+ */
+@Slf4j
+public class ImageIngestUtil {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Ingests a list of uploaded images.
+     *
+     * @param images the uploaded images.
+     * @return the ingested images, in the order of the uploaded images.
+     */
+    public static List<IngestedImage> ingest(List<MultipartFile> images) {
+        log.info("Ingesting {} images", images.size());
+        return images.stream()
+                .map(ImageIngestUtil::ingest)
+                .toList();
+    }
+
+    /**
+     * Streams an uploaded image once, detecting its MIME type and reading its dimensions from the start of the stream
+     * while hashing all of it. Only the start of the image is buffered, the content itself stays where the multipart
+     * resolver put it, in memory for small parts and on disk for large ones.
+     *
+     * @param image the uploaded image.
+     * @return the ingested image, streaming its content from the uploaded image.
+     */
+    public static IngestedImage ingest(MultipartFile image) {
+        return ingest(image.getOriginalFilename(), image, image.getSize());
+    }
+
+    /**
+     * Streams an image once like {@link #ingest(MultipartFile)}, whatever its content comes from.
+     *
+     * @param originalFilename the name of the file on the client, used for logging only.
+     * @param content          the source of the image, like a file it was assembled in.
+     * @param size             the size of the image in bytes.
+     * @return the ingested image, streaming its content from the given source.
+     */
+    @SneakyThrows
+    public static IngestedImage ingest(String originalFilename, InputStreamSource content, long size) {
+        MetricsUtil.recordBytesIn(MetricsUtil.INGEST, size);
+        return MetricsUtil.time(MetricsUtil.INGEST, () -> readOnce(originalFilename, content, size));
+    }
+
+    private static IngestedImage readOnce(String originalFilename, InputStreamSource content, long size) throws Exception {
+        MessageDigest digest = HashUtil.newSha256Digest();
+        try (InputStream input = new BufferedInputStream(new DigestInputStream(content.getInputStream(), digest), BUFFER_SIZE)) {
+            String mimeType = ApacheUtil.getMimeTypeFromInputStream(input);
+            int[] dimensions = readDimensions(input);
+            input.transferTo(OutputStream.nullOutputStream());
+            log.trace("Ingested image {}: {} {}x{}", originalFilename, mimeType, dimensions[0], dimensions[1]);
+            return new IngestedImage(originalFilename, content, size, mimeType, dimensions[0], dimensions[1], HashUtil.toHex(digest));
+        }
+    }
+
+    /**
+     * Reads the dimensions of an image from its header, without decoding the pixels.
+     * Only the header is read from the stream, which is left open.
+     *
+     * @param content the stream of the image.
+     * @return the width and height of the image, or 0 and 0 if no reader can read the header.
+     */
+    static int[] readDimensions(InputStream content) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(content)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return new int[]{0, 0};
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } catch (IOException e) {
+                log.warn("Unreadable image header", e);
+                return new int[]{0, 0};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.arasaka.file_uploader.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Utility class for recording metrics of the stages of the image pipeline.
+ * Meters are registered in the global registry of Micrometer, which Spring Boot backs with its own registry,
+ * so the static utilities of the pipeline are measured just like the services and all stages are exported
+ * through the Prometheus endpoint of the actuator. Timers and distribution summaries publish percentile histograms,
+ * so percentiles can be aggregated across instances.
+ */
+public class MetricsUtil {
+
+    /**
+     * Timer of every execution of a stage, tagged with the stage.
+     */
+    public static final String STAGE_DURATION = "image.pipeline.stage.duration";
+
+    /**
+     * Counter of the failed executions of a stage, tagged with the stage.
+     */
+    public static final String STAGE_FAILURES = "image.pipeline.stage.failures";
+
+    /**
+     * Distribution summary of the bytes read by a stage, tagged with the stage.
+     */
+    public static final String BYTES_IN = "image.pipeline.bytes.in";
+
+    /**
+     * Distribution summary of the bytes written by a stage, tagged with the stage.
+     */
+    public static final String BYTES_OUT = "image.pipeline.bytes.out";
+
+    /**
+     * Timer of the encoding of an image, tagged with the format and the encoder settings.
+     */
+    public static final String ENCODE_DURATION = "image.encode.duration";
+
+    /**
+     * Distribution summary of the size of the encoded images, tagged with the format and the encoder settings.
+     */
+    public static final String ENCODED_BYTES = "image.encode.bytes";
+
+    public static final String VALIDATE = "validate";
+    public static final String DETECT_MIME = "detect_mime";
+    public static final String INGEST = "ingest";
+    public static final String RESIZE = "resize";
+    public static final String ENCRYPT = "encrypt";
+    public static final String DECRYPT = "decrypt";
+    public static final String SAVE = "save";
+    public static final String FIND = "find";
+    public static final String ZIP = "zip";
+
+    private static final String STAGE_TAG = "stage";
+    private static final String FORMAT_TAG = "format";
+    private static final String SETTINGS_TAG = "settings";
+
+    // the histogram buckets span from the MIME detection of a small image to the upload of the largest one
+    private static final Duration MIN_EXPECTED_DURATION = Duration.ofNanos(10_000);
+    private static final Duration MAX_EXPECTED_DURATION = Duration.ofMinutes(1);
+    private static final double MIN_EXPECTED_BYTES = 1024;
+    private static final double MAX_EXPECTED_BYTES = 1024 * 1024 * 1024;
+
+    /**
+     * Runs a stage and records its duration, counting it as failed if it throws.
+     *
+     * @param stage the name of the stage.
+     * @param call  the stage to run.
+     * @param <T>   the type of the result of the stage.
+     * @param <E>   the type of the exception the stage may throw.
+     * @return the result of the stage.
+     * @throws E if the stage throws.
+     */
+    public static <T, E extends Exception> T time(String stage, StageCall<T, E> call) throws E {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (Exception | Error e) {
+            recordFailure(stage);
+            throw e;
+        } finally {
+            recordDuration(stage, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the duration of an execution of a stage measured by the caller.
+     *
+     * @param stage the name of the stage.
+     * @param nanos the duration in nanoseconds.
+     */
+    public static void recordDuration(String stage, long nanos) {
+        Timer.builder(STAGE_DURATION)
+                .description("Duration of a stage of the image pipeline")
+                .tag(STAGE_TAG, stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_DURATION)
+                .maximumExpectedValue(MAX_EXPECTED_DURATION)
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a failed execution of a stage.
+     *
+     * @param stage the name of the stage.
+     */
+    public static void recordFailure(String stage) {
+        Counter.builder(STAGE_FAILURES)
+                .description("Failed executions of a stage of the image pipeline")
+                .tag(STAGE_TAG, stage)
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+
+    /**
+     * Records the number of bytes a stage read.
+     *
+     * @param stage the name of the stage.
+     * @param bytes the number of bytes read.
+     */
+    public static void recordBytesIn(String stage, long bytes) {
+        bytesSummary(BYTES_IN, "Bytes read by a stage of the image pipeline", stage).record(bytes);
+    }
+
+    /**
+     * Records the number of bytes a stage wrote.
+     *
+     * @param stage the name of the stage.
+     * @param bytes the number of bytes written.
+     */
+    public static void recordBytesOut(String stage, long bytes) {
+        bytesSummary(BYTES_OUT, "Bytes written by a stage of the image pipeline", stage).record(bytes);
+    }
+
+    /**
+     * Records the encoding of an image: its duration and the size of the encoded image.
+     *
+     * @param format   the name of the format the image was encoded in.
+     * @param settings the settings of the encoder, e.g. the quality.
+     * @param nanos    the duration of the encoding in nanoseconds.
+     * @param bytes    the size of the encoded image in bytes.
+     */
+    public static void recordEncode(String format, String settings, long nanos, long bytes) {
+        Timer.builder(ENCODE_DURATION)
+                .description("Duration of encoding an image")
+                .tag(FORMAT_TAG, format)
+                .tag(SETTINGS_TAG, settings)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_DURATION)
+                .maximumExpectedValue(MAX_EXPECTED_DURATION)
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(ENCODED_BYTES)
+                .description("Size of an encoded image")
+                .baseUnit("bytes")
+                .tag(FORMAT_TAG, format)
+                .tag(SETTINGS_TAG, settings)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_BYTES)
+                .maximumExpectedValue(MAX_EXPECTED_BYTES)
+                .register(Metrics.globalRegistry)
+                .record(bytes);
+    }
+
+    private static DistributionSummary bytesSummary(String name, String description, String stage) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit("bytes")
+                .tag(STAGE_TAG, stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED_BYTES)
+                .maximumExpectedValue(MAX_EXPECTED_BYTES)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * A stage of the image pipeline returning a result.
+     *
+     * @param <T> the type of the result of the stage.
+     * @param <E> the type of the exception the stage may throw.
+     */
+    @FunctionalInterface
+    public interface StageCall<T, E extends Exception> {
+
+        T call() throws E;
+    }
+}
\ No newline at end of file
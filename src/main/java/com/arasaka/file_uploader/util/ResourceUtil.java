@@ -3,15 +3,22 @@ package com.arasaka.file_uploader.util;
 import com.arasaka.file_uploader.domain.ImageEntity;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.AbstractResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.ByteArrayOutputStream;
-import java.util.List;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.ZoneId;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -23,58 +30,228 @@ public class ResourceUtil {
 
     /**
      * Converts an ImageEntity to a ResponseEntity containing the decrypted image as a resource.
+     * The content is only opened when the body is written, and the response carries an ETag and a
+     * Last-Modified header, so conditional requests are answered with 304 Not Modified without reading
+     * the content at all, and range requests are answered with 206 Partial Content, skipping to the range.
      *
-     * @param imageEntity the ImageEntity to convert.
+     * @param imageEntity   the ImageEntity to convert.
+     * @param contentReader the function opening the decrypted content of an ImageEntity as a stream.
      * @return a ResponseEntity containing the decrypted image as a resource.
      */
-    @SneakyThrows
-    public static ResponseEntity<Resource> ImageEntityToResponseEntity(ImageEntity imageEntity) {
+    public static ResponseEntity<Resource> ImageEntityToResponseEntity(ImageEntity imageEntity, Function<ImageEntity, InputStream> contentReader) {
         log.info("Converting ImageEntity to ResponseEntity for image: {}", imageEntity.getFileName());
 
-        ByteArrayResource resource = new ByteArrayResource(FileEncryptionUtil.decryptFileFromBytes(imageEntity.getEncryptedData()));
+        Resource resource = new ImageContentResource(imageEntity, contentReader);
+        HttpHeaders headers = imageHeaders(imageEntity, eTag(imageEntity));
+
+        log.trace("ImageEntity converted to ResponseEntity successfully");
+        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Converts a variant of an image to a ResponseEntity. The variant is only rendered when the body is written,
+     * so conditional requests for a variant the client already holds are answered with 304 Not Modified
+     * without rendering it, and range requests are answered with 206 Partial Content.
+     *
+     * @param imageEntity the ImageEntity the variant is rendered from.
+     * @param width       the width of the variant.
+     * @param height      the height of the variant.
+     * @param renderer    the supplier of the rendered variant.
+     * @return a ResponseEntity containing the variant as a resource.
+     */
+    public static ResponseEntity<Resource> ImageVariantToResponseEntity(ImageEntity imageEntity, int width, int height, Supplier<byte[]> renderer) {
+        log.info("Converting variant {}x{} of image {} to ResponseEntity", width, height, imageEntity.getFileName());
+
+        Resource resource = new RenderedVariantResource(imageEntity, renderer);
+        HttpHeaders headers = imageHeaders(imageEntity, variantETag(imageEntity, width, height));
 
+        log.trace("Variant converted to ResponseEntity successfully");
+        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Builds the headers of an image download.
+     *
+     * @param imageEntity the ImageEntity being downloaded.
+     * @param eTag        the quoted ETag of the downloaded content.
+     * @return the headers of the download.
+     */
+    @SneakyThrows
+    private static HttpHeaders imageHeaders(ImageEntity imageEntity, String eTag) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType(imageEntity.getFileType()));
-        headers.setContentLength(imageEntity.getFileSize());
         headers.setContentDispositionFormData("attachment", imageEntity.getFileName() + ApacheUtil.getExtensionFromMimeType(imageEntity.getFileType()));
+        headers.setETag(eTag);
+        if (imageEntity.getUpdatedAt() != null) {
+            headers.setLastModified(imageEntity.getUpdatedAt().atZone(ZoneId.systemDefault()));
+        }
+        return headers;
+    }
 
-        log.trace("ImageEntity converted to ResponseEntity successfully");
-        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+    /**
+     * Builds a strong ETag for an image. The blob key is derived from the stored bytes,
+     * so it changes whenever the content of the image changes.
+     *
+     * @param imageEntity the ImageEntity to build the ETag for.
+     * @return the quoted ETag of the image.
+     */
+    static String eTag(ImageEntity imageEntity) {
+        return "\"" + imageEntity.getBlobKey() + "\"";
+    }
+
+    /**
+     * Builds a strong ETag for a variant of an image, from the blob key of the image the variant is rendered from.
+     *
+     * @param imageEntity the ImageEntity the variant is rendered from.
+     * @param width       the width of the variant.
+     * @param height      the height of the variant.
+     * @return the quoted ETag of the variant.
+     */
+    static String variantETag(ImageEntity imageEntity, int width, int height) {
+        String sourceKey = imageEntity.getOriginalBlobKey() != null ? imageEntity.getOriginalBlobKey() : imageEntity.getBlobKey();
+        return "\"" + sourceKey + "-" + width + "x" + height + "\"";
+    }
+
+    /**
+     * Converts a source of ImageEntities to a ResponseEntity that streams the images as a ZIP file.
+     * The source is only invoked once the response body is written, and the content of every image
+     * is streamed to the response as the source hands it over, so neither the images nor
+     * the archive are ever held in memory as a whole.
+     *
+     * @param imageSource   the source handing every ImageEntity to the given consumer.
+     * @param contentReader the function opening the decrypted content of an ImageEntity as a stream.
+     * @return a ResponseEntity streaming the images in a ZIP file.
+     */
+    public static ResponseEntity<StreamingResponseBody> ImagesInZipToResponseEntity(Consumer<Consumer<ImageEntity>> imageSource,
+                                                                                    Function<ImageEntity, InputStream> contentReader) {
+        log.info("Converting ImageEntity source to streaming ResponseEntity with ZIP file");
+
+        StreamingResponseBody body = outputStream -> writeImagesToZip(imageSource, contentReader, outputStream);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "images.zip");
+
+        log.trace("ImageEntity source converted to streaming ResponseEntity with ZIP file successfully");
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 
     /**
-     * Converts a list of ImageEntities to a ResponseEntity containing the images in a ZIP file.
+     * Writes the images of the given source as ZIP entries to the output stream, one image at a time.
+     * The output stream itself is left open for the servlet container to close.
      *
-     * @param imageEntities the list of ImageEntities to convert.
-     * @return a ResponseEntity containing the images in a ZIP file.
+     * @param imageSource   the source handing every ImageEntity to the given consumer.
+     * @param contentReader the function opening the decrypted content of an ImageEntity as a stream.
+     * @param outputStream  the stream the ZIP file is written to.
      */
     @SneakyThrows
-    public static ResponseEntity<Resource> ImagesInZipToResponseEntity(List<ImageEntity> imageEntities) {
-        log.info("Converting list of ImageEntities to ResponseEntity with ZIP file");
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-        try (ZipOutputStream zos = new ZipOutputStream(baos)) {
-            for (ImageEntity imageEntity : imageEntities) {
-                log.trace("Adding image to ZIP: {}", imageEntity.getFileName());
-                ZipEntry zipEntry = new ZipEntry(imageEntity.getFileName() + ApacheUtil.getExtensionFromMimeType(imageEntity.getFileType()));
-                zos.putNextEntry(zipEntry);
-                zos.write(FileEncryptionUtil.decryptFileFromBytes(imageEntity.getEncryptedData()));
-                zos.closeEntry();
-            }
+    static void writeImagesToZip(Consumer<Consumer<ImageEntity>> imageSource, Function<ImageEntity, InputStream> contentReader,
+                                 OutputStream outputStream) {
+        log.info("Writing images to ZIP stream");
+
+        ZipOutputStream zos = new ZipOutputStream(outputStream);
+        // JPEG and PNG payloads are already compressed, deflating them again only costs CPU
+        zos.setLevel(Deflater.NO_COMPRESSION);
+        long[] contentBytes = new long[1];
+        try {
+            MetricsUtil.time(MetricsUtil.ZIP, () -> {
+                imageSource.accept(imageEntity -> contentBytes[0] += writeZipEntry(imageEntity, contentReader.apply(imageEntity), zos));
+                zos.finish();
+                return null;
+            });
         } catch (Exception e) {
             log.error("Error while creating ZIP file", e);
             throw e;
         }
+        MetricsUtil.recordBytesOut(MetricsUtil.ZIP, contentBytes[0]);
+        log.trace("ZIP stream written successfully");
+    }
 
-        ByteArrayResource resource = new ByteArrayResource(baos.toByteArray());
+    /**
+     * Writes a single image as an entry of the ZIP stream.
+     *
+     * @param imageEntity the ImageEntity to write.
+     * @param content     the stream of the decrypted content of the image, closed once written.
+     * @param zos         the ZIP stream to write to.
+     * @return the number of bytes of the image written.
+     */
+    @SneakyThrows
+    private static long writeZipEntry(ImageEntity imageEntity, InputStream content, ZipOutputStream zos) {
+        log.trace("Adding image to ZIP: {}", imageEntity.getFileName());
+        ZipEntry zipEntry = new ZipEntry(imageEntity.getFileName() + ApacheUtil.getExtensionFromMimeType(imageEntity.getFileType()));
+        zos.putNextEntry(zipEntry);
+        long written;
+        try (content) {
+            written = content.transferTo(zos);
+        }
+        zos.closeEntry();
+        return written;
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.parseMediaType("application/zip"));
-        headers.setContentDispositionFormData("attachment", "images.zip");
-        headers.setContentLength(baos.size());
+    /**
+     * Resource opening the decrypted content of an image only when it is read. The length is known
+     * from the ImageEntity, so neither the content length nor a range requires reading the content.
+     */
+    static final class ImageContentResource extends AbstractResource {
 
-        log.trace("List of ImageEntities converted to ResponseEntity with ZIP file successfully");
-        return new ResponseEntity<>(resource, headers, HttpStatus.OK);
+        private final ImageEntity imageEntity;
+        private final Function<ImageEntity, InputStream> contentReader;
+
+        ImageContentResource(ImageEntity imageEntity, Function<ImageEntity, InputStream> contentReader) {
+            this.imageEntity = imageEntity;
+            this.contentReader = contentReader;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return contentReader.apply(imageEntity);
+        }
+
+        @Override
+        public long contentLength() {
+            return imageEntity.getFileSize();
+        }
+
+        @Override
+        public String getDescription() {
+            return "Image content [" + imageEntity.getFileName() + "]";
+        }
+    }
+
+    /**
+     * Resource rendering a variant of an image only when it is read, at most once.
+     */
+    static final class RenderedVariantResource extends AbstractResource {
+
+        private final ImageEntity imageEntity;
+        private final Supplier<byte[]> renderer;
+        private byte[] variant;
+
+        RenderedVariantResource(ImageEntity imageEntity, Supplier<byte[]> renderer) {
+            this.imageEntity = imageEntity;
+            this.renderer = renderer;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(render());
+        }
+
+        @Override
+        public long contentLength() {
+            return render().length;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Image variant [" + imageEntity.getFileName() + "]";
+        }
+
+        private byte[] render() {
+            if (variant == null) {
+                variant = renderer.get();
+            }
+            return variant;
+        }
     }
 }
\ No newline at end of file
@@ -1,13 +1,16 @@
 package com.arasaka.file_uploader.util;
 
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.TargetSize;
 import com.arasaka.file_uploader.type.ImageValidType;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -17,30 +20,151 @@ import java.util.stream.Collectors;
 public class SimpleValidatorUtil {
 
     /**
-     * Validates the MIME types of a list of image files.
+     * The largest accepted width and height of an uploaded image, in pixels.
+     */
+    public static final int MAX_IMAGE_DIMENSION = 5000;
+
+    private static final Set<String> VALID_MIME_TYPES = EnumSet.allOf(ImageValidType.class).stream()
+            .map(ImageValidType::getType)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private static final Pattern TARGET_SIZE_PATTERN = Pattern.compile("([1-9][0-9]{0,3})x([1-9][0-9]{0,3})");
+
+    /**
+     * Validates the MIME types of a list of ingested image files, as detected on ingest.
      *
-     * @param images the list of image files to validate.
+     * @param images the list of ingested image files to validate.
      * @return true if all image files have valid MIME types, false otherwise.
      */
-    public static boolean isValidFileType(@NotEmpty List<MultipartFile> images) {
+    public static boolean isValidFileType(@NotEmpty List<IngestedImage> images) {
         log.info("Validating MIME types for a list of image files");
-        Set<String> validMimeTypes = EnumSet.allOf(ImageValidType.class).stream()
-                .map(ImageValidType::getType)
-                .collect(Collectors.toSet());
-        try {
-            for (MultipartFile image : images) {
-                String mimeType = ApacheUtil.getMimeTypeFromInputStream(image.getInputStream());
-                log.trace("Validating MIME type: {}", mimeType);
-                if (!validMimeTypes.contains(mimeType)) {
-                    log.warn("Invalid MIME type found: {}", mimeType);
-                    return false;
-                }
+        for (IngestedImage image : images) {
+            log.trace("Validating MIME type: {}", image.mimeType());
+            if (!VALID_MIME_TYPES.contains(image.mimeType())) {
+                log.warn("Invalid MIME type found: {}", image.mimeType());
+                return false;
             }
-            log.trace("All image files have valid MIME types");
-            return true;
-        } catch (Exception e) {
-            log.error("Error during MIME type validation", e);
-            return false;
         }
+        log.trace("All image files have valid MIME types");
+        return true;
+    }
+
+    /**
+     * Validates the dimensions of a list of ingested image files, as read from their headers on ingest,
+     * so oversized images are rejected before any of them is decoded.
+     *
+     * @param images the list of ingested image files to validate.
+     * @return true if no image file exceeds the size limit, false otherwise.
+     */
+    public static boolean isValidImageSize(@NotEmpty List<IngestedImage> images) {
+        log.info("Validating dimensions for a list of image files");
+        for (IngestedImage image : images) {
+            if (exceedsSizeLimit(image.width(), image.height())) {
+                log.warn("Image size exceeds limit: {}x{}", image.width(), image.height());
+                return false;
+            }
+        }
+        log.trace("All image files are within the size limit");
+        return true;
+    }
+
+    /**
+     * Checks the dimensions of an image before it is decoded.
+     *
+     * @param width  the width of the image in pixels.
+     * @param height the height of the image in pixels.
+     * @throws IllegalArgumentException if the image exceeds the size limit.
+     */
+    public static void checkImageSize(int width, int height) {
+        if (exceedsSizeLimit(width, height)) {
+            log.warn("Image size exceeds limit: {}x{}", width, height);
+            throw new IllegalArgumentException("Image size exceeds limit");
+        }
+    }
+
+    private static boolean exceedsSizeLimit(int width, int height) {
+        return width > MAX_IMAGE_DIMENSION || height > MAX_IMAGE_DIMENSION;
+    }
+
+    /**
+     * Validates that a target width and height are either both given or both omitted.
+     *
+     * @param width  the target width, or null.
+     * @param height the target height, or null.
+     * @return true if both or neither are given, false otherwise.
+     */
+    public static boolean isValidTargetSize(Integer width, Integer height) {
+        return (width == null) == (height == null);
+    }
+
+    /**
+     * Checks the parameters of an upload and parses the requested format.
+     *
+     * @param width  the target width, or null.
+     * @param height the target height, or null.
+     * @param format the format name of the requested format, or null.
+     * @return the requested format, or null to keep the format of each image.
+     * @throws IllegalArgumentException if only one of width and height is given, or the format is not a valid image type.
+     */
+    public static ImageValidType checkUploadParameters(Integer width, Integer height, String format) {
+        if (!isValidTargetSize(width, height)) {
+            throw new IllegalArgumentException("Width and height must be given together");
+        }
+        return format == null ? null : ImageValidType.fromFormatName(format)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid file type"));
+    }
+
+    /**
+     * Checks and parses the rendition sizes of an upload, given as WIDTHxHEIGHT.
+     * Sizes given more than once are kept only once, in the order they are first given.
+     *
+     * @param width  the target width, or null.
+     * @param height the target height, or null.
+     * @param sizes  the requested rendition sizes, or null.
+     * @return the rendition sizes, empty if none are requested.
+     * @throws IllegalArgumentException if sizes are given together with width and height,
+     *                                  or a size is malformed or above the size limit.
+     */
+    public static List<TargetSize> checkRenditionSizes(Integer width, Integer height, List<String> sizes) {
+        if (sizes == null || sizes.isEmpty()) {
+            return List.of();
+        }
+        if (width != null || height != null) {
+            throw new IllegalArgumentException("Sizes cannot be given together with width and height");
+        }
+        return sizes.stream()
+                .map(SimpleValidatorUtil::parseTargetSize)
+                .distinct()
+                .toList();
+    }
+
+    private static TargetSize parseTargetSize(String size) {
+        Matcher matcher = size == null ? null : TARGET_SIZE_PATTERN.matcher(size);
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("Invalid size");
+        }
+        TargetSize targetSize = new TargetSize(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        if (targetSize.width() > MAX_IMAGE_DIMENSION || targetSize.height() > MAX_IMAGE_DIMENSION) {
+            throw new IllegalArgumentException("Invalid size");
+        }
+        return targetSize;
+    }
+
+    /**
+     * Checks the ingested images of an upload before any of them is processed.
+     *
+     * @param images the list of ingested image files to check.
+     * @throws IllegalArgumentException if any of the images has an invalid file type or exceeds the size limit.
+     */
+    public static void checkIngestedImages(@NotEmpty List<IngestedImage> images) {
+        MetricsUtil.time(MetricsUtil.VALIDATE, () -> {
+            if (!isValidFileType(images)) {
+                throw new IllegalArgumentException("Invalid file type");
+            }
+            if (!isValidImageSize(images)) {
+                throw new IllegalArgumentException("Image size exceeds limit");
+            }
+            return null;
+        });
     }
 }
\ No newline at end of file
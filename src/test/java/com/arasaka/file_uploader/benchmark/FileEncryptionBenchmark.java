@@ -0,0 +1,125 @@
+package com.arasaka.file_uploader.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.arasaka.file_uploader.util.FileEncryptionUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark comparing the per-image cost of encryption and decryption when the key is read from disk and a
+ * new Cipher is created on every call, against the cached key and pooled Cipher instances, for both the
+ * legacy single block format and the chunked AES-GCM format, and the cost of encrypting and decrypting
+ * a stream as uploads and downloads do. Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileEncryptionBenchmark {
+
+    @Param({"1024", "16384", "262144"})
+    private int imageSize;
+
+    private Path keyFile;
+    private SecretKey secretKey;
+    private byte[] image;
+    private byte[] encryptedImage;
+    private byte[] legacyEncryptedImage;
+
+    @Setup
+    public void setUp() throws Exception {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        secretKey = keyGenerator.generateKey();
+        keyFile = Files.createTempFile("benchmark", ".key");
+        Files.write(keyFile, secretKey.getEncoded());
+
+        image = new byte[imageSize];
+        new Random(42).nextBytes(image);
+        encryptedImage = FileEncryptionUtil.encryptFileToBytes(image, secretKey);
+        Cipher legacyCipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        legacyCipher.init(Cipher.ENCRYPT_MODE, secretKey);
+        legacyEncryptedImage = legacyCipher.doFinal(image);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(keyFile);
+    }
+
+    @Benchmark
+    public byte[] encryptReloadingKeyAndCipher() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, loadKeyFromDisk());
+        return cipher.doFinal(image);
+    }
+
+    @Benchmark
+    public byte[] encryptWithCachedKeyAndPooledCipher() throws Exception {
+        return FileEncryptionUtil.encryptFileToBytes(image, secretKey);
+    }
+
+    @Benchmark
+    public byte[] decryptReloadingKeyAndCipher() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, loadKeyFromDisk());
+        return cipher.doFinal(legacyEncryptedImage);
+    }
+
+    @Benchmark
+    public byte[] decryptLegacyWithCachedKeyAndPooledCipher() throws Exception {
+        return FileEncryptionUtil.decryptFileFromBytes(legacyEncryptedImage, secretKey);
+    }
+
+    @Benchmark
+    public byte[] decryptWithCachedKeyAndPooledCipher() throws Exception {
+        return FileEncryptionUtil.decryptFileFromBytes(encryptedImage, secretKey);
+    }
+
+    @Benchmark
+    public void encryptStreaming() throws Exception {
+        try (OutputStream encrypted = FileEncryptionUtil.encryptingStream(OutputStream.nullOutputStream(), secretKey)) {
+            encrypted.write(image);
+        }
+    }
+
+    @Benchmark
+    public long decryptStreaming() throws Exception {
+        try (InputStream decrypted = FileEncryptionUtil.decryptingStream(new ByteArrayInputStream(encryptedImage), secretKey)) {
+            return decrypted.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private SecretKey loadKeyFromDisk() throws Exception {
+        if (!Files.exists(keyFile)) {
+            throw new IllegalStateException("Key file missing");
+        }
+        byte[] encodedKey = Files.readAllBytes(keyFile);
+        return new SecretKeySpec(encodedKey, 0, encodedKey.length, "AES");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(FileEncryptionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,366 @@
+package com.arasaka.file_uploader.benchmark;
+
+import com.arasaka.file_uploader.FileUploaderApplication;
+import com.arasaka.file_uploader.type.ImageValidType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * End-to-end load test of the HTTP API. Without a {@code --target} it starts the application on a random port,
+ * backed by an in-memory H2 database and a temporary storage directory, so it runs on any machine without Postgres.
+ * Workers send a weighted mix of uploads ({@code POST /api/images}), single downloads ({@code GET /api/image/{imageName}})
+ * and ZIP downloads ({@code GET /api/images}) with uploads of a weighted mix of image sizes, and the harness reports
+ * the throughput, the error rate and the latency percentiles of every operation after the warmup.
+ * <p>
+ * Without a {@code --rate}, every worker sends its next request as soon as the previous one is answered. With a rate,
+ * requests are sent on a fixed schedule and latencies are measured from the scheduled start, so a stalled server
+ * shows up in the percentiles instead of just slowing the load down.
+ * <p>
+ * Options, all {@code --name=value}: {@code target}, {@code concurrency}, {@code rate} (requests per second, all
+ * workers together), {@code warmup} and {@code duration} ({@code 30s}, {@code 2m} or ISO-8601), {@code mix}
+ * (e.g. {@code upload:1,download:8,download_all:1}), {@code sizes} (edge length of the uploaded images in pixels
+ * with weights, e.g. {@code 256:5,1024:4,3000:1}), {@code target-size} (resize target of the uploads) and
+ * {@code seed-images} (images uploaded before the load starts) and {@code implementation} (the profile of the image
+ * processing service of the started application, {@code imgscalr}, {@code boofcv} or {@code vector}). Any other option is passed on to the started
+ * application, e.g. {@code --image.processing.threads=4}.
+ */
+public class LoadTestHarness {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String BOUNDARY = "load-test-" + UUID.randomUUID();
+
+    private final Options options;
+    private final URI target;
+    private final HttpClient httpClient;
+    private final Map<Integer, byte[]> payloads = new LinkedHashMap<>();
+    private final List<String> imageNames = new CopyOnWriteArrayList<>();
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    LoadTestHarness(Options options, URI target) throws Exception {
+        this.options = options;
+        this.target = target;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        for (int size : options.sizes().keySet()) {
+            payloads.put(size, ResizeBenchmark.encode(ResizeBenchmark.photoLikeImage(size), ImageValidType.JPEG));
+        }
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path storageDirectory = Files.createTempDirectory("load-test-images");
+        ConfigurableApplicationContext application = options.target() == null ? startApplication(options, storageDirectory) : null;
+        try {
+            URI target = application == null ? options.target()
+                    : URI.create("http://localhost:" + ((WebServerApplicationContext) application).getWebServer().getPort());
+            new LoadTestHarness(options, target).run();
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            FileSystemUtils.deleteRecursively(storageDirectory);
+        }
+    }
+
+    /**
+     * Starts the application on a random port with an in-memory H2 database in place of Postgres.
+     */
+    private static ConfigurableApplicationContext startApplication(Options options, Path storageDirectory) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:load-test;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--image.storage.root-directory=" + storageDirectory,
+                // logging every request to the console would be measured as well
+                "--logging.level.root=WARN"));
+        arguments.addAll(options.applicationArguments());
+        SpringApplication application = new SpringApplication(FileUploaderApplication.class);
+        application.setAdditionalProfiles(options.implementation());
+        return application.run(arguments.toArray(String[]::new));
+    }
+
+    void run() throws Exception {
+        System.out.printf("Load test against %s: %d workers, %s warmup, %s measured, %s%n", target, options.concurrency(),
+                options.warmup(), options.duration(), options.rate() > 0 ? options.rate() + " requests/s" : "closed loop");
+        seed();
+
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(options.concurrency());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int worker = 0; worker < options.concurrency(); worker++) {
+                Random random = new Random(worker);
+                long firstRequest = start + (options.rate() > 0 ? (long) (worker * 1e9 / options.rate()) : 0);
+                futures.add(workers.submit(() -> work(random, firstRequest, measureFrom, end)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        report(options.duration());
+    }
+
+    /**
+     * Uploads the seed images one by one, so downloads have images to choose from from the start.
+     */
+    private void seed() throws Exception {
+        Random random = new Random(-1);
+        for (int i = 0; i < options.seedImages(); i++) {
+            if (!execute(Operation.UPLOAD, random, null)) {
+                throw new IllegalStateException("Seeding images failed, is " + target + " running?");
+            }
+        }
+        if (imageNames.isEmpty() && options.mix().containsKey(Operation.DOWNLOAD)) {
+            throw new IllegalStateException("No images to download, set seed-images above 0");
+        }
+    }
+
+    private Void work(Random random, long firstRequest, long measureFrom, long end) throws InterruptedException {
+        long intervalNanos = options.rate() > 0 ? (long) (options.concurrency() * 1e9 / options.rate()) : 0;
+        long scheduled = firstRequest;
+        while (true) {
+            if (intervalNanos > 0) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            long begin = intervalNanos > 0 ? scheduled : System.nanoTime();
+            if (begin >= end) {
+                return null;
+            }
+            Operation operation = pick(options.mix(), random);
+            OperationStats operationStats = begin >= measureFrom ? stats.get(operation) : null;
+            boolean succeeded = execute(operation, random, operationStats);
+            if (operationStats != null) {
+                operationStats.record(System.nanoTime() - begin, succeeded);
+            }
+            scheduled += intervalNanos;
+        }
+    }
+
+    /**
+     * Sends a single request of an operation.
+     *
+     * @return true if the request was answered with a success status.
+     */
+    private boolean execute(Operation operation, Random random, OperationStats operationStats) {
+        try {
+            HttpRequest request = switch (operation) {
+                case UPLOAD -> uploadRequest(payloads.get(pick(options.sizes(), random)), operationStats);
+                case DOWNLOAD -> HttpRequest.newBuilder(target.resolve("/api/image/" + imageNames.get(random.nextInt(imageNames.size())))).GET().build();
+                case DOWNLOAD_ALL -> HttpRequest.newBuilder(target.resolve("/api/images")).GET().build();
+            };
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            boolean succeeded = response.statusCode() < 400;
+            try (InputStream body = response.body()) {
+                if (operation == Operation.UPLOAD && succeeded) {
+                    byte[] content = body.readAllBytes();
+                    for (JsonNode image : OBJECT_MAPPER.readTree(content)) {
+                        imageNames.add(image.get("fileName").asText());
+                    }
+                    if (operationStats != null) {
+                        operationStats.bytesReceived.add(content.length);
+                    }
+                } else {
+                    long received = body.transferTo(OutputStream.nullOutputStream());
+                    if (operationStats != null) {
+                        operationStats.bytesReceived.add(received);
+                    }
+                }
+            }
+            return succeeded;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private HttpRequest uploadRequest(byte[] image, OperationStats operationStats) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length + 512);
+        body.write(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"images\"; filename=\"image.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(image);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        if (operationStats != null) {
+            operationStats.bytesSent.add(body.size());
+        }
+        String query = "?width=" + options.targetSize() + "&height=" + options.targetSize();
+        return HttpRequest.newBuilder(target.resolve("/api/images" + query))
+                .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private static <T> T pick(Map<T, Integer> weights, Random random) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int choice = random.nextInt(total);
+        for (Map.Entry<T, Integer> weight : weights.entrySet()) {
+            choice -= weight.getValue();
+            if (choice < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Choice beyond the total weight");
+    }
+
+    private void report(Duration measured) {
+        double seconds = measured.toNanos() / 1e9;
+        System.out.printf("%n%-13s %9s %8s %8s %10s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "requests", "errors",
+                "error %", "req/s", "MB/s in", "MB/s out", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        long totalSent = 0;
+        long totalReceived = 0;
+        for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+            OperationStats operationStats = entry.getValue();
+            if (operationStats.latencies.getTotalCount() == 0) {
+                continue;
+            }
+            total.add(operationStats.latencies);
+            totalErrors += operationStats.errors.sum();
+            totalSent += operationStats.bytesSent.sum();
+            totalReceived += operationStats.bytesReceived.sum();
+            printRow(entry.getKey().name().toLowerCase(), operationStats.latencies, operationStats.errors.sum(), seconds,
+                    operationStats.bytesSent.sum() / seconds / 1e6, operationStats.bytesReceived.sum() / seconds / 1e6);
+        }
+        printRow("total", total, totalErrors, seconds, totalSent / seconds / 1e6, totalReceived / seconds / 1e6);
+    }
+
+    private static void printRow(String name, Histogram latencies, long errors, double seconds, double mbIn, double mbOut) {
+        long requests = latencies.getTotalCount();
+        System.out.printf("%-13s %9d %8d %8.2f %10.1f %9.2f %9.2f %9.1f %9.1f %9.1f %9.1f %9.1f%n", name, requests, errors,
+                requests == 0 ? 0 : 100.0 * errors / requests, requests / seconds, mbIn, mbOut,
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(95)),
+                millis(latencies.getValueAtPercentile(99)), millis(latencies.getValueAtPercentile(99.9)),
+                millis(latencies.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    enum Operation {
+        UPLOAD, DOWNLOAD, DOWNLOAD_ALL
+    }
+
+    /**
+     * Latencies in microseconds, errors and transferred bytes of an operation, recorded by all workers.
+     */
+    private static final class OperationStats {
+
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+
+        void record(long latencyNanos, boolean succeeded) {
+            latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            if (!succeeded) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * Options of a load test run.
+     */
+    record Options(URI target, int concurrency, double rate, Duration warmup, Duration duration, Map<Operation, Integer> mix,
+                   Map<Integer, Integer> sizes, int targetSize, int seedImages, String implementation, List<String> applicationArguments) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>(Map.of(
+                    "implementation", "imgscalr",
+                    "concurrency", "16",
+                    "rate", "0",
+                    "warmup", "10s",
+                    "duration", "60s",
+                    "mix", "upload:1,download:8,download_all:1",
+                    "sizes", "256:5,1024:4,3000:1",
+                    "target-size", "200",
+                    "seed-images", "20"));
+            List<String> applicationArguments = new ArrayList<>();
+            for (String arg : args) {
+                String name = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : null;
+                if (name == null) {
+                    throw new IllegalArgumentException("Options must be given as --name=value: " + arg);
+                }
+                if (values.containsKey(name) || name.equals("target")) {
+                    values.put(name, arg.substring(arg.indexOf('=') + 1));
+                } else {
+                    applicationArguments.add(arg);
+                }
+            }
+            Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+            weights(values.get("mix")).forEach((operation, weight) -> mix.put(Operation.valueOf(operation.toUpperCase()), weight));
+            Map<Integer, Integer> sizes = new LinkedHashMap<>();
+            weights(values.get("sizes")).forEach((size, weight) -> sizes.put(Integer.parseInt(size), weight));
+            return new Options(values.containsKey("target") ? URI.create(values.get("target")) : null,
+                    Integer.parseInt(values.get("concurrency")), Double.parseDouble(values.get("rate")),
+                    DurationStyle.detectAndParse(values.get("warmup")), DurationStyle.detectAndParse(values.get("duration")),
+                    mix, sizes, Integer.parseInt(values.get("target-size")), Integer.parseInt(values.get("seed-images")),
+                    values.get("implementation"), applicationArguments);
+        }
+
+        private static Map<String, Integer> weights(String value) {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            for (String entry : value.split(",")) {
+                String[] parts = entry.trim().split(":");
+                int weight = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+                if (weight > 0) {
+                    weights.put(parts[0], weight);
+                }
+            }
+            if (weights.isEmpty()) {
+                throw new IllegalArgumentException("No positive weight in " + value);
+            }
+            return weights;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.arasaka.file_uploader.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.arasaka.file_uploader.type.ImageValidType;
+import com.arasaka.file_uploader.util.ApacheUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of detecting the MIME type of an uploaded image with Apache Tika, from a stream as on ingest
+ * and from bytes already in memory. Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MimeDetectionBenchmark {
+
+    @Param({"PNG", "JPEG"})
+    private ImageValidType format;
+
+    private byte[] image;
+
+    @Setup
+    public void setUp() throws Exception {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        image = ResizeBenchmark.encode(ResizeBenchmark.photoLikeImage(512), format);
+    }
+
+    @Benchmark
+    public String detectFromInputStream() throws Exception {
+        return ApacheUtil.getMimeTypeFromInputStream(new BufferedInputStream(new ByteArrayInputStream(image)));
+    }
+
+    @Benchmark
+    public String detectFromBytes() {
+        return ApacheUtil.getMimeTypeFromBytes(image);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(MimeDetectionBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+package com.arasaka.file_uploader.benchmark;
+
+import com.arasaka.file_uploader.resample.ResampleFilter;
+import com.arasaka.file_uploader.resample.ResampleKernel;
+import com.arasaka.file_uploader.resample.Resampler;
+import com.arasaka.file_uploader.resample.ScalarResampleKernel;
+import org.imgscalr.Scalr;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the resize step alone, on an image already decoded the way ImageIO decodes a JPEG, comparing the
+ * {@link Resampler} with the Vector API kernel and with the scalar kernel against ImgScalr. The 4000px source is the
+ * typical upload; the 2000px source is what the services actually resize when scaling it to 800px, since they decode
+ * it subsampled by two. The vector kernel is only compiled by the vector profile, which also passes
+ * {@code --add-modules jdk.incubator.vector} to the JVM, so it is run with {@code -Pbenchmark,vector}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResampleBenchmark {
+
+    @Param({"2000", "4000"})
+    private int sourceSize;
+
+    @Param({"800"})
+    private int targetSize;
+
+    @Param({"vector", "scalar", "imgscalr"})
+    private String resampler;
+
+    @Param({"LANCZOS3", "BILINEAR"})
+    private ResampleFilter filter;
+
+    private Resampler vectorOrScalar;
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        vectorOrScalar = new Resampler(filter, resampler.equals("vector") ? ResampleKernel.create() : new ScalarResampleKernel());
+        if (resampler.equals("vector") && !vectorOrScalar.kernelName().startsWith("vector")) {
+            throw new IllegalStateException("Run the benchmark with the vector profile on a CPU with at least 256-bit vectors");
+        }
+        BufferedImage photo = ResizeBenchmark.photoLikeImage(sourceSize);
+        image = new BufferedImage(sourceSize, sourceSize, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.drawImage(photo, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+    @Benchmark
+    public BufferedImage resize() {
+        if (resampler.equals("imgscalr")) {
+            return Scalr.resize(image, Scalr.Method.QUALITY, targetSize, targetSize);
+        }
+        return vectorOrScalar.resize(image, targetSize, targetSize);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ResampleBenchmark.class.getSimpleName())
+                .jvmArgsAppend("--add-modules", "jdk.incubator.vector")
+                .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.arasaka.file_uploader.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.arasaka.file_uploader.resample.ResampleFilter;
+import com.arasaka.file_uploader.service.ImageProcessingService;
+import com.arasaka.file_uploader.service.impl.ImageProcessingServiceBoofCVIMPL;
+import com.arasaka.file_uploader.service.impl.ImageProcessingServiceImgScalrIMPL;
+import com.arasaka.file_uploader.service.impl.ImageProcessingServiceVectorIMPL;
+import com.arasaka.file_uploader.type.ImageValidType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of resizing an uploaded image: decoding it from a stream, resizing it and encoding it again,
+ * for several source sizes, formats and target sizes, comparing the ImgScalr, the BoofCV and the Vector API implementations.
+ * Run with {@code -prof gc} to see the allocation rate.
+ * <p>
+ * The quality of the resized image is printed once per trial as the PSNR against an exact area average of the
+ * source image, computed in floating point, so a higher value is closer to the ideal downscale. The PSNR is measured
+ * on the resized pixels before encoding, so the loss of JPEG does not hide the difference between the implementations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResizeBenchmark {
+
+    @Param({"512", "2048", "4096"})
+    private int sourceSize;
+
+    @Param({"PNG", "JPEG"})
+    private ImageValidType format;
+
+    @Param({"100", "800"})
+    private int targetSize;
+
+    @Param({"imgscalr", "boofcv", "vector"})
+    private String implementation;
+
+    private ImageProcessingService imageProcessingService;
+    private byte[] image;
+
+    @Setup
+    public void setUp() throws Exception {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        imageProcessingService = switch (implementation) {
+            case "boofcv" -> new ImageProcessingServiceBoofCVIMPL(0.75f, false, 4);
+            case "vector" -> new ImageProcessingServiceVectorIMPL(0.75f, false, 4, ResampleFilter.LANCZOS3);
+            default -> new ImageProcessingServiceImgScalrIMPL(0.75f, false, 4);
+        };
+        BufferedImage source = photoLikeImage(sourceSize);
+        image = encode(source, format);
+        if (targetSize < sourceSize) {
+            printQuality(source);
+        }
+    }
+
+    @Benchmark
+    public long resizeImage() {
+        return imageProcessingService.resizeImage(new ByteArrayInputStream(image), OutputStream.nullOutputStream(),
+                targetSize, targetSize, format);
+    }
+
+    /**
+     * Prints the PSNR of the image resized by the benchmarked implementation, without encoding,
+     * against the exact area average of the source image.
+     */
+    private void printQuality(BufferedImage source) throws Exception {
+        ByteArrayOutputStream lossless = new ByteArrayOutputStream();
+        imageProcessingService.resizeImage(new ByteArrayInputStream(encode(source, ImageValidType.PNG)), lossless,
+                targetSize, targetSize, ImageValidType.PNG);
+        BufferedImage resized = ImageIO.read(new ByteArrayInputStream(lossless.toByteArray()));
+        System.out.printf("%n# Quality of %s resizing %dpx to %dpx: PSNR %.2f dB against the area average%n",
+                implementation, sourceSize, targetSize, psnr(resized, areaAverage(source, resized.getWidth(), resized.getHeight())));
+    }
+
+    /**
+     * Downscales an image by averaging, for every target pixel, the source pixels it covers, weighted by how much
+     * of each source pixel it covers.
+     *
+     * @return the red, green and blue values of the downscaled image, row after row.
+     */
+    static double[][] areaAverage(BufferedImage source, int width, int height) {
+        double scaleX = (double) source.getWidth() / width;
+        double scaleY = (double) source.getHeight() / height;
+        double[][] result = new double[3][width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double[] sum = new double[3];
+                double area = 0;
+                for (int sy = (int) (y * scaleY); sy < Math.min(source.getHeight(), Math.ceil((y + 1) * scaleY)); sy++) {
+                    double coverY = Math.min(sy + 1, (y + 1) * scaleY) - Math.max(sy, y * scaleY);
+                    for (int sx = (int) (x * scaleX); sx < Math.min(source.getWidth(), Math.ceil((x + 1) * scaleX)); sx++) {
+                        double cover = coverY * (Math.min(sx + 1, (x + 1) * scaleX) - Math.max(sx, x * scaleX));
+                        int rgb = source.getRGB(sx, sy);
+                        sum[0] += cover * (rgb >> 16 & 0xFF);
+                        sum[1] += cover * (rgb >> 8 & 0xFF);
+                        sum[2] += cover * (rgb & 0xFF);
+                        area += cover;
+                    }
+                }
+                for (int band = 0; band < 3; band++) {
+                    result[band][y * width + x] = sum[band] / area;
+                }
+            }
+        }
+        return result;
+    }
+
+    static double psnr(BufferedImage image, double[][] reference) {
+        double squaredError = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int i = y * image.getWidth() + x;
+                squaredError += Math.pow((rgb >> 16 & 0xFF) - reference[0][i], 2)
+                        + Math.pow((rgb >> 8 & 0xFF) - reference[1][i], 2)
+                        + Math.pow((rgb & 0xFF) - reference[2][i], 2);
+            }
+        }
+        double meanSquaredError = squaredError / (3.0 * image.getWidth() * image.getHeight());
+        return 10 * Math.log10(255 * 255 / meanSquaredError);
+    }
+
+    /**
+     * Builds an image of smooth gradients with some noise, which compresses about as well as a photo,
+     * unlike both random noise and a flat color.
+     */
+    static BufferedImage photoLikeImage(int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int red = (x * 255 / size + random.nextInt(16)) & 0xFF;
+                int green = (y * 255 / size + random.nextInt(16)) & 0xFF;
+                int blue = ((x + y) * 127 / size + random.nextInt(16)) & 0xFF;
+                image.setRGB(x, y, red << 16 | green << 8 | blue);
+            }
+        }
+        return image;
+    }
+
+    static byte[] encode(BufferedImage image, ImageValidType format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, format.getFormatName(), output);
+        return output.toByteArray();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ResizeBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
\ No newline at end of file
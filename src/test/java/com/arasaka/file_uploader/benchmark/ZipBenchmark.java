@@ -0,0 +1,71 @@
+package com.arasaka.file_uploader.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.arasaka.file_uploader.domain.ImageEntity;
+import com.arasaka.file_uploader.util.ResourceUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmark of assembling the ZIP download of all images, streaming the content of every image into the archive,
+ * for several numbers and sizes of images. Run with {@code -prof gc} to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZipBenchmark {
+
+    @Param({"10", "100"})
+    private int imageCount;
+
+    @Param({"16384", "262144"})
+    private int imageSize;
+
+    private List<ImageEntity> imageEntities;
+    private byte[] content;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        content = new byte[imageSize];
+        new Random(42).nextBytes(content);
+        imageEntities = IntStream.range(0, imageCount)
+                .mapToObj(i -> ImageEntity.builder()
+                        .fileName("image" + i)
+                        .fileType(MediaType.IMAGE_PNG_VALUE)
+                        .fileSize(imageSize)
+                        .build())
+                .toList();
+    }
+
+    @Benchmark
+    public void imagesInZip() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = ResourceUtil.ImagesInZipToResponseEntity(imageEntities::forEach,
+                imageEntity -> new ByteArrayInputStream(content));
+        response.getBody().writeTo(OutputStream.nullOutputStream());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(ZipBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
\ No newline at end of file
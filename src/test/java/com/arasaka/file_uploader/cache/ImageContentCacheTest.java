@@ -0,0 +1,97 @@
+package com.arasaka.file_uploader.cache;
+
+import com.arasaka.file_uploader.domain.ImageEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageContentCacheTest {
+
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ImageContentCache cache = new ImageContentCache(1024, 16, false, meterRegistry);
+
+    @Test
+    void open_withCachedContent_readsOnce() throws IOException {
+        AtomicInteger reads = new AtomicInteger();
+        Function<ImageEntity, byte[]> reader = imageEntity -> {
+            reads.incrementAndGet();
+            return new byte[]{1, 2, 3};
+        };
+
+        byte[] first = readAll(cache.open(image("blobKey", UPDATED_AT), reader));
+        byte[] second = readAll(cache.open(image("blobKey", UPDATED_AT), reader));
+
+        assertArrayEquals(new byte[]{1, 2, 3}, first);
+        assertArrayEquals(new byte[]{1, 2, 3}, second);
+        assertEquals(1, reads.get());
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(3, cache.weightedSize());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", ImageContentCache.CACHE_NAME).tag("result", "hit").functionCounter().count());
+        assertEquals(3, meterRegistry.get(ImageContentCache.WEIGHTED_SIZE_METER).tag("cache", ImageContentCache.CACHE_NAME).gauge().value());
+    }
+
+    @Test
+    void open_withImageUpdatedSinceCached_readsAgain() throws IOException {
+        cache.open(image("blobKey", UPDATED_AT), imageEntity -> new byte[]{1, 2, 3}).close();
+
+        byte[] content = readAll(cache.open(image("newBlobKey", UPDATED_AT.plusMinutes(1)), imageEntity -> new byte[]{4, 5}));
+
+        assertArrayEquals(new byte[]{4, 5}, content);
+        assertEquals(2, cache.weightedSize());
+    }
+
+    @Test
+    void open_withOffHeapCache_returnsContent() throws IOException {
+        ImageContentCache offHeapCache = new ImageContentCache(1024, 16, true, new SimpleMeterRegistry());
+
+        offHeapCache.open(image("blobKey", UPDATED_AT), imageEntity -> new byte[]{1, 2, 3}).close();
+        try (InputStream content = offHeapCache.open(image("blobKey", UPDATED_AT), imageEntity -> fail("Content read again"))) {
+            assertEquals(1, content.skip(1));
+            assertArrayEquals(new byte[]{2, 3}, content.readAllBytes());
+        }
+    }
+
+    @Test
+    void open_beyondMaxBytes_evictsContent() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            ImageEntity imageEntity = ImageEntity.builder().fileName("image" + i).blobKey("blobKey").updatedAt(UPDATED_AT).build();
+            cache.open(imageEntity, entity -> new byte[16]).close();
+        }
+
+        assertTrue(cache.weightedSize() <= 1024);
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    void isCacheable_withImageAboveEntryLimit_returnsFalse() {
+        ImageEntity smallImage = image("blobKey", UPDATED_AT);
+        smallImage.setFileSize(16);
+        ImageEntity largeImage = image("blobKey", UPDATED_AT);
+        largeImage.setFileSize(17);
+
+        assertTrue(cache.isCacheable(smallImage));
+        assertFalse(cache.isCacheable(largeImage));
+    }
+
+    private ImageEntity image(String blobKey, LocalDateTime updatedAt) {
+        return ImageEntity.builder().fileName("image").blobKey(blobKey).updatedAt(updatedAt).build();
+    }
+
+    private byte[] readAll(InputStream content) throws IOException {
+        try (content) {
+            return content.readAllBytes();
+        }
+    }
+}
\ No newline at end of file
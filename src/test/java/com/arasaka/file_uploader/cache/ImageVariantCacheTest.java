@@ -0,0 +1,97 @@
+package com.arasaka.file_uploader.cache;
+
+import com.arasaka.file_uploader.type.ImageValidType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageVariantCacheTest {
+
+    private static final ImageVariantCache.VariantKey KEY = new ImageVariantCache.VariantKey("blobKey", 100, 100, ImageValidType.JPEG);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ImageVariantCache cache = new ImageVariantCache(1024 * 1024, meterRegistry);
+
+    @Test
+    void get_withCachedVariant_doesNotRenderAgain() {
+        AtomicInteger renders = new AtomicInteger();
+
+        byte[] first = cache.get(KEY, key -> {
+            renders.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[]{1, 2, 3});
+        });
+        byte[] second = cache.get(KEY, key -> {
+            renders.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[]{4, 5, 6});
+        });
+
+        assertEquals(1, renders.get());
+        assertArrayEquals(new byte[]{1, 2, 3}, first);
+        assertSame(first, second);
+    }
+
+    @Test
+    void get_recordsStatsInMeterRegistry() {
+        cache.get(KEY, key -> CompletableFuture.completedFuture(new byte[]{1, 2, 3}));
+        cache.get(KEY, key -> CompletableFuture.completedFuture(new byte[]{1, 2, 3}));
+
+        assertEquals(1, cache.stats().hitCount());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", ImageVariantCache.CACHE_NAME).tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", ImageVariantCache.CACHE_NAME).tag("result", "miss").functionCounter().count());
+        assertEquals(3, meterRegistry.get(ImageContentCache.WEIGHTED_SIZE_METER).tag("cache", ImageVariantCache.CACHE_NAME).gauge().value());
+    }
+
+    @Test
+    void get_withConcurrentRequestsForSameVariant_rendersOnce() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        CompletableFuture<byte[]> render = new CompletableFuture<>();
+        ExecutorService requests = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] results = new Future<?>[4];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = requests.submit(() -> cache.get(KEY, key -> {
+                    renders.incrementAndGet();
+                    return render;
+                }));
+            }
+            render.complete(new byte[]{1, 2, 3});
+
+            for (Future<?> result : results) {
+                assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, renders.get());
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_withFailedRender_rethrowsCauseAndDoesNotCacheIt() {
+        IllegalStateException failure = new IllegalStateException("Render failed");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> cache.get(KEY, key -> CompletableFuture.failedFuture(failure)));
+        byte[] result = cache.get(KEY, key -> CompletableFuture.completedFuture(new byte[]{1}));
+
+        assertSame(failure, thrown);
+        assertArrayEquals(new byte[]{1}, result);
+    }
+
+    @Test
+    void get_withRejectedRender_rethrowsRejection() {
+        assertThrows(RejectedExecutionException.class, () -> cache.get(KEY, key -> {
+            throw new RejectedExecutionException("Queue full");
+        }));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.arasaka.file_uploader.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProcessingExecutorTest {
+
+    private ImageProcessingExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void processAll_returnsResultsInTaskOrder() {
+        executor = new ImageProcessingExecutor(4, 100);
+        List<Callable<Integer>> tasks = IntStream.range(0, 20)
+                .<Callable<Integer>>mapToObj(i -> () -> {
+                    Thread.sleep(20 - i);
+                    return i;
+                })
+                .toList();
+
+        assertEquals(IntStream.range(0, 20).boxed().toList(), executor.processAll(tasks));
+    }
+
+    @Test
+    void processAll_withFailingTask_rethrowsOriginalException() {
+        executor = new ImageProcessingExecutor(2, 100);
+        CountDownLatch never = new CountDownLatch(1);
+        List<Callable<Integer>> tasks = List.of(
+                () -> {
+                    never.await(5, TimeUnit.SECONDS);
+                    return 1;
+                },
+                () -> {
+                    throw new IOException("Processing error");
+                });
+
+        long start = System.nanoTime();
+        IOException exception = assertThrows(IOException.class, () -> executor.processAll(tasks));
+
+        assertEquals("Processing error", exception.getMessage());
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+        never.countDown();
+    }
+
+    @Test
+    void processAll_withConcurrentBatches_neverExceedsPoolSize() throws Exception {
+        executor = new ImageProcessingExecutor(3, 100);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Integer>> tasks = IntStream.range(0, 10)
+                .<Callable<Integer>>mapToObj(i -> () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                    return i;
+                })
+                .toList();
+
+        Thread otherBatch = new Thread(() -> executor.processAll(tasks));
+        otherBatch.start();
+        executor.processAll(tasks);
+        otherBatch.join();
+
+        assertTrue(maxRunning.get() <= 3);
+    }
+
+    @Test
+    void processAll_withFullQueue_throwsRejectedExecutionException() {
+        executor = new ImageProcessingExecutor(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<Integer> blocking = () -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        };
+
+        assertThrows(RejectedExecutionException.class, () -> executor.processAll(List.of(blocking, blocking, blocking)));
+        release.countDown();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.arasaka.file_uploader.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebMvcConfigTest {
+
+    private final WebMvcConfig.StreamingResourceHttpMessageConverter converter = new WebMvcConfig.StreamingResourceHttpMessageConverter();
+
+    @Test
+    void read_withResourceBody_streamsRequestBody() throws IOException {
+        ByteArrayInputStream body = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        MockHttpInputMessage inputMessage = new MockHttpInputMessage(body);
+        inputMessage.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+
+        Resource resource = converter.read(Resource.class, inputMessage);
+
+        assertInstanceOf(InputStreamResource.class, resource);
+        assertEquals(3, body.available());
+        try (InputStream content = resource.getInputStream()) {
+            assertArrayEquals(new byte[]{1, 2, 3}, content.readAllBytes());
+        }
+    }
+}
\ No newline at end of file
@@ -1,35 +1,72 @@
 package com.arasaka.file_uploader.controller;
 
+import com.arasaka.file_uploader.crypto.SecretKeyProvider;
 import com.arasaka.file_uploader.domain.ImageEntity;
 import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
+import com.arasaka.file_uploader.generated.dto.UploadJobDto;
 import com.arasaka.file_uploader.repository.ImageRepository;
+import com.arasaka.file_uploader.service.BlobCleanupService;
+import com.arasaka.file_uploader.service.ImageTransactionService;
+import com.arasaka.file_uploader.storage.BlobStore;
+import com.arasaka.file_uploader.util.FileEncryptionUtil;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability
 @ActiveProfiles("imgscalr")
 class ImageControllerIntegrationTest {
 
@@ -39,16 +76,39 @@ class ImageControllerIntegrationTest {
     @Autowired
     private ImageRepository imageRepository;
 
-    private void saveSampleFile() {
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private SecretKeyProvider secretKeyProvider;
+
+    @Autowired
+    private ImageTransactionService imageTransactionService;
+
+    @Autowired
+    private BlobCleanupService blobCleanupService;
+
+    @Value("${image.storage.root-directory}")
+    private Path storageDirectory;
+
+    private final byte[] sampleContent = sampleContent();
+
+    private ImageEntity saveSampleFile() throws Exception {
         ImageEntity imageEntity = ImageEntity.builder()
                 .fileName("sampleImage")
                 .fileType(MediaType.IMAGE_PNG_VALUE)
-                .fileSize(new byte[0].length)
-                .encryptedData(new byte[0])
+                .fileSize(sampleContent.length)
+                .blobKey(blobStore.put(FileEncryptionUtil.encryptFileToBytes(sampleContent, secretKeyProvider.getSecretKey())))
                 .width(200)
                 .height(200)
                 .build();
-        imageRepository.save(imageEntity);
+        return imageRepository.save(imageEntity);
+    }
+
+    private static byte[] sampleContent() {
+        byte[] content = new byte[200 * 1024];
+        new Random(42).nextBytes(content);
+        return content;
     }
 
     @BeforeEach
@@ -60,8 +120,12 @@ class ImageControllerIntegrationTest {
     void downloadAllImages_returnsZipFile() throws Exception {
         saveSampleFile();
 
-        MvcResult result = mockMvc.perform(get("/api/images")
+        MvcResult asyncResult = mockMvc.perform(get("/api/images")
                         .accept("application/zip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/zip"))
                 .andReturn();
@@ -73,6 +137,7 @@ class ImageControllerIntegrationTest {
             while ((entry = zis.getNextEntry()) != null) {
                 assertNotNull(entry.getName());
                 assertEquals("sampleImage.png", entry.getName());
+                assertArrayEquals(sampleContent, zis.readAllBytes());
                 zis.closeEntry();
             }
         }
@@ -80,11 +145,64 @@ class ImageControllerIntegrationTest {
 
     @Test
     void downloadImage_withValidName_returnsImage() throws Exception {
+        ImageEntity imageEntity = saveSampleFile();
+        mockMvc.perform(get("/api/image/sampleImage")
+                        .accept(MediaType.IMAGE_PNG_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG_VALUE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + imageEntity.getBlobKey() + "\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().bytes(sampleContent));
+    }
+
+    @Test
+    void downloadImage_withMatchingETag_returnsNotModified() throws Exception {
+        ImageEntity imageEntity = saveSampleFile();
+        mockMvc.perform(get("/api/image/sampleImage")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + imageEntity.getBlobKey() + "\"")
+                        .accept(MediaType.IMAGE_PNG_VALUE))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void downloadImage_withStaleETag_returnsImage() throws Exception {
         saveSampleFile();
         mockMvc.perform(get("/api/image/sampleImage")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"stale\"")
                         .accept(MediaType.IMAGE_PNG_VALUE))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.IMAGE_PNG_VALUE));
+                .andExpect(content().bytes(sampleContent));
+    }
+
+    @Test
+    void downloadImage_withIfModifiedSinceAfterUpdate_returnsNotModified() throws Exception {
+        saveSampleFile();
+        mockMvc.perform(get("/api/image/sampleImage")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusMinutes(1)))
+                        .accept(MediaType.IMAGE_PNG_VALUE))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void downloadImage_withRange_returnsPartialContent() throws Exception {
+        saveSampleFile();
+        mockMvc.perform(get("/api/image/sampleImage")
+                        .header(HttpHeaders.RANGE, "bytes=150000-150009")
+                        .accept(MediaType.IMAGE_PNG_VALUE))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 150000-150009/" + sampleContent.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(sampleContent, 150000, 150010)));
+    }
+
+    @Test
+    void downloadImage_withUnsatisfiableRange_returnsRangeNotSatisfiable() throws Exception {
+        saveSampleFile();
+        mockMvc.perform(get("/api/image/sampleImage")
+                        .header(HttpHeaders.RANGE, "bytes=" + sampleContent.length + "-")
+                        .accept(MediaType.IMAGE_PNG_VALUE))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
     }
 
     @Test
@@ -114,6 +232,27 @@ class ImageControllerIntegrationTest {
         assertNotNull(response);
     }
 
+    @Test
+    void prometheus_afterUpload_exposesStageMetrics() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("images", "image.jpg", MediaType.IMAGE_JPEG_VALUE, getClass().getResourceAsStream("/test1.jpg"));
+        mockMvc.perform(multipart("/api/images")
+                        .file(image)
+                        .param("width", "100")
+                        .param("height", "100")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("image_pipeline_stage_duration_seconds_bucket{stage=\"resize\"")))
+                .andExpect(content().string(containsString("image_pipeline_stage_duration_seconds_count{stage=\"validate\"}")))
+                .andExpect(content().string(containsString("image_pipeline_stage_duration_seconds_count{stage=\"save\"}")))
+                .andExpect(content().string(containsString("image_pipeline_bytes_in_bytes_count{stage=\"ingest\"}")))
+                .andExpect(content().string(containsString("image_pipeline_bytes_out_bytes_count{stage=\"resize\"}")))
+                .andExpect(content().string(containsString("cache_gets_total{cache=\"image.content\"")))
+                .andExpect(content().string(containsString("cache_weighted_size_bytes{cache=\"image.variants\"}")));
+    }
+
     @Test
     void uploadImages_withInvalidFileType_returnsBadRequest() throws Exception {
         MockMultipartFile image = new MockMultipartFile("images", "document.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf content".getBytes());
@@ -125,4 +264,265 @@ class ImageControllerIntegrationTest {
                         .contentType(MediaType.MULTIPART_FORM_DATA))
                 .andExpect(status().isBadRequest());
     }
+
+    @Test
+    void uploadImages_withImageAboveSizeLimit_returnsPayloadTooLarge() throws Exception {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(5001, 1, BufferedImage.TYPE_BYTE_GRAY), "png", png);
+        MockMultipartFile image = new MockMultipartFile("images", "wide.png", MediaType.IMAGE_PNG_VALUE, png.toByteArray());
+
+        mockMvc.perform(multipart("/api/images")
+                        .file(image)
+                        .param("width", "100")
+                        .param("height", "100")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void uploadImages_withInvalidFormat_returnsBadRequest() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("images", "image.jpg", MediaType.IMAGE_JPEG_VALUE, getClass().getResourceAsStream("/test1.jpg"));
+
+        mockMvc.perform(multipart("/api/images")
+                        .file(image)
+                        .param("width", "100")
+                        .param("height", "100")
+                        .param("format", "gif")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void uploadImages_withSizes_storesLinkedRenditions() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("images", "image.jpg", MediaType.IMAGE_JPEG_VALUE, getClass().getResourceAsStream("/test1.jpg"));
+
+        mockMvc.perform(multipart("/api/images")
+                        .file(image)
+                        .param("sizes", "400x400", "100x100")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].width").value(400))
+                .andExpect(jsonPath("$[1].width").value(100));
+
+        List<ImageEntity> images = imageRepository.findAll();
+        assertEquals(2, images.size());
+        assertNotNull(images.get(0).getRenditionGroup());
+        assertEquals(images.get(0).getRenditionGroup(), images.get(1).getRenditionGroup());
+        assertEquals(images.get(0).getOriginalBlobKey(), images.get(1).getOriginalBlobKey());
+        assertNotEquals(images.get(0).getBlobKey(), images.get(1).getBlobKey());
+    }
+
+    @Test
+    void uploadImages_withSizesAndWidth_returnsBadRequest() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("images", "image.jpg", MediaType.IMAGE_JPEG_VALUE, getClass().getResourceAsStream("/test1.jpg"));
+
+        mockMvc.perform(multipart("/api/images")
+                        .file(image)
+                        .param("width", "100")
+                        .param("height", "100")
+                        .param("sizes", "400x400")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void downloadImage_withSize_returnsVariantRenderedFromOriginal() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("images", "image.jpg", MediaType.IMAGE_JPEG_VALUE, getClass().getResourceAsStream("/test1.jpg"));
+        MvcResult upload = mockMvc.perform(multipart("/api/images")
+                        .file(image)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isOk())
+                .andReturn();
+        String fileName = new ObjectMapper().readValue(upload.getResponse().getContentAsString(),
+                new TypeReference<List<UploadImageResponseDto>>() {
+                }).get(0).getFileName();
+
+        MvcResult result = mockMvc.perform(get("/api/image/" + fileName)
+                        .param("w", "40")
+                        .param("h", "40"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_JPEG_VALUE))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn();
+
+        BufferedImage variant = ImageIO.read(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()));
+        assertEquals(40, Math.max(variant.getWidth(), variant.getHeight()));
+
+        mockMvc.perform(get("/api/image/" + fileName)
+                        .param("w", "40")
+                        .param("h", "40")
+                        .header(HttpHeaders.IF_NONE_MATCH, result.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void downloadImage_withOnlyWidth_returnsBadRequest() throws Exception {
+        saveSampleFile();
+        mockMvc.perform(get("/api/image/sampleImage")
+                        .param("w", "40"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void uploadImages_withSameImageTwice_sharesStoredBlobs() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            MockMultipartFile image = new MockMultipartFile("images", "image.jpg", MediaType.IMAGE_JPEG_VALUE, getClass().getResourceAsStream("/test1.jpg"));
+            mockMvc.perform(multipart("/api/images")
+                            .file(image)
+                            .param("width", "100")
+                            .param("height", "100")
+                            .contentType(MediaType.MULTIPART_FORM_DATA))
+                    .andExpect(status().isOk());
+        }
+
+        List<ImageEntity> images = imageRepository.findAll();
+        assertEquals(2, images.size());
+        assertNotEquals(images.get(0).getFileName(), images.get(1).getFileName());
+        assertEquals(images.get(0).getBlobKey(), images.get(1).getBlobKey());
+    }
+
+    @Test
+    void findRenditionsBySourceHashIn_afterRepeatedUploads_returnsOneImagePerSizeAndFormat() throws Exception {
+        for (String size : List.of("100", "100", "100", "50")) {
+            MockMultipartFile image = new MockMultipartFile("images", "image.jpg", MediaType.IMAGE_JPEG_VALUE, getClass().getResourceAsStream("/test1.jpg"));
+            mockMvc.perform(multipart("/api/images")
+                            .file(image)
+                            .param("width", size)
+                            .param("height", size)
+                            .contentType(MediaType.MULTIPART_FORM_DATA))
+                    .andExpect(status().isOk());
+        }
+
+        List<ImageEntity> images = imageRepository.findAll();
+        assertEquals(4, images.size());
+        List<ImageEntity> renditions = imageRepository.findRenditionsBySourceHashIn(Set.of(images.get(0).getSourceHash()));
+        assertEquals(2, renditions.size());
+        assertEquals(Set.of(100, 50), renditions.stream().map(ImageEntity::getWidth).collect(Collectors.toSet()));
+        long firstId = images.stream().filter(image -> image.getWidth() == 100).mapToLong(ImageEntity::getId).min().orElseThrow();
+        assertTrue(renditions.stream().anyMatch(image -> image.getId() == firstId));
+        assertEquals(1, images.stream().map(ImageEntity::getOriginalBlobKey).distinct().count());
+    }
+
+    @Test
+    void removeUnreferencedBlobs_deletesOldBlobsNoImageRefersTo() throws Exception {
+        ImageEntity image = saveSampleFile();
+        byte[] orphan = new byte[16];
+        new Random().nextBytes(orphan);
+        String orphanKey = blobStore.put(orphan);
+        makeOld(image.getBlobKey());
+        makeOld(orphanKey);
+
+        blobCleanupService.removeUnreferencedBlobs();
+
+        assertNotNull(blobStore.read(image.getBlobKey()));
+        assertThrows(NoSuchFileException.class, () -> blobStore.read(orphanKey));
+    }
+
+    private void makeOld(String blobKey) throws Exception {
+        Path blob = storageDirectory.resolve(blobKey.substring(0, 2)).resolve(blobKey.substring(2, 4)).resolve(blobKey);
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now().minus(Duration.ofDays(7))));
+    }
+
+    @Test
+    void saveImages_withDuplicateFileName_reportsFileNameConstraint() throws Exception {
+        ImageEntity image = saveSampleFile();
+        ImageEntity duplicate = ImageEntity.builder().fileName(image.getFileName()).fileType(image.getFileType())
+                .fileSize(image.getFileSize()).blobKey(image.getBlobKey()).width(image.getWidth()).height(image.getHeight()).build();
+
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> imageTransactionService.saveImages(List.of(duplicate)));
+
+        ConstraintViolationException violation = assertInstanceOf(ConstraintViolationException.class, exception.getCause());
+        assertTrue(violation.getConstraintName().toLowerCase(Locale.ROOT).contains(ImageEntity.FILE_NAME_CONSTRAINT));
+    }
+
+    @Test
+    void submitUploadJob_withValidImages_returnsAcceptedAndUploadsInBackground() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("images", "image.jpg", MediaType.IMAGE_JPEG_VALUE, getClass().getResourceAsStream("/test1.jpg"));
+
+        MvcResult submitted = mockMvc.perform(multipart("/api/images/jobs")
+                        .file(image)
+                        .param("width", "100")
+                        .param("height", "100")
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists(HttpHeaders.LOCATION))
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andReturn();
+
+        String location = submitted.getResponse().getHeader(HttpHeaders.LOCATION);
+        UploadJobDto job = null;
+        for (int i = 0; i < 500 && (job == null || job.getStatus() == UploadJobDto.StatusEnum.QUEUED
+                || job.getStatus() == UploadJobDto.StatusEnum.RUNNING); i++) {
+            Thread.sleep(10);
+            MvcResult result = mockMvc.perform(get(location))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            job = new ObjectMapper().readValue(result.getResponse().getContentAsString(), UploadJobDto.class);
+        }
+        assertNotNull(job);
+        assertEquals(UploadJobDto.StatusEnum.DONE, job.getStatus());
+        assertEquals(1, job.getImages().size());
+        assertEquals(1, imageRepository.findAll().size());
+    }
+
+    @Test
+    void submitUploadJob_withInvalidFileType_returnsBadRequest() throws Exception {
+        MockMultipartFile image = new MockMultipartFile("images", "document.pdf", MediaType.APPLICATION_PDF_VALUE, "pdf content".getBytes());
+
+        mockMvc.perform(multipart("/api/images/jobs")
+                        .file(image)
+                        .contentType(MediaType.MULTIPART_FORM_DATA))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getUploadJob_withUnknownId_returnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/images/jobs/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void chunkedUpload_withRetriedChunk_assemblesAndUploadsImage() throws Exception {
+        byte[] content;
+        try (var inputStream = getClass().getResourceAsStream("/test1.jpg")) {
+            content = inputStream.readAllBytes();
+        }
+        MvcResult created = mockMvc.perform(post("/api/uploads"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.receivedChunks").value(0))
+                .andReturn();
+        String location = created.getResponse().getHeader(HttpHeaders.LOCATION);
+
+        int half = content.length / 2;
+        mockMvc.perform(put(location + "/chunks/0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(Arrays.copyOfRange(content, 0, half)))
+                .andExpect(status().isOk());
+        mockMvc.perform(put(location + "/chunks/0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(Arrays.copyOfRange(content, 0, half)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.receivedChunks").value(1));
+        mockMvc.perform(put(location + "/chunks/2")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[]{1}))
+                .andExpect(status().isConflict());
+        mockMvc.perform(put(location + "/chunks/1")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(Arrays.copyOfRange(content, half, content.length)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.receivedBytes").value(content.length));
+
+        mockMvc.perform(post(location + "/commit")
+                        .param("width", "100")
+                        .param("height", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        assertEquals(1, imageRepository.findAll().size());
+        mockMvc.perform(get(location))
+                .andExpect(status().isNotFound());
+    }
 }
\ No newline at end of file
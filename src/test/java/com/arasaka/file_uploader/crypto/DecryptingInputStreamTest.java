@@ -0,0 +1,134 @@
+package com.arasaka.file_uploader.crypto;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecryptingInputStreamTest {
+
+    private static final int CHUNK_SIZE = 4;
+    private static final int SEALED_CHUNK_SIZE = CHUNK_SIZE + ChunkedEncryptionFormat.TAG_LENGTH;
+
+    private SecretKey secretKey;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(256);
+        secretKey = keyGenerator.generateKey();
+    }
+
+    @Test
+    void read_withValidChunks_returnsDecryptedBytes() throws Exception {
+        byte[] encrypted = encrypt(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+
+        assertEquals(ChunkedEncryptionFormat.HEADER_LENGTH + 2 * SEALED_CHUNK_SIZE + ChunkedEncryptionFormat.TAG_LENGTH + 2, encrypted.length);
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, decrypt(encrypted));
+    }
+
+    @Test
+    void read_withSingleByteReads_returnsDecryptedBytes() throws Exception {
+        try (InputStream in = new DecryptingInputStream(new ByteArrayInputStream(encrypt(new byte[]{1, 2, 3, 4, 5})), secretKey)) {
+            for (int i = 1; i <= 5; i++) {
+                assertEquals(i, in.read());
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void read_withTruncatedLastChunk_throwsException() throws Exception {
+        byte[] encrypted = encrypt(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        byte[] truncated = Arrays.copyOf(encrypted, ChunkedEncryptionFormat.HEADER_LENGTH + SEALED_CHUNK_SIZE);
+
+        IOException exception = assertThrows(IOException.class, () -> decrypt(truncated));
+        assertInstanceOf(AEADBadTagException.class, exception.getCause());
+    }
+
+    @Test
+    void read_withReorderedChunks_throwsException() throws Exception {
+        byte[] encrypted = encrypt(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        byte[] reordered = encrypted.clone();
+        System.arraycopy(encrypted, ChunkedEncryptionFormat.HEADER_LENGTH, reordered,
+                ChunkedEncryptionFormat.HEADER_LENGTH + SEALED_CHUNK_SIZE, SEALED_CHUNK_SIZE);
+        System.arraycopy(encrypted, ChunkedEncryptionFormat.HEADER_LENGTH + SEALED_CHUNK_SIZE, reordered,
+                ChunkedEncryptionFormat.HEADER_LENGTH, SEALED_CHUNK_SIZE);
+
+        assertThrows(IOException.class, () -> decrypt(reordered));
+    }
+
+    @Test
+    void read_withTamperedHeader_throwsException() throws Exception {
+        byte[] encrypted = encrypt(new byte[]{1, 2, 3});
+        encrypted[ChunkedEncryptionFormat.HEADER_LENGTH - 1] ^= 1;
+
+        assertThrows(IOException.class, () -> decrypt(encrypted));
+    }
+
+    @Test
+    void skip_overWholeChunks_returnsRemainingBytes() throws Exception {
+        try (InputStream in = new DecryptingInputStream(new ByteArrayInputStream(encrypt(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10})), secretKey)) {
+            assertEquals(1, in.read());
+            assertEquals(7, in.skip(7));
+            assertArrayEquals(new byte[]{9, 10}, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void skip_withTamperedSkippedChunk_doesNotDecryptIt() throws Exception {
+        byte[] encrypted = encrypt(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        encrypted[ChunkedEncryptionFormat.HEADER_LENGTH] ^= 1;
+
+        try (InputStream in = new DecryptingInputStream(new ByteArrayInputStream(encrypted), secretKey)) {
+            assertEquals(CHUNK_SIZE, in.skip(CHUNK_SIZE));
+            assertArrayEquals(new byte[]{5, 6, 7, 8, 9, 10}, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void skip_pastEnd_returnsSkippedBytes() throws Exception {
+        try (InputStream in = new DecryptingInputStream(new ByteArrayInputStream(encrypt(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})), secretKey)) {
+            assertEquals(8, in.skip(100));
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void skip_withTruncatedLastChunk_throwsException() throws Exception {
+        byte[] encrypted = encrypt(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        byte[] truncated = Arrays.copyOf(encrypted, ChunkedEncryptionFormat.HEADER_LENGTH + 2 * SEALED_CHUNK_SIZE);
+
+        try (InputStream in = new DecryptingInputStream(new ByteArrayInputStream(truncated), secretKey)) {
+            assertThrows(IOException.class, () -> in.skip(8));
+        }
+    }
+
+    @Test
+    void constructor_withMissingHeader_throwsException() {
+        assertThrows(IOException.class, () -> new DecryptingInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3}), secretKey));
+    }
+
+    private byte[] encrypt(byte[] data) throws IOException {
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        try (EncryptingOutputStream out = new EncryptingOutputStream(encrypted, secretKey, CHUNK_SIZE)) {
+            out.write(data);
+        }
+        return encrypted.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] encrypted) throws IOException {
+        try (InputStream in = new DecryptingInputStream(new ByteArrayInputStream(encrypted), secretKey)) {
+            return in.readAllBytes();
+        }
+    }
+}
\ No newline at end of file
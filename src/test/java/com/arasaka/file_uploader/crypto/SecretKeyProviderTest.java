@@ -0,0 +1,38 @@
+package com.arasaka.file_uploader.crypto;
+
+import com.arasaka.file_uploader.util.KeyGeneratorUtil;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import javax.crypto.SecretKey;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class SecretKeyProviderTest {
+
+    @Test
+    void getSecretKey_loadsKeyOnlyOnce() throws Exception {
+        try (MockedStatic<KeyGeneratorUtil> mockedKeyGen = Mockito.mockStatic(KeyGeneratorUtil.class)) {
+            SecretKey secretKey = mock(SecretKey.class);
+            mockedKeyGen.when(KeyGeneratorUtil::getOrGenerateSecretKey).thenReturn(secretKey);
+
+            SecretKeyProvider secretKeyProvider = new SecretKeyProvider();
+
+            assertSame(secretKey, secretKeyProvider.getSecretKey());
+            assertSame(secretKey, secretKeyProvider.getSecretKey());
+            mockedKeyGen.verify(KeyGeneratorUtil::getOrGenerateSecretKey, Mockito.times(1));
+        }
+    }
+
+    @Test
+    void constructor_withKeyLoadingError_throwsException() {
+        try (MockedStatic<KeyGeneratorUtil> mockedKeyGen = Mockito.mockStatic(KeyGeneratorUtil.class)) {
+            mockedKeyGen.when(KeyGeneratorUtil::getOrGenerateSecretKey).thenThrow(new Exception("Key error"));
+
+            assertThrows(Exception.class, SecretKeyProvider::new);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package com.arasaka.file_uploader.resample;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class ResamplerTest {
+
+    @Test
+    void compute_weightsOfEveryTargetPixelSumToOneAndStayInsideTheSource() {
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            for (int[] lengths : new int[][]{{4000, 800}, {2000, 800}, {801, 800}, {100, 333}, {5, 3}, {1, 7}}) {
+                ResampleWeights weights = ResampleWeights.compute(lengths[0], lengths[1], filter, 8);
+
+                for (int o = 0; o < lengths[1]; o++) {
+                    float sum = 0;
+                    for (int k = 0; k < weights.taps; k++) {
+                        sum += weights.weights[o * weights.taps + k];
+                    }
+                    assertEquals(1, sum, 1e-4, filter + " " + lengths[0] + " to " + lengths[1]);
+                    assertTrue(weights.starts[o] >= 0 && weights.starts[o] + weights.taps <= lengths[0]);
+                }
+            }
+        }
+    }
+
+    @Test
+    void resize_flatImage_keepsColor() {
+        BufferedImage image = new BufferedImage(90, 70, BufferedImage.TYPE_3BYTE_BGR);
+        fill(image, new Color(10, 200, 90).getRGB());
+
+        for (ResampleFilter filter : ResampleFilter.values()) {
+            for (int[] size : new int[][]{{30, 20}, {200, 150}}) {
+                BufferedImage resized = new Resampler(filter, new ScalarResampleKernel()).resize(image, size[0], size[1]);
+
+                assertEquals(size[0], resized.getWidth());
+                assertEquals(size[1], resized.getHeight());
+                assertEquals(new Color(10, 200, 90).getRGB(), resized.getRGB(size[0] / 2, size[1] - 1));
+            }
+        }
+    }
+
+    @Test
+    void resize_downscalingStripesByTwo_averagesPixels() {
+        BufferedImage stripes = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 100; y++) {
+                stripes.setRGB(x, y, x % 2 == 0 ? 0xFF0000 : 0x0000FF);
+            }
+        }
+
+        BufferedImage resized = new Resampler(ResampleFilter.LANCZOS3, new ScalarResampleKernel()).resize(stripes, 50, 50);
+
+        Color color = new Color(resized.getRGB(25, 25));
+        assertEquals(127, color.getRed(), 1);
+        assertEquals(0, color.getGreen());
+        assertEquals(127, color.getBlue(), 1);
+    }
+
+    @Test
+    void resize_withAlpha_keepsAlphaChannel() {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        fill(image, new Color(255, 0, 0, 128).getRGB());
+
+        BufferedImage resized = new Resampler(ResampleFilter.LANCZOS3, new ScalarResampleKernel()).resize(image, 16, 16);
+
+        assertEquals(BufferedImage.TYPE_4BYTE_ABGR, resized.getType());
+        assertEquals(new Color(255, 0, 0, 128).getRGB(), resized.getRGB(8, 8));
+    }
+
+    @Test
+    void create_withoutVectorApi_returnsScalarKernel() {
+        assumeFalse(ResampleKernel.vectorApiAvailable(), "run with --add-modules jdk.incubator.vector");
+        assertInstanceOf(ScalarResampleKernel.class, ResampleKernel.create());
+    }
+
+    private static void fill(BufferedImage image, int argb) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, argb);
+            }
+        }
+    }
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.arasaka.file_uploader.resample;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests of the SIMD kernel, only compiled and run by the vector Maven profile.
+ */
+class VectorResampleKernelTest {
+
+    @Test
+    void resize_matchesScalarKernel() {
+        assumeTrue(ResampleKernel.vectorApiAvailable(), "run without --add-modules jdk.incubator.vector");
+        assertInstanceOf(VectorResampleKernel.class, ResampleKernel.create());
+        Random random = new Random(42);
+
+        for (int type : new int[]{BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_RGB}) {
+            BufferedImage image = new BufferedImage(333, 217, type);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, random.nextInt());
+                }
+            }
+            for (ResampleFilter filter : ResampleFilter.values()) {
+                for (int[] size : new int[][]{{97, 61}, {31, 200}, {500, 400}}) {
+                    BufferedImage scalar = new Resampler(filter, new ScalarResampleKernel()).resize(image, size[0], size[1]);
+                    BufferedImage vector = new Resampler(filter, new VectorResampleKernel()).resize(image, size[0], size[1]);
+
+                    byte[] scalarPixels = pixels(scalar);
+                    byte[] vectorPixels = pixels(vector);
+                    for (int i = 0; i < scalarPixels.length; i++) {
+                        // the kernels add the same products in a different order, which can round a sample to the next level
+                        assertEquals(scalarPixels[i] & 0xFF, vectorPixels[i] & 0xFF, 1, filter + " " + size[0] + "x" + size[1]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.service.ImageTransactionService;
+import com.arasaka.file_uploader.storage.BlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoSettings;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@MockitoSettings
+class BlobCleanupServiceImplTest {
+
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private ImageTransactionService imageTransactionService;
+
+    private BlobCleanupServiceImpl blobCleanupService;
+
+    @BeforeEach
+    void setUp() {
+        blobCleanupService = new BlobCleanupServiceImpl(blobStore, imageTransactionService, Duration.ofHours(1));
+    }
+
+    @Test
+    void removeUnreferencedBlobs_deletesOnlyUnreferencedBlobs() {
+        when(blobStore.keysStoredBefore(any())).thenReturn(Stream.of("referenced", "unreferenced"));
+        when(imageTransactionService.findReferencedBlobKeys(List.of("referenced", "unreferenced"))).thenReturn(Set.of("referenced"));
+
+        int removed = blobCleanupService.removeUnreferencedBlobs();
+
+        assertEquals(1, removed);
+        verify(blobStore, times(1)).delete("unreferenced");
+        verify(blobStore, never()).delete("referenced");
+    }
+
+    @Test
+    void removeUnreferencedBlobs_listsOnlyBlobsOlderThanGracePeriod() {
+        when(blobStore.keysStoredBefore(any())).thenReturn(Stream.empty());
+
+        Instant before = Instant.now();
+        blobCleanupService.removeUnreferencedBlobs();
+
+        verify(blobStore).keysStoredBefore(argThat(cutoff -> !cutoff.isAfter(Instant.now().minus(Duration.ofHours(1)))
+                && !cutoff.isBefore(before.minus(Duration.ofHours(1)))));
+        verifyNoInteractions(imageTransactionService);
+    }
+
+    @Test
+    void removeUnreferencedBlobs_checksReferencesInBatches() {
+        List<String> keys = IntStream.range(0, 501).mapToObj(i -> "key" + i).toList();
+        when(blobStore.keysStoredBefore(any())).thenReturn(keys.stream());
+        when(imageTransactionService.findReferencedBlobKeys(any())).thenAnswer(invocation -> Set.copyOf(invocation.getArgument(0)));
+
+        int removed = blobCleanupService.removeUnreferencedBlobs();
+
+        assertEquals(0, removed);
+        verify(imageTransactionService, times(2)).findReferencedBlobKeys(any());
+        verify(blobStore, never()).delete(any());
+    }
+}
\ No newline at end of file
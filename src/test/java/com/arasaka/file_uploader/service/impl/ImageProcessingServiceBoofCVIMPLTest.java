@@ -0,0 +1,139 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.type.ImageValidType;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProcessingServiceBoofCVIMPLTest {
+
+    private final ImageProcessingServiceBoofCVIMPL imageProcessingService = new ImageProcessingServiceBoofCVIMPL(0.75f, false, 4);
+
+    @Test
+    void resizeImage_withValidImage_returnsResizedImage() throws IOException {
+        byte[] resizedImageBytes = resize(createTestImage(100, 100, BufferedImage.TYPE_INT_RGB, "jpg"), 50, 50, ImageValidType.JPEG);
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resizedImageBytes));
+        assertEquals(50, resizedImage.getWidth());
+        assertEquals(50, resizedImage.getHeight());
+    }
+
+    @Test
+    void resizeImage_withDifferentProportions_returnsSameSizeAsImgScalr() throws IOException {
+        ImageProcessingServiceImgScalrIMPL imgScalrService = new ImageProcessingServiceImgScalrIMPL(0.75f, false, 4);
+        byte[] landscapeImage = createTestImage(300, 170, BufferedImage.TYPE_INT_RGB, "png");
+        byte[] portraitImage = createTestImage(170, 300, BufferedImage.TYPE_INT_RGB, "png");
+
+        for (byte[] image : new byte[][]{landscapeImage, portraitImage}) {
+            BufferedImage boofCvImage = ImageIO.read(new ByteArrayInputStream(resize(image, 100, 100, ImageValidType.PNG)));
+            ByteArrayOutputStream imgScalrTarget = new ByteArrayOutputStream();
+            imgScalrService.resizeImage(new ByteArrayInputStream(image), imgScalrTarget, 100, 100, ImageValidType.PNG);
+            BufferedImage imgScalrImage = ImageIO.read(new ByteArrayInputStream(imgScalrTarget.toByteArray()));
+
+            assertEquals(imgScalrImage.getWidth(), boofCvImage.getWidth());
+            assertEquals(imgScalrImage.getHeight(), boofCvImage.getHeight());
+        }
+    }
+
+    @Test
+    void resizeImage_downscaling_averagesPixels() throws IOException {
+        BufferedImage stripes = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 100; x += 2) {
+            for (int y = 0; y < 100; y++) {
+                stripes.setRGB(x, y, 0xFF0000);
+                stripes.setRGB(x + 1, y, 0x0000FF);
+            }
+        }
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resize(encode(stripes, "png"), 50, 50, ImageValidType.PNG)));
+
+        Color color = new Color(resizedImage.getRGB(25, 25));
+        assertEquals(127, color.getRed(), 1);
+        assertEquals(0, color.getGreen());
+        assertEquals(127, color.getBlue(), 1);
+    }
+
+    @Test
+    void resizeImage_upscaling_keepsColors() throws IOException {
+        byte[] originalImageBytes = encode(filledImage(20, 20, BufferedImage.TYPE_3BYTE_BGR, new Color(10, 200, 90)), "png");
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resize(originalImageBytes, 80, 80, ImageValidType.PNG)));
+
+        assertEquals(80, resizedImage.getWidth());
+        assertEquals(new Color(10, 200, 90).getRGB(), resizedImage.getRGB(40, 40));
+    }
+
+    @Test
+    void resizeImage_withPngFormat_returnsPngWithAlpha() throws IOException {
+        byte[] originalImageBytes = encode(filledImage(100, 100, BufferedImage.TYPE_INT_ARGB, new Color(255, 0, 0, 128)), "png");
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resize(originalImageBytes, 50, 50, ImageValidType.PNG)));
+
+        assertTrue(resizedImage.getColorModel().hasAlpha());
+        assertEquals(new Color(255, 0, 0, 128).getRGB(), resizedImage.getRGB(10, 10));
+    }
+
+    @Test
+    void resizeImage_withPngWithAlphaToJpegFormat_returnsJpeg() throws IOException {
+        byte[] originalImageBytes = createTestImage(100, 100, BufferedImage.TYPE_INT_ARGB, "png");
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resize(originalImageBytes, 50, 50, ImageValidType.JPEG)));
+
+        assertFalse(resizedImage.getColorModel().hasAlpha());
+        assertEquals(50, resizedImage.getWidth());
+    }
+
+    @Test
+    void resizeImage_withImageAboveSizeLimit_throwsIllegalArgumentException() throws IOException {
+        byte[] oversizedImageBytes = createTestImage(5001, 10, BufferedImage.TYPE_INT_RGB, "jpg");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> resize(oversizedImageBytes, 50, 50, ImageValidType.JPEG));
+        assertEquals("Image size exceeds limit", exception.getMessage());
+    }
+
+    @Test
+    void fittedSize_fitsLandscapeToWidthAndPortraitToHeight() {
+        assertArrayEquals(new int[]{100, 50}, AbstractImageProcessingService.fittedSize(2000, 1000, 100, 100));
+        assertArrayEquals(new int[]{50, 100}, AbstractImageProcessingService.fittedSize(1000, 2000, 100, 100));
+        assertArrayEquals(new int[]{100, 1}, AbstractImageProcessingService.fittedSize(5000, 10, 100, 100));
+    }
+
+    private byte[] resize(byte[] image, int width, int height, ImageValidType format) {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        imageProcessingService.resizeImage(new ByteArrayInputStream(image), target, width, height, format);
+        return target.toByteArray();
+    }
+
+    private static BufferedImage filledImage(int width, int height, int type, Color color) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.setColor(color);
+            graphics.fillRect(0, 0, width, height);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static byte[] createTestImage(int width, int height, int type, String formatName) throws IOException {
+        return encode(new BufferedImage(width, height, type), formatName);
+    }
+
+    private static byte[] encode(BufferedImage image, String formatName) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, formatName, baos);
+        return baos.toByteArray();
+    }
+}
\ No newline at end of file
@@ -1,27 +1,29 @@
 package com.arasaka.file_uploader.service.impl;
 
+import com.arasaka.file_uploader.domain.TargetSize;
+import com.arasaka.file_uploader.type.ImageValidType;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
-import org.mockito.junit.jupiter.MockitoSettings;
 
 import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
-@MockitoSettings
 class ImageProcessingServiceImgScalrIMPLTest {
 
-    @InjectMocks
-    private ImageProcessingServiceImgScalrIMPL imageProcessingService;
+    private final ImageProcessingServiceImgScalrIMPL imageProcessingService = new ImageProcessingServiceImgScalrIMPL(0.75f, false, 4);
 
     @Test
     void resizeImage_withValidImage_returnsResizedImage() throws IOException {
         byte[] originalImageBytes = createTestImage(100, 100);
-        byte[] resizedImageBytes = imageProcessingService.resizeImage(originalImageBytes, 50, 50);
+        byte[] resizedImageBytes = resize(imageProcessingService, originalImageBytes, 50, 50, ImageValidType.JPEG);
 
         assertNotNull(resizedImageBytes);
         BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resizedImageBytes));
@@ -29,22 +31,161 @@ class ImageProcessingServiceImgScalrIMPLTest {
         assertEquals(50, resizedImage.getHeight());
     }
 
+    @Test
+    void resizeImage_withLargeImage_returnsImageOfTargetSize() throws IOException {
+        byte[] originalImageBytes = createTestImage(2000, 1000);
+        byte[] resizedImageBytes = resize(imageProcessingService, originalImageBytes, 100, 50, ImageValidType.JPEG);
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resizedImageBytes));
+        assertEquals(100, resizedImage.getWidth());
+        assertEquals(50, resizedImage.getHeight());
+    }
+
+    @Test
+    void resizeImage_withImageAboveSizeLimit_throwsIllegalArgumentException() throws IOException {
+        byte[] oversizedImageBytes = createTestImage(5001, 10);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> resize(imageProcessingService, oversizedImageBytes, 50, 50, ImageValidType.JPEG));
+        assertEquals("Image size exceeds limit", exception.getMessage());
+    }
+
     @Test
     void resizeImage_withInvalidImage_throwsRuntimeException() {
         byte[] invalidImageBytes = new byte[]{0, 1, 2, 3};
 
-        assertThrows(RuntimeException.class, () -> imageProcessingService.resizeImage(invalidImageBytes, 50, 50));
+        assertThrows(RuntimeException.class, () -> resize(imageProcessingService, invalidImageBytes, 50, 50, ImageValidType.JPEG));
     }
 
     @Test
     void resizeImage_withNullImage_throwsRuntimeException() {
-        assertThrows(RuntimeException.class, () -> imageProcessingService.resizeImage(null, 50, 50));
+        assertThrows(RuntimeException.class, () -> imageProcessingService.resizeImage(null, new ByteArrayOutputStream(), 50, 50, ImageValidType.JPEG));
+    }
+
+    @Test
+    void resizeImage_withPngFormat_returnsPngWithAlpha() throws IOException {
+        byte[] originalImageBytes = createTestImage(100, 100, BufferedImage.TYPE_INT_ARGB, "png");
+        byte[] resizedImageBytes = resize(imageProcessingService, originalImageBytes, 50, 50, ImageValidType.PNG);
+
+        assertTrue(isFormat(resizedImageBytes, "png"));
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resizedImageBytes));
+        assertTrue(resizedImage.getColorModel().hasAlpha());
+        assertEquals(50, resizedImage.getWidth());
+    }
+
+    @Test
+    void resizeImage_withPngWithAlphaToJpegFormat_returnsJpeg() throws IOException {
+        byte[] originalImageBytes = createTestImage(100, 100, BufferedImage.TYPE_INT_ARGB, "png");
+        byte[] resizedImageBytes = resize(imageProcessingService, originalImageBytes, 50, 50, ImageValidType.JPEG);
+
+        assertTrue(isFormat(resizedImageBytes, "jpeg"));
+        assertEquals(50, ImageIO.read(new ByteArrayInputStream(resizedImageBytes)).getWidth());
+    }
+
+    @Test
+    void resizeImage_withHigherJpegQuality_returnsLargerImage() throws IOException {
+        byte[] originalImageBytes = createNoiseImage(200, 200);
+        ImageProcessingServiceImgScalrIMPL highQualityService = new ImageProcessingServiceImgScalrIMPL(0.95f, true, 4);
+
+        byte[] lowQualityBytes = resize(imageProcessingService, originalImageBytes, 100, 100, ImageValidType.JPEG);
+        byte[] highQualityBytes = resize(highQualityService, originalImageBytes, 100, 100, ImageValidType.JPEG);
+
+        assertTrue(highQualityBytes.length > lowQualityBytes.length);
+    }
+
+    @Test
+    void resizeImage_withHigherPngCompressionLevel_returnsSmallerImage() throws IOException {
+        byte[] originalImageBytes = createTestImage(200, 200, BufferedImage.TYPE_INT_RGB, "png");
+        ImageProcessingServiceImgScalrIMPL uncompressedService = new ImageProcessingServiceImgScalrIMPL(0.75f, false, 0);
+
+        byte[] compressedBytes = resize(imageProcessingService, originalImageBytes, 100, 100, ImageValidType.PNG);
+        byte[] uncompressedBytes = resize(uncompressedService, originalImageBytes, 100, 100, ImageValidType.PNG);
+
+        assertTrue(compressedBytes.length < uncompressedBytes.length);
+    }
+
+    @Test
+    void constructor_withInvalidSettings_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new ImageProcessingServiceImgScalrIMPL(1.5f, false, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ImageProcessingServiceImgScalrIMPL(0.75f, false, 10));
+    }
+
+    @Test
+    void resizeImage_returnsNumberOfBytesWritten_andLeavesTargetOpen() throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        target.write(new byte[]{1, 2, 3});
+
+        long encodedSize = imageProcessingService.resizeImage(new ByteArrayInputStream(createTestImage(100, 100)), target, 50, 50, ImageValidType.PNG);
+
+        assertEquals(target.size() - 3, encodedSize);
+        target.write(4);
+        assertEquals(encodedSize + 4, target.size());
+    }
+
+    @Test
+    void renderRenditions_rendersEverySizeFromLargestToSmallest() throws IOException {
+        List<TargetSize> sizes = List.of(new TargetSize(100, 100), new TargetSize(800, 800), new TargetSize(400, 400));
+        List<Integer> order = new ArrayList<>();
+        byte[][] renditions = new byte[sizes.size()][];
+
+        imageProcessingService.renderRenditions(new ByteArrayInputStream(createTestImage(2000, 1000)), sizes, ImageValidType.PNG, (index, encoder) -> {
+            ByteArrayOutputStream target = new ByteArrayOutputStream();
+            assertEquals(encoder.encodeTo(target), target.size());
+            order.add(index);
+            renditions[index] = target.toByteArray();
+        });
+
+        assertEquals(List.of(1, 2, 0), order);
+        for (int i = 0; i < sizes.size(); i++) {
+            assertTrue(isFormat(renditions[i], "png"));
+            BufferedImage rendition = ImageIO.read(new ByteArrayInputStream(renditions[i]));
+            assertEquals(sizes.get(i).width(), rendition.getWidth());
+            assertEquals(sizes.get(i).height() / 2, rendition.getHeight());
+        }
+    }
+
+    @Test
+    void renderRenditions_withImageAboveSizeLimit_throwsIllegalArgumentException() throws IOException {
+        byte[] oversizedImageBytes = createTestImage(5001, 10);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> imageProcessingService.renderRenditions(
+                new ByteArrayInputStream(oversizedImageBytes), List.of(new TargetSize(50, 50)), ImageValidType.JPEG, (index, encoder) -> fail()));
+        assertEquals("Image size exceeds limit", exception.getMessage());
+    }
+
+    private static byte[] resize(ImageProcessingServiceImgScalrIMPL service, byte[] image, int width, int height, ImageValidType format) {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        service.resizeImage(new ByteArrayInputStream(image), target, width, height, format);
+        return target.toByteArray();
     }
 
     private byte[] createTestImage(int width, int height) throws IOException {
+        return createTestImage(width, height, BufferedImage.TYPE_INT_RGB, "jpg");
+    }
+
+    private byte[] createTestImage(int width, int height, int type, String formatName) throws IOException {
+        BufferedImage bufferedImage = new BufferedImage(width, height, type);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, formatName, baos);
+        return baos.toByteArray();
+    }
+
+    private byte[] createNoiseImage(int width, int height) throws IOException {
         BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                bufferedImage.setRGB(x, y, random.nextInt());
+            }
+        }
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(bufferedImage, "jpg", baos);
+        ImageIO.write(bufferedImage, "png", baos);
         return baos.toByteArray();
     }
+
+    private boolean isFormat(byte[] image, String formatName) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            return ImageIO.getImageReaders(input).next().getFormatName().equalsIgnoreCase(formatName);
+        }
+    }
 }
\ No newline at end of file
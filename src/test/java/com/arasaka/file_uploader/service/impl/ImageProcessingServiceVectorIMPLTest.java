@@ -0,0 +1,145 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.resample.ResampleFilter;
+import com.arasaka.file_uploader.type.ImageValidType;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageProcessingServiceVectorIMPLTest {
+
+    private final ImageProcessingServiceVectorIMPL imageProcessingService = new ImageProcessingServiceVectorIMPL(0.75f, false, 4, ResampleFilter.LANCZOS3);
+    private final ImageProcessingServiceImgScalrIMPL imgScalrService = new ImageProcessingServiceImgScalrIMPL(0.75f, false, 4);
+
+    @Test
+    void resizeImage_withValidImage_returnsResizedImage() throws IOException {
+        byte[] resizedImageBytes = resize(imageProcessingService, createTestImage(100, 100, BufferedImage.TYPE_INT_RGB, "jpg"), 50, 50, ImageValidType.JPEG);
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resizedImageBytes));
+        assertEquals(50, resizedImage.getWidth());
+        assertEquals(50, resizedImage.getHeight());
+    }
+
+    @Test
+    void resizeImage_withDifferentProportions_returnsSameSizeAsImgScalr() throws IOException {
+        byte[] landscapeImage = createTestImage(300, 170, BufferedImage.TYPE_INT_RGB, "png");
+        byte[] portraitImage = createTestImage(170, 300, BufferedImage.TYPE_INT_RGB, "png");
+
+        for (byte[] image : new byte[][]{landscapeImage, portraitImage}) {
+            BufferedImage vectorImage = ImageIO.read(new ByteArrayInputStream(resize(imageProcessingService, image, 100, 100, ImageValidType.PNG)));
+            BufferedImage imgScalrImage = ImageIO.read(new ByteArrayInputStream(resize(imgScalrService, image, 100, 100, ImageValidType.PNG)));
+
+            assertEquals(imgScalrImage.getWidth(), vectorImage.getWidth());
+            assertEquals(imgScalrImage.getHeight(), vectorImage.getHeight());
+        }
+    }
+
+    @Test
+    void resizeImage_downscalingAndUpscaling_staysCloseToImgScalr() throws IOException {
+        byte[] image = encode(gradientImage(1200, 900), "png");
+
+        for (int size : new int[]{100, 300, 2000}) {
+            BufferedImage vectorImage = ImageIO.read(new ByteArrayInputStream(resize(imageProcessingService, image, size, size, ImageValidType.PNG)));
+            BufferedImage imgScalrImage = ImageIO.read(new ByteArrayInputStream(resize(imgScalrService, image, size, size, ImageValidType.PNG)));
+
+            assertTrue(psnr(vectorImage, imgScalrImage) > 32, "PSNR against ImgScalr at " + size + "px");
+        }
+    }
+
+    @Test
+    void resizeImage_withPngFormat_returnsPngWithAlpha() throws IOException {
+        byte[] originalImageBytes = encode(filledImage(100, 100, BufferedImage.TYPE_INT_ARGB, new Color(255, 0, 0, 128)), "png");
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resize(imageProcessingService, originalImageBytes, 50, 50, ImageValidType.PNG)));
+
+        assertTrue(resizedImage.getColorModel().hasAlpha());
+        assertEquals(new Color(255, 0, 0, 128).getRGB(), resizedImage.getRGB(10, 10));
+    }
+
+    @Test
+    void resizeImage_withPngWithAlphaToJpegFormat_returnsJpeg() throws IOException {
+        byte[] originalImageBytes = createTestImage(100, 100, BufferedImage.TYPE_INT_ARGB, "png");
+
+        BufferedImage resizedImage = ImageIO.read(new ByteArrayInputStream(resize(imageProcessingService, originalImageBytes, 50, 50, ImageValidType.JPEG)));
+
+        assertFalse(resizedImage.getColorModel().hasAlpha());
+        assertEquals(50, resizedImage.getWidth());
+    }
+
+    @Test
+    void resizeImage_withImageAboveSizeLimit_throwsIllegalArgumentException() throws IOException {
+        byte[] oversizedImageBytes = createTestImage(5001, 10, BufferedImage.TYPE_INT_RGB, "jpg");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> resize(imageProcessingService, oversizedImageBytes, 50, 50, ImageValidType.JPEG));
+        assertEquals("Image size exceeds limit", exception.getMessage());
+    }
+
+    private static byte[] resize(AbstractImageProcessingService service, byte[] image, int width, int height, ImageValidType format) {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        service.resizeImage(new ByteArrayInputStream(image), target, width, height, format);
+        return target.toByteArray();
+    }
+
+    private static double psnr(BufferedImage image, BufferedImage reference) {
+        double squaredError = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int referenceRgb = reference.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    squaredError += Math.pow((rgb >> shift & 0xFF) - (referenceRgb >> shift & 0xFF), 2);
+                }
+            }
+        }
+        double meanSquaredError = squaredError / (3.0 * image.getWidth() * image.getHeight());
+        return 10 * Math.log10(255 * 255 / meanSquaredError);
+    }
+
+    private static BufferedImage gradientImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = (x * 255 / width + random.nextInt(8)) & 0xFF;
+                int green = (y * 255 / height + random.nextInt(8)) & 0xFF;
+                int blue = ((x + y) * 127 / (width + height) + random.nextInt(8)) & 0xFF;
+                image.setRGB(x, y, red << 16 | green << 8 | blue);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage filledImage(int width, int height, int type, Color color) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setComposite(AlphaComposite.Src);
+            graphics.setColor(color);
+            graphics.fillRect(0, 0, width, height);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static byte[] createTestImage(int width, int height, int type, String formatName) throws IOException {
+        return encode(new BufferedImage(width, height, type), formatName);
+    }
+
+    private static byte[] encode(BufferedImage image, String formatName) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, formatName, baos);
+        return baos.toByteArray();
+    }
+}
\ No newline at end of file
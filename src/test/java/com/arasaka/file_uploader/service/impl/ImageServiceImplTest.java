@@ -1,24 +1,44 @@
 package com.arasaka.file_uploader.service.impl;
 
+import com.arasaka.file_uploader.cache.ImageContentCache;
+import com.arasaka.file_uploader.cache.ImageVariantCache;
+import com.arasaka.file_uploader.concurrent.ImageProcessingExecutor;
+import com.arasaka.file_uploader.crypto.SecretKeyProvider;
 import com.arasaka.file_uploader.domain.ImageEntity;
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.TargetSize;
 import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
 import com.arasaka.file_uploader.mapper.ImageMapper;
 import com.arasaka.file_uploader.service.ImageProcessingService;
 import com.arasaka.file_uploader.service.ImageTransactionService;
-import com.arasaka.file_uploader.util.ApacheUtil;
+import com.arasaka.file_uploader.storage.BlobStore;
+import com.arasaka.file_uploader.storage.BlobWriter;
+import com.arasaka.file_uploader.type.ImageValidType;
 import com.arasaka.file_uploader.util.FileEncryptionUtil;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoSettings;
-import org.springframework.mock.web.MockMultipartFile;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataIntegrityViolationException;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,6 +55,21 @@ class ImageServiceImplTest {
     @Mock
     private ImageMapper imageMapper;
 
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private SecretKeyProvider secretKeyProvider;
+
+    @Mock
+    private ImageProcessingExecutor imageProcessingExecutor;
+
+    @Mock
+    private ImageVariantCache imageVariantCache;
+
+    @Mock
+    private ImageContentCache imageContentCache;
+
     @InjectMocks
     private ImageServiceImpl imageService;
 
@@ -61,75 +96,532 @@ class ImageServiceImplTest {
     }
 
     @Test
-    void downloadAllImages_returnsListOfImageEntities() {
-        List<ImageEntity> images = List.of(new ImageEntity());
-        when(imageTransactionService.getAllImages()).thenReturn(images);
+    void getImageContent_readsBlobAndDecryptsIt() {
+        ImageEntity imageEntity = ImageEntity.builder().fileName("testImage").blobKey("blobKey").build();
+        when(blobStore.read("blobKey")).thenReturn(new byte[]{4, 5, 6});
 
-        List<ImageEntity> result = imageService.downloadAllImages();
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.decryptFileFromBytes(eq(new byte[]{4, 5, 6}), any()))
+                    .thenReturn(new byte[]{1, 2, 3});
 
-        assertNotNull(result);
-        assertEquals(images, result);
-        verify(imageTransactionService, times(1)).getAllImages();
+            byte[] result = imageService.getImageContent(imageEntity);
+
+            assertArrayEquals(new byte[]{1, 2, 3}, result);
+            verify(blobStore, times(1)).read("blobKey");
+        }
     }
 
     @Test
-    void uploadImages_withValidImages_returnsUploadImageResponseDtos() {
-        List<MultipartFile> images = List.of(new MockMultipartFile("tst", new byte[]{1, 2, 3}));
-        byte[] resizedImage = new byte[]{1, 2, 3};
+    void openImageContent_opensBlobStreamAndDecryptsIt() throws Exception {
+        ImageEntity imageEntity = ImageEntity.builder().fileName("testImage").blobKey("blobKey").build();
+        InputStream blobStream = new ByteArrayInputStream(new byte[]{4, 5, 6});
+        InputStream decryptingStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        when(blobStore.openStream("blobKey")).thenReturn(blobStream);
 
-        when(imageProcessingService.resizeImage(any(byte[].class), anyInt(), anyInt())).thenReturn(resizedImage);
-        when(imageTransactionService.saveImages(any())).thenReturn(List.of(new ImageEntity()));
-        when(imageMapper.imageEntitiesToUploadImageResponseDtos(any())).thenReturn(List.of(new UploadImageResponseDto()));
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.decryptingStream(eq(blobStream), any()))
+                    .thenReturn(decryptingStream);
+
+            assertSame(decryptingStream, imageService.openImageContent(imageEntity));
+        }
+    }
+
+    @Test
+    void openCachedImageContent_withCacheableImage_readsThroughCache() {
+        ImageEntity imageEntity = ImageEntity.builder().fileName("testImage").blobKey("blobKey").fileSize(3).build();
+        InputStream cachedStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        when(imageContentCache.isCacheable(imageEntity)).thenReturn(true);
+        when(imageContentCache.open(eq(imageEntity), any())).thenReturn(cachedStream);
+
+        assertSame(cachedStream, imageService.openCachedImageContent(imageEntity));
+        verifyNoInteractions(blobStore);
+    }
 
-        try (MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class);
-             MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+    @Test
+    void openCachedImageContent_withLargeImage_streamsFromBlobStore() {
+        ImageEntity imageEntity = ImageEntity.builder().fileName("testImage").blobKey("blobKey").fileSize(1 << 30).build();
+        InputStream blobStream = new ByteArrayInputStream(new byte[]{4, 5, 6});
+        InputStream decryptingStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        when(imageContentCache.isCacheable(imageEntity)).thenReturn(false);
+        when(blobStore.openStream("blobKey")).thenReturn(blobStream);
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.decryptingStream(eq(blobStream), any()))
+                    .thenReturn(decryptingStream);
+
+            assertSame(decryptingStream, imageService.openCachedImageContent(imageEntity));
+            verify(imageContentCache, never()).open(any(), any());
+        }
+    }
 
-            mockedApacheUtil.when(() -> ApacheUtil.getMimeTypeFromInputStream(any(ByteArrayInputStream.class)))
-                    .thenReturn("image/jpeg");
+    @Test
+    void getImageVariant_rendersFromOriginalOnProcessingPool() throws Exception {
+        ImageEntity imageEntity = ImageEntity.builder().fileName("testImage").fileType("image/png")
+                .blobKey("blobKey").originalBlobKey("originalBlobKey").build();
+        ImageVariantCache.VariantKey variantKey = new ImageVariantCache.VariantKey("originalBlobKey", 50, 40, ImageValidType.PNG);
+        when(imageVariantCache.get(eq(variantKey), any())).thenAnswer(invocation -> {
+            Function<ImageVariantCache.VariantKey, CompletableFuture<byte[]>> renderer = invocation.getArgument(1);
+            return renderer.apply(variantKey).join();
+        });
+        when(imageProcessingExecutor.submit(any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(invocation.<Callable<?>>getArgument(0).call()));
+        InputStream blobStream = new ByteArrayInputStream(new byte[]{4, 5, 6});
+        InputStream decryptingStream = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        when(blobStore.openStream("originalBlobKey")).thenReturn(blobStream);
+        when(imageProcessingService.resizeImage(eq(decryptingStream), any(), eq(50), eq(40), eq(ImageValidType.PNG))).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(1).write(7);
+            return 1L;
+        });
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.decryptingStream(eq(blobStream), any()))
+                    .thenReturn(decryptingStream);
+
+            assertArrayEquals(new byte[]{7}, imageService.getImageVariant(imageEntity, 50, 40));
+            verify(imageProcessingExecutor, times(1)).submit(any());
+        }
+    }
 
-            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptFileToBytes(any()))
-                    .thenReturn(new byte[]{4, 5, 6});
+    @Test
+    void getImageVariant_withoutOriginal_usesStoredImageAsSource() {
+        ImageEntity imageEntity = ImageEntity.builder().fileName("testImage").fileType("image/jpeg").blobKey("blobKey").build();
+        when(imageVariantCache.get(any(), any())).thenReturn(new byte[]{7});
 
-            List<UploadImageResponseDto> result = imageService.uploadImages(images, 100, 100);
+        imageService.getImageVariant(imageEntity, 50, 40);
+
+        verify(imageVariantCache).get(eq(new ImageVariantCache.VariantKey("blobKey", 50, 40, ImageValidType.JPEG)), any());
+    }
+
+    @Test
+    void streamAllImages_delegatesToTransactionService() {
+        Consumer<ImageEntity> consumer = imageEntity -> {
+        };
+
+        imageService.streamAllImages(consumer);
+
+        verify(imageTransactionService, times(1)).streamAllImages(consumer);
+    }
+
+    private static IngestedImage ingestedImage(String originalFilename, byte[] content, String mimeType, int width, int height, String contentHash) {
+        return new IngestedImage(originalFilename, new ByteArrayResource(content), content.length, mimeType, width, height, contentHash);
+    }
+
+    /**
+     * Stores every blob written under the given key, running the writer so the streamed content can be checked.
+     *
+     * @return the content of the written blobs, in the order they were written.
+     */
+    private List<byte[]> storeBlobsAs(String key) {
+        List<byte[]> blobs = new ArrayList<>();
+        when(blobStore.write(any())).thenAnswer(invocation -> {
+            ByteArrayOutputStream blob = new ByteArrayOutputStream();
+            invocation.<BlobWriter>getArgument(0).writeTo(blob);
+            blobs.add(blob.toByteArray());
+            return key;
+        });
+        return blobs;
+    }
+
+    /**
+     * Runs the tasks on the calling thread, where the static mocks of the test are active.
+     */
+    private void runTasksOnCallingThread() {
+        when(imageProcessingExecutor.processAll(any())).thenAnswer(invocation -> {
+            List<Callable<?>> tasks = invocation.getArgument(0);
+            List<Object> results = new ArrayList<>();
+            for (Callable<?> task : tasks) {
+                results.add(task.call());
+            }
+            return results;
+        });
+    }
+
+    @Test
+    void uploadImages_withValidImages_returnsUploadImageResponseDtos() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("tst", new byte[]{1, 2, 3}, "image/jpeg", 200, 200, "hash"));
+        
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        when(imageTransactionService.saveImages(any())).thenReturn(List.of(new ImageEntity()));
+        when(imageMapper.imageEntitiesToUploadImageResponseDtos(any())).thenReturn(List.of(new UploadImageResponseDto()));
+        storeBlobsAs("blobKey");
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            List<UploadImageResponseDto> result = imageService.uploadImages(images, 100, 100, null);
 
             assertNotNull(result);
             assertEquals(1, result.size());
 
-            verify(imageProcessingService, times(1)).resizeImage(any(byte[].class), anyInt(), anyInt());
+            verify(imageProcessingService, times(1)).resizeImage(any(), any(), anyInt(), anyInt(), any());
+            verify(blobStore, times(2)).write(any());
             verify(imageTransactionService, times(1)).saveImages(any());
         }
     }
 
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void uploadImages_withoutFormat_keepsFormatOfEachImage() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(
+                ingestedImage("a.png", new byte[]{1}, "image/png", 200, 200, "hashA"),
+                ingestedImage("b.jpg", new byte[]{2}, "image/jpeg", 200, 200, "hashB"));
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        storeBlobsAs("blobKey");
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadImages(images, 100, 100, null);
+
+            verify(imageProcessingService).resizeImage(any(), any(), eq(100), eq(100), eq(ImageValidType.PNG));
+            verify(imageProcessingService).resizeImage(any(), any(), eq(100), eq(100), eq(ImageValidType.JPEG));
+            assertEquals("image/png", savedImages.getValue().get(0).getFileType());
+            assertEquals("image/jpeg", savedImages.getValue().get(1).getFileType());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void uploadImages_withFormat_encodesAndLabelsImagesInFormat() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("a.png", new byte[]{1}, "image/png", 200, 200, "hash"));
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        storeBlobsAs("blobKey");
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadImages(images, 100, 100, ImageValidType.JPEG);
+
+            verify(imageProcessingService).resizeImage(any(), any(), eq(100), eq(100), eq(ImageValidType.JPEG));
+            assertEquals("image/jpeg", savedImages.getValue().get(0).getFileType());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void uploadImages_withoutSize_storesOriginalOnceWithoutResizing() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("a.png", new byte[]{1, 2, 3}, "image/png", 640, 480, "hash"));
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        List<byte[]> blobs = storeBlobsAs("originalBlobKey");
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadImages(images, null, null, null);
+
+            verifyNoInteractions(imageProcessingService);
+            verify(blobStore, times(1)).write(any());
+            assertArrayEquals(new byte[]{1, 2, 3}, blobs.get(0));
+            ImageEntity savedImage = savedImages.getValue().get(0);
+            assertEquals("originalBlobKey", savedImage.getBlobKey());
+            assertEquals("originalBlobKey", savedImage.getOriginalBlobKey());
+            assertEquals(3, savedImage.getFileSize());
+            assertEquals(640, savedImage.getWidth());
+            assertEquals(480, savedImage.getHeight());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void uploadImages_withImageAlreadyStored_refersToStoredBlobsWithoutProcessing() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("a.jpg", new byte[]{1, 2, 3}, "image/jpeg", 640, 480, "hash"));
+        ImageEntity storedImage = ImageEntity.builder().id(1L).fileName("stored").fileType("image/jpeg").fileSize(42)
+                .blobKey("blobKey").originalBlobKey("originalBlobKey").sourceHash("hash").width(100).height(100).build();
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        when(imageTransactionService.findImagesBySourceHashes(Set.of("hash"))).thenReturn(List.of(storedImage));
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        imageService.uploadImages(images, 100, 100, null);
+
+        verifyNoInteractions(imageProcessingService, blobStore);
+        ImageEntity savedImage = savedImages.getValue().get(0);
+        assertNull(savedImage.getId());
+        assertNotEquals("stored", savedImage.getFileName());
+        assertEquals("blobKey", savedImage.getBlobKey());
+        assertEquals("originalBlobKey", savedImage.getOriginalBlobKey());
+        assertEquals(42, savedImage.getFileSize());
+    }
+
+    @Test
+    void uploadImages_withImageStoredAtOtherSize_processesImage() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("a.jpg", new byte[]{1, 2, 3}, "image/jpeg", 640, 480, "hash"));
+        ImageEntity storedImage = ImageEntity.builder().fileType("image/jpeg").blobKey("blobKey").sourceHash("hash").width(50).height(50).build();
+
+        when(imageTransactionService.findImagesBySourceHashes(any())).thenReturn(List.of(storedImage));
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        storeBlobsAs("newBlobKey");
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadImages(images, 100, 100, null);
+
+            verify(imageProcessingService, times(1)).resizeImage(any(), any(), eq(100), eq(100), eq(ImageValidType.JPEG));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void uploadImages_withImageStoredAtOtherSize_reusesStoredOriginal() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("a.jpg", new byte[]{1, 2, 3}, "image/jpeg", 640, 480, "hash"));
+        ImageEntity storedImage = ImageEntity.builder().fileType("image/jpeg").blobKey("blobKey").originalBlobKey("storedOriginalBlobKey")
+                .sourceHash("hash").width(50).height(50).build();
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        when(imageTransactionService.findImagesBySourceHashes(any())).thenReturn(List.of(storedImage));
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        storeBlobsAs("newBlobKey");
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadImages(images, 100, 100, null);
+
+            verify(blobStore, times(1)).write(any());
+            ImageEntity savedImage = savedImages.getValue().get(0);
+            assertEquals("newBlobKey", savedImage.getBlobKey());
+            assertEquals("storedOriginalBlobKey", savedImage.getOriginalBlobKey());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void uploadImages_withSameImageTwiceInBatch_processesItOnce() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(
+                ingestedImage("a.jpg", new byte[]{1, 2, 3}, "image/jpeg", 640, 480, "hash"),
+                ingestedImage("copy of a.jpg", new byte[]{1, 2, 3}, "image/jpeg", 640, 480, "hash"));
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        storeBlobsAs("blobKey");
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadImages(images, 100, 100, null);
+
+            verify(imageProcessingService, times(1)).resizeImage(any(), any(), anyInt(), anyInt(), any());
+            List<ImageEntity> saved = savedImages.getValue();
+            assertEquals(2, saved.size());
+            assertEquals(saved.get(0).getBlobKey(), saved.get(1).getBlobKey());
+            assertEquals("hash", saved.get(1).getSourceHash());
+            assertNotEquals(saved.get(0).getFileName(), saved.get(1).getFileName());
+        }
+    }
+
     @Test
     void uploadImages_withExceptionDuringProcessing_throwsException() {
-        List<MultipartFile> images = List.of(mock(MultipartFile.class));
-        when(imageProcessingService.resizeImage(any(), anyInt(), anyInt())).thenThrow(new RuntimeException("Processing error"));
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("tst", new byte[]{1, 2, 3}, "image/jpeg", 200, 200, "hash"));
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenThrow(new RuntimeException("Processing error"));
+        storeBlobsAs("blobKey");
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            assertThrows(RuntimeException.class, () -> imageService.uploadImages(images, 100, 100, null));
+            verify(imageProcessingService, times(1)).resizeImage(any(), any(), anyInt(), anyInt(), any());
+            verify(blobStore, times(1)).write(any());
+            verify(imageTransactionService, never()).saveImages(any());
+        }
+    }
 
-        assertThrows(RuntimeException.class, () -> imageService.uploadImages(images, 100, 100));
-        verify(imageProcessingService, times(1)).resizeImage(any(), anyInt(), anyInt());
-        verify(imageTransactionService, never()).saveImages(any());
+    @Test
+    void uploadImages_withFileNameCollision_retriesWithNewFileNames() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("tst", new byte[]{1, 2, 3}, "image/jpeg", 200, 200, "hash"));
+        List<String> savedFileNames = new ArrayList<>();
+
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        storeBlobsAs("blobKey");
+        when(imageTransactionService.saveImages(any())).thenAnswer(invocation -> {
+            List<ImageEntity> imageEntities = invocation.getArgument(0);
+            savedFileNames.add(imageEntities.get(0).getFileName());
+            if (savedFileNames.size() == 1) {
+                throw fileNameCollision();
+            }
+            return imageEntities;
+        });
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadImages(images, 100, 100, null);
+
+            verify(imageTransactionService, times(2)).saveImages(any());
+            verify(blobStore, times(2)).write(any());
+            assertNotEquals(savedFileNames.get(0), savedFileNames.get(1));
+        }
+    }
+
+    @Test
+    void uploadImages_withPersistentConstraintViolation_throwsAfterMaxAttempts() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("tst", new byte[]{1, 2, 3}, "image/jpeg", 200, 200, "hash"));
+
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        storeBlobsAs("blobKey");
+        when(imageTransactionService.saveImages(any())).thenThrow(fileNameCollision());
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            assertThrows(DataIntegrityViolationException.class, () -> imageService.uploadImages(images, 100, 100, null));
+            verify(imageTransactionService, times(3)).saveImages(any());
+        }
     }
 
     @Test
-    void getFileName_generatesUniqueFileName() {
-        when(imageTransactionService.findImageByFileName(anyString())).thenReturn(Optional.empty());
+    void uploadImages_withOtherConstraintViolation_throwsWithoutRetrying() {
+        runTasksOnCallingThread();
+        List<IngestedImage> images = List.of(ingestedImage("tst", new byte[]{1, 2, 3}, "image/jpeg", 200, 200, "hash"));
+
+        when(imageProcessingService.resizeImage(any(), any(), anyInt(), anyInt(), any())).thenReturn(3L);
+        storeBlobsAs("blobKey");
+        when(imageTransactionService.saveImages(any())).thenThrow(new DataIntegrityViolationException("Value too long",
+                new ConstraintViolationException("Value too long", new SQLException(), null)));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            assertThrows(DataIntegrityViolationException.class, () -> imageService.uploadImages(images, 100, 100, null));
+            verify(imageTransactionService, times(1)).saveImages(any());
+        }
+    }
 
-        String fileName = imageService.getFileName();
+    /**
+     * Builds the exception a batch colliding on a file name is rejected with, naming the index as H2 does.
+     */
+    private static DataIntegrityViolationException fileNameCollision() {
+        return new DataIntegrityViolationException("Duplicate file name",
+                new ConstraintViolationException("Duplicate file name", new SQLException(), "PUBLIC.UK_FILE_NAME_INDEX_4"));
+    }
 
-        assertNotNull(fileName);
-        verify(imageTransactionService, times(1)).findImageByFileName(anyString());
+    /**
+     * Renders the renditions from the smallest size to the largest, each encoded as a single byte of its index.
+     */
+    private void renderRenditionsAsIndexes() throws Exception {
+        doAnswer(invocation -> {
+            List<TargetSize> sizes = invocation.getArgument(1);
+            ImageProcessingService.RenditionConsumer consumer = invocation.getArgument(3);
+            for (int i = sizes.size() - 1; i >= 0; i--) {
+                int index = i;
+                consumer.accept(index, target -> {
+                    target.write(index);
+                    return 1;
+                });
+            }
+            return null;
+        }).when(imageProcessingService).renderRenditions(any(), any(), any(), any());
     }
 
     @Test
-    void getFileName_withExistingFileName_generatesAnotherUniqueFileName() {
-        when(imageTransactionService.findImageByFileName(anyString()))
-                .thenReturn(Optional.of(new ImageEntity()))
-                .thenReturn(Optional.empty());
+    @SuppressWarnings("unchecked")
+    void uploadRenditions_rendersEachImageOnceAndLinksItsRenditions() throws Exception {
+        runTasksOnCallingThread();
+        renderRenditionsAsIndexes();
+        List<IngestedImage> images = List.of(ingestedImage("a.jpg", new byte[]{7, 8, 9}, "image/jpeg", 640, 480, "hash"));
+        List<TargetSize> sizes = List.of(new TargetSize(400, 400), new TargetSize(100, 100));
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        List<byte[]> blobs = storeBlobsAs("blobKey");
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadRenditions(images, sizes, null);
+
+            verify(imageProcessingService, times(1)).renderRenditions(any(), eq(sizes), eq(ImageValidType.JPEG), any());
+            verify(blobStore, times(3)).write(any());
+            assertArrayEquals(new byte[]{7, 8, 9}, blobs.get(0));
+            verify(imageTransactionService, times(1)).saveImages(any());
+            List<ImageEntity> saved = savedImages.getValue();
+            assertEquals(2, saved.size());
+            assertEquals(400, saved.get(0).getWidth());
+            assertEquals(100, saved.get(1).getWidth());
+            assertEquals(1, saved.get(0).getFileSize());
+            assertNotNull(saved.get(0).getRenditionGroup());
+            assertEquals(saved.get(0).getRenditionGroup(), saved.get(1).getRenditionGroup());
+            assertEquals("hash", saved.get(1).getSourceHash());
+        }
+    }
 
-        String fileName = imageService.getFileName();
+    @Test
+    @SuppressWarnings("unchecked")
+    void uploadRenditions_withRenditionAlreadyStored_rendersOnlyMissingSizes() throws Exception {
+        runTasksOnCallingThread();
+        renderRenditionsAsIndexes();
+        List<IngestedImage> images = List.of(
+                ingestedImage("a.jpg", new byte[]{1, 2, 3}, "image/jpeg", 640, 480, "hash"),
+                ingestedImage("copy of a.jpg", new byte[]{1, 2, 3}, "image/jpeg", 640, 480, "hash"));
+        ImageEntity storedImage = ImageEntity.builder().fileType("image/jpeg").fileSize(42).blobKey("storedBlobKey")
+                .sourceHash("hash").width(400).height(400).renditionGroup("storedGroup").build();
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        when(imageTransactionService.findImagesBySourceHashes(Set.of("hash"))).thenReturn(List.of(storedImage));
+        storeBlobsAs("newBlobKey");
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadRenditions(images, List.of(new TargetSize(400, 400), new TargetSize(100, 100)), null);
+
+            verify(imageProcessingService, times(1)).renderRenditions(any(), eq(List.of(new TargetSize(100, 100))), any(), any());
+            List<ImageEntity> saved = savedImages.getValue();
+            assertEquals(4, saved.size());
+            assertEquals("storedBlobKey", saved.get(0).getBlobKey());
+            assertEquals("newBlobKey", saved.get(1).getBlobKey());
+            assertEquals(saved.get(0).getRenditionGroup(), saved.get(1).getRenditionGroup());
+            assertNotEquals("storedGroup", saved.get(0).getRenditionGroup());
+            assertNotEquals(saved.get(1).getRenditionGroup(), saved.get(2).getRenditionGroup());
+        }
+    }
 
-        assertNotNull(fileName);
-        verify(imageTransactionService, times(2)).findImageByFileName(anyString());
+    @Test
+    @SuppressWarnings("unchecked")
+    void uploadRenditions_withOriginalAlreadyStored_storesOnlyMissingRenditions() throws Exception {
+        runTasksOnCallingThread();
+        renderRenditionsAsIndexes();
+        List<IngestedImage> images = List.of(ingestedImage("a.jpg", new byte[]{1, 2, 3}, "image/jpeg", 640, 480, "hash"));
+        ImageEntity storedImage = ImageEntity.builder().fileType("image/jpeg").fileSize(42).blobKey("storedBlobKey")
+                .originalBlobKey("storedOriginalBlobKey").sourceHash("hash").width(400).height(400).build();
+        ArgumentCaptor<List<ImageEntity>> savedImages = ArgumentCaptor.forClass(List.class);
+
+        when(imageTransactionService.findImagesBySourceHashes(Set.of("hash"))).thenReturn(List.of(storedImage));
+        storeBlobsAs("newBlobKey");
+        when(imageTransactionService.saveImages(savedImages.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
+            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.encryptingStream(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+            imageService.uploadRenditions(images, List.of(new TargetSize(400, 400), new TargetSize(100, 100)), null);
+
+            verify(blobStore, times(1)).write(any());
+            List<ImageEntity> saved = savedImages.getValue();
+            assertEquals("newBlobKey", saved.get(1).getBlobKey());
+            assertEquals("storedOriginalBlobKey", saved.get(1).getOriginalBlobKey());
+        }
     }
 }
\ No newline at end of file
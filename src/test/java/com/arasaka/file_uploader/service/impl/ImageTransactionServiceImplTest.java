@@ -2,13 +2,17 @@ package com.arasaka.file_uploader.service.impl;
 
 import com.arasaka.file_uploader.domain.ImageEntity;
 import com.arasaka.file_uploader.repository.ImageRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoSettings;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -19,6 +23,9 @@ class ImageTransactionServiceImplTest {
     @Mock
     private ImageRepository imageRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private ImageTransactionServiceImpl imageTransactionService;
 
@@ -35,15 +42,17 @@ class ImageTransactionServiceImplTest {
     }
 
     @Test
-    void getAllImages_returnsListOfImages() {
-        List<ImageEntity> images = List.of(new ImageEntity());
-        when(imageRepository.findAll()).thenReturn(images);
+    void streamAllImages_passesEachImageToConsumerAndDetachesIt() {
+        ImageEntity first = ImageEntity.builder().fileName("first").build();
+        ImageEntity second = ImageEntity.builder().fileName("second").build();
+        when(imageRepository.streamAll()).thenReturn(Stream.of(first, second));
+        List<ImageEntity> consumed = new ArrayList<>();
 
-        List<ImageEntity> result = imageTransactionService.getAllImages();
+        imageTransactionService.streamAllImages(consumed::add);
 
-        assertNotNull(result);
-        assertEquals(images, result);
-        verify(imageRepository, times(1)).findAll();
+        assertEquals(List.of(first, second), consumed);
+        verify(entityManager, times(1)).detach(first);
+        verify(entityManager, times(1)).detach(second);
     }
 
     @Test
@@ -69,4 +78,25 @@ class ImageTransactionServiceImplTest {
         assertFalse(result.isPresent());
         verify(imageRepository, times(1)).findByFileName(fileName);
     }
+
+    @Test
+    void findImagesBySourceHashes_returnsImagesOfRepository() {
+        List<ImageEntity> images = List.of(ImageEntity.builder().sourceHash("hash").build());
+        when(imageRepository.findRenditionsBySourceHashIn(Set.of("hash"))).thenReturn(images);
+
+        List<ImageEntity> result = imageTransactionService.findImagesBySourceHashes(Set.of("hash"));
+
+        assertEquals(images, result);
+    }
+
+    @Test
+    void findReferencedBlobKeys_combinesBlobAndOriginalReferences() {
+        List<String> blobKeys = List.of("blob", "original", "unreferenced");
+        when(imageRepository.findReferencedBlobKeys(blobKeys)).thenReturn(List.of("blob"));
+        when(imageRepository.findReferencedOriginalBlobKeys(blobKeys)).thenReturn(List.of("original"));
+
+        Set<String> result = imageTransactionService.findReferencedBlobKeys(blobKeys);
+
+        assertEquals(Set.of("blob", "original"), result);
+    }
 }
\ No newline at end of file
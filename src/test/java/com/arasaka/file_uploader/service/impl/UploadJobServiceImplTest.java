@@ -0,0 +1,171 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.UploadJob;
+import com.arasaka.file_uploader.generated.dto.UploadImageResponseDto;
+import com.arasaka.file_uploader.service.ImageService;
+import com.arasaka.file_uploader.type.ImageValidType;
+import com.arasaka.file_uploader.type.UploadJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UploadJobServiceImplTest {
+
+    @Mock
+    private ImageService imageService;
+
+    private UploadJobServiceImpl uploadJobService;
+
+    private final List<IngestedImage> images = List.of(
+            new IngestedImage("image.png", new ByteArrayResource(new byte[]{1}), 1, "image/png", 10, 10, "hash"));
+
+    @TempDir
+    private Path spoolDirectory;
+
+    @AfterEach
+    void tearDown() {
+        uploadJobService.shutdown();
+    }
+
+    @Test
+    void submit_runsJobInBackground_andReportsUploadedImages() throws Exception {
+        uploadJobService = new UploadJobServiceImpl(imageService, 1, 10, Duration.ofMinutes(1), spoolDirectory);
+        UploadImageResponseDto response = new UploadImageResponseDto().fileName("fileName").fileSize(1);
+        when(imageService.uploadImages(anyList(), eq(100), eq(100), eq(ImageValidType.PNG))).thenAnswer(invocation -> {
+            IngestedImage spooled = invocation.<List<IngestedImage>>getArgument(0).get(0);
+            assertArrayEquals(new byte[]{1}, spooled.content().getInputStream().readAllBytes());
+            assertEquals("hash", spooled.contentHash());
+            return List.of(response);
+        });
+
+        UploadJob job = uploadJobService.submit(images, 100, 100, ImageValidType.PNG);
+
+        assertEquals(UploadJobStatus.QUEUED, job.status());
+        UploadJob finished = awaitFinished(job.jobId());
+        assertEquals(UploadJobStatus.DONE, finished.status());
+        assertEquals(List.of(response), finished.images());
+        assertNull(finished.error());
+        assertSpoolDirectoryEmpty();
+    }
+
+    @Test
+    void submit_withFailingUpload_reportsFailure() throws Exception {
+        uploadJobService = new UploadJobServiceImpl(imageService, 1, 10, Duration.ofMinutes(1), spoolDirectory);
+        when(imageService.uploadImages(anyList(), any(), any(), any())).thenThrow(new IllegalArgumentException("Image size exceeds limit"));
+
+        UploadJob job = uploadJobService.submit(images, null, null, null);
+
+        UploadJob finished = awaitFinished(job.jobId());
+        assertEquals(UploadJobStatus.FAILED, finished.status());
+        assertEquals("Image size exceeds limit", finished.error());
+        assertNull(finished.images());
+        assertSpoolDirectoryEmpty();
+    }
+
+    @Test
+    void submit_withCheckedExceptionDuringUpload_reportsFailure() throws Exception {
+        uploadJobService = new UploadJobServiceImpl(imageService, 1, 10, Duration.ofMinutes(1), spoolDirectory);
+        when(imageService.uploadImages(anyList(), any(), any(), any())).thenAnswer(invocation -> {
+            throw new IOException("Disk full");
+        });
+
+        UploadJob job = uploadJobService.submit(images, null, null, null);
+
+        UploadJob finished = awaitFinished(job.jobId());
+        assertEquals(UploadJobStatus.FAILED, finished.status());
+        assertEquals("Disk full", finished.error());
+        assertSpoolDirectoryEmpty();
+    }
+
+    @Test
+    void findJob_keepsUnfinishedJobBeyondRetention_andForgetsItAfterFinishing() throws Exception {
+        uploadJobService = new UploadJobServiceImpl(imageService, 1, 10, Duration.ofMillis(100), spoolDirectory);
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageService.uploadImages(anyList(), any(), any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        UploadJob running = uploadJobService.submit(images, null, null, null);
+        UploadJob queued = uploadJobService.submit(images, null, null, null);
+        Thread.sleep(300);
+
+        assertTrue(uploadJobService.findJob(running.jobId()).isPresent());
+        assertEquals(UploadJobStatus.QUEUED, uploadJobService.findJob(queued.jobId()).orElseThrow().status());
+        release.countDown();
+        assertEquals(UploadJobStatus.DONE, awaitFinished(queued.jobId()).status());
+        Thread.sleep(300);
+        assertTrue(uploadJobService.findJob(queued.jobId()).isEmpty());
+    }
+
+    @Test
+    void submit_withFullQueue_throwsRejectedExecutionException_andForgetsJob() throws Exception {
+        uploadJobService = new UploadJobServiceImpl(imageService, 1, 1, Duration.ofMinutes(1), spoolDirectory);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageService.uploadImages(anyList(), any(), any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        UploadJob running = uploadJobService.submit(images, null, null, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        UploadJob queued = uploadJobService.submit(images, null, null, null);
+
+        assertThrows(RejectedExecutionException.class, () -> uploadJobService.submit(images, null, null, null));
+        assertEquals(UploadJobStatus.RUNNING, uploadJobService.findJob(running.jobId()).orElseThrow().status());
+        assertEquals(UploadJobStatus.QUEUED, uploadJobService.findJob(queued.jobId()).orElseThrow().status());
+        release.countDown();
+        assertEquals(UploadJobStatus.DONE, awaitFinished(queued.jobId()).status());
+        awaitFinished(running.jobId());
+        assertSpoolDirectoryEmpty();
+    }
+
+    @Test
+    void findJob_withUnknownId_returnsEmpty() {
+        uploadJobService = new UploadJobServiceImpl(imageService, 1, 10, Duration.ofMinutes(1), spoolDirectory);
+
+        assertTrue(uploadJobService.findJob("unknown").isEmpty());
+    }
+
+    private void assertSpoolDirectoryEmpty() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private UploadJob awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            UploadJob job = uploadJobService.findJob(jobId).orElseThrow();
+            if (job.isFinished()) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Upload job " + jobId + " did not finish");
+    }
+}
\ No newline at end of file
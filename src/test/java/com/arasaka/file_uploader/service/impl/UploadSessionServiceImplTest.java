@@ -0,0 +1,206 @@
+package com.arasaka.file_uploader.service.impl;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.UploadSession;
+import com.arasaka.file_uploader.util.HashUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadSessionServiceImplTest {
+
+    @TempDir
+    private Path spoolDirectory;
+
+    private UploadSessionServiceImpl uploadSessionService(Duration sessionTimeout, long maxBytes) {
+        return new UploadSessionServiceImpl(spoolDirectory, sessionTimeout, maxBytes, maxBytes);
+    }
+
+    @Test
+    void appendChunk_inOrder_assemblesImageThatCommitIngests() throws IOException {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ofHours(1), 1 << 20);
+        byte[] content = readTestImage();
+        String sessionId = service.createSession().sessionId();
+
+        service.appendChunk(sessionId, 0, chunk(content, 0, 1000));
+        UploadSession session = service.appendChunk(sessionId, 1, chunk(content, 1000, content.length));
+
+        assertEquals(2, session.receivedChunks());
+        assertEquals(content.length, session.receivedBytes());
+        IngestedImage image = service.commitSession(sessionId, committed -> committed);
+        assertEquals("image/jpeg", image.mimeType());
+        assertEquals(content.length, image.size());
+        assertEquals(HashUtil.sha256Hex(content), image.contentHash());
+        assertTrue(image.width() > 0);
+        assertThrows(IllegalArgumentException.class, () -> service.getSession(sessionId));
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    void appendChunk_withChunkAlreadyReceived_ignoresIt() {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ofHours(1), 1 << 20);
+        String sessionId = service.createSession().sessionId();
+        service.appendChunk(sessionId, 0, chunk(new byte[]{1, 2, 3}));
+
+        UploadSession session = service.appendChunk(sessionId, 0, chunk(new byte[]{1, 2, 3}));
+
+        assertEquals(1, session.receivedChunks());
+        assertEquals(3, session.receivedBytes());
+    }
+
+    @Test
+    void appendChunk_withChunkOutOfOrder_throwsIllegalArgumentException() {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ofHours(1), 1 << 20);
+        String sessionId = service.createSession().sessionId();
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> service.appendChunk(sessionId, 1, chunk(new byte[]{1, 2, 3})));
+        assertEquals("Chunk out of order", exception.getMessage());
+    }
+
+    @Test
+    void appendChunk_aboveSizeLimit_throwsAndKeepsChunksReceivedBefore() throws IOException {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ofHours(1), 4);
+        String sessionId = service.createSession().sessionId();
+        service.appendChunk(sessionId, 0, chunk(new byte[]{1, 2, 3}));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> service.appendChunk(sessionId, 1, chunk(new byte[]{4, 5})));
+
+        assertEquals("Image size exceeds limit", exception.getMessage());
+        assertEquals(3, service.getSession(sessionId).receivedBytes());
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(spoolDirectory.resolve(sessionId + ".part")));
+        assertEquals(4, service.appendChunk(sessionId, 1, chunk(new byte[]{4})).receivedBytes());
+    }
+
+    @Test
+    void appendChunk_aboveChunkSizeLimit_throwsAndKeepsChunksReceivedBefore() throws IOException {
+        UploadSessionServiceImpl service = new UploadSessionServiceImpl(spoolDirectory, Duration.ofHours(1), 1 << 20, 2);
+        String sessionId = service.createSession().sessionId();
+        service.appendChunk(sessionId, 0, chunk(new byte[]{1, 2}));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> service.appendChunk(sessionId, 1, chunk(new byte[]{3, 4, 5})));
+
+        assertEquals("Chunk size exceeds limit", exception.getMessage());
+        assertEquals(2, service.getSession(sessionId).receivedBytes());
+        assertArrayEquals(new byte[]{1, 2}, Files.readAllBytes(spoolDirectory.resolve(sessionId + ".part")));
+    }
+
+    @Test
+    void appendChunk_afterFailedCommit_throwsIllegalArgumentException() {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ofHours(1), 1 << 20);
+        String sessionId = service.createSession().sessionId();
+        service.appendChunk(sessionId, 0, chunk(new byte[]{1, 2, 3}));
+        assertThrows(IllegalStateException.class, () -> service.commitSession(sessionId, image -> {
+            throw new IllegalStateException("Processing failed");
+        }));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> service.appendChunk(sessionId, 1, chunk(new byte[]{4})));
+        assertEquals("Upload session already committed", exception.getMessage());
+    }
+
+    @Test
+    void commitSession_withFailingProcessor_keepsSessionForRetry() {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ofHours(1), 1 << 20);
+        String sessionId = service.createSession().sessionId();
+        service.appendChunk(sessionId, 0, chunk(new byte[]{1, 2, 3}));
+
+        assertThrows(IllegalStateException.class, () -> service.commitSession(sessionId, image -> {
+            throw new IllegalStateException("Processing failed");
+        }));
+
+        assertEquals(3, service.commitSession(sessionId, IngestedImage::size));
+    }
+
+    @Test
+    void commitSession_whileProcessing_refusesDeleteRecommitAndExpiry() throws IOException {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ZERO, 1 << 20);
+        String sessionId = service.createSession().sessionId();
+        service.appendChunk(sessionId, 0, chunk(new byte[]{1, 2, 3}));
+
+        service.commitSession(sessionId, image -> {
+            IllegalArgumentException deleted = assertThrows(IllegalArgumentException.class, () -> service.deleteSession(sessionId));
+            assertEquals("Upload session is being committed", deleted.getMessage());
+            IllegalArgumentException recommitted = assertThrows(IllegalArgumentException.class,
+                    () -> service.commitSession(sessionId, committed -> committed));
+            assertEquals("Upload session is being committed", recommitted.getMessage());
+            service.removeExpiredSessions();
+            assertTrue(Files.exists(spoolDirectory.resolve(sessionId + ".part")));
+            return image;
+        });
+
+        assertThrows(IllegalArgumentException.class, () -> service.getSession(sessionId));
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    void deleteSession_removesSessionAndSpoolFile() throws IOException {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ofHours(1), 1 << 20);
+        String sessionId = service.createSession().sessionId();
+
+        service.deleteSession(sessionId);
+
+        assertThrows(IllegalArgumentException.class, () -> service.getSession(sessionId));
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    void removeExpiredSessions_removesInactiveSessionsAndOrphanedSpoolFiles() throws IOException {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ZERO, 1 << 20);
+        String sessionId = service.createSession().sessionId();
+        Path orphan = Files.createFile(spoolDirectory.resolve("orphan.part"));
+        Files.setLastModifiedTime(orphan, FileTime.from(Instant.now().minusSeconds(60)));
+        Path unrelated = Files.createFile(spoolDirectory.resolve("unrelated.txt"));
+        Files.setLastModifiedTime(unrelated, FileTime.from(Instant.now().minusSeconds(60)));
+
+        service.removeExpiredSessions();
+
+        assertThrows(IllegalArgumentException.class, () -> service.getSession(sessionId));
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    @Test
+    void removeExpiredSessions_keepsActiveSessions() {
+        UploadSessionServiceImpl service = uploadSessionService(Duration.ofHours(1), 1 << 20);
+        String sessionId = service.createSession().sessionId();
+
+        service.removeExpiredSessions();
+
+        assertEquals(0, service.getSession(sessionId).receivedChunks());
+    }
+
+    private long countSpoolFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            return files.count();
+        }
+    }
+
+    private static InputStream chunk(byte[] content) {
+        return new ByteArrayInputStream(content);
+    }
+
+    private static InputStream chunk(byte[] content, int from, int to) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(content, from, to));
+    }
+
+    private byte[] readTestImage() throws IOException {
+        try (InputStream inputStream = getClass().getResourceAsStream("/test1.jpg")) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.arasaka.file_uploader.storage.impl;
+
+import com.arasaka.file_uploader.domain.ImageDataEntity;
+import com.arasaka.file_uploader.repository.ImageDataRepository;
+import com.arasaka.file_uploader.util.HashUtil;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoSettings;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@MockitoSettings
+class DatabaseBlobStoreTest {
+
+    @Mock
+    private ImageDataRepository imageDataRepository;
+
+    @InjectMocks
+    private DatabaseBlobStore blobStore;
+
+    @Test
+    void put_withNewContent_savesRowUnderContentHash() {
+        byte[] data = new byte[]{1, 2, 3};
+        String expectedKey = HashUtil.sha256Hex(data);
+        when(imageDataRepository.updateStoredAt(eq(expectedKey), any())).thenReturn(0);
+
+        String key = blobStore.put(data);
+
+        assertEquals(expectedKey, key);
+        verify(imageDataRepository, times(1)).save(argThat(entity -> entity.getStoredAt() != null));
+    }
+
+    @Test
+    void put_withExistingContent_refreshesStorageTimeWithoutSavingAgain() {
+        byte[] data = new byte[]{1, 2, 3};
+        when(imageDataRepository.updateStoredAt(eq(HashUtil.sha256Hex(data)), any())).thenReturn(1);
+
+        blobStore.put(data);
+
+        verify(imageDataRepository, never()).save(any());
+    }
+
+    @Test
+    void write_savesWrittenContentUnderContentHash() {
+        byte[] data = new byte[]{1, 2, 3};
+        String expectedKey = HashUtil.sha256Hex(data);
+        when(imageDataRepository.updateStoredAt(eq(expectedKey), any())).thenReturn(0);
+
+        String key = blobStore.write(out -> out.write(data));
+
+        assertEquals(expectedKey, key);
+        verify(imageDataRepository, times(1)).save(argThat(entity -> Arrays.equals(data, entity.getEncryptedData())));
+    }
+
+    @Test
+    void read_withExistingKey_returnsStoredBytes() {
+        byte[] data = new byte[]{1, 2, 3};
+        when(imageDataRepository.findById("key")).thenReturn(Optional.of(new ImageDataEntity("key", data, Instant.now())));
+
+        assertArrayEquals(data, blobStore.read("key"));
+    }
+
+    @Test
+    void read_withMissingKey_throwsIllegalStateException() {
+        when(imageDataRepository.findById("key")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> blobStore.read("key"));
+    }
+
+    @Test
+    void openStream_withExistingKey_returnsStoredBytes() throws Exception {
+        byte[] data = new byte[]{1, 2, 3};
+        when(imageDataRepository.findById("key")).thenReturn(Optional.of(new ImageDataEntity("key", data, Instant.now())));
+
+        assertArrayEquals(data, blobStore.openStream("key").readAllBytes());
+    }
+
+    @Test
+    void keysStoredBefore_returnsKeysOfRepository() {
+        Instant storedBefore = Instant.now();
+        when(imageDataRepository.findBlobKeysStoredBefore(storedBefore)).thenReturn(List.of("key"));
+
+        assertEquals(List.of("key"), blobStore.keysStoredBefore(storedBefore).toList());
+    }
+
+    @Test
+    void delete_deletesRowOfBlob() {
+        blobStore.delete("key");
+
+        verify(imageDataRepository, times(1)).deleteById("key");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,181 @@
+package com.arasaka.file_uploader.storage.impl;
+
+import com.arasaka.file_uploader.util.HashUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFileSystemBlobStoreTest {
+
+    @TempDir
+    private Path rootDirectory;
+
+    private LocalFileSystemBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new LocalFileSystemBlobStore(rootDirectory);
+    }
+
+    @Test
+    void put_storesBlobUnderShardedContentAddressedPath() {
+        byte[] data = new byte[]{1, 2, 3};
+
+        String key = blobStore.put(data);
+
+        assertEquals(HashUtil.sha256Hex(data), key);
+        Path expected = rootDirectory.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+        assertTrue(Files.exists(expected));
+    }
+
+    @Test
+    void put_withSameContentTwice_storesSingleFile() throws Exception {
+        String first = blobStore.put(new byte[]{1, 2, 3});
+        String second = blobStore.put(new byte[]{1, 2, 3});
+
+        assertEquals(first, second);
+        try (Stream<Path> files = Files.walk(rootDirectory)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void write_storesStreamedBlobUnderSameKeyAsPut() throws Exception {
+        byte[] data = new byte[256 * 1024];
+        new Random(42).nextBytes(data);
+
+        String key = blobStore.write(out -> {
+            out.write(data, 0, 1000);
+            out.write(data, 1000, data.length - 1000);
+            out.close();
+        });
+
+        assertEquals(HashUtil.sha256Hex(data), key);
+        assertArrayEquals(data, blobStore.read(key));
+        try (Stream<Path> files = Files.walk(rootDirectory)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void write_withFailingWriter_storesNothing() throws Exception {
+        assertThrows(IOException.class, () -> blobStore.write(out -> {
+            out.write(new byte[]{1, 2, 3});
+            throw new IOException("Writer failed");
+        }));
+
+        try (Stream<Path> files = Files.walk(rootDirectory)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void read_withSmallBlob_returnsStoredBytes() {
+        byte[] data = new byte[]{1, 2, 3};
+
+        assertArrayEquals(data, blobStore.read(blobStore.put(data)));
+    }
+
+    @Test
+    void read_withLargeBlob_returnsStoredBytes() {
+        byte[] data = new byte[256 * 1024];
+        new Random(42).nextBytes(data);
+
+        assertArrayEquals(data, blobStore.read(blobStore.put(data)));
+    }
+
+    @Test
+    void read_withMissingBlob_throwsException() {
+        assertThrows(NoSuchFileException.class, () -> blobStore.read(HashUtil.sha256Hex(new byte[]{9})));
+    }
+
+    @Test
+    void read_withInvalidKey_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> blobStore.read("../../secret.key"));
+    }
+
+    @Test
+    void openStream_returnsStoredBytes() throws Exception {
+        byte[] data = new byte[]{1, 2, 3};
+
+        try (InputStream in = blobStore.openStream(blobStore.put(data))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void openStream_withLargeBlob_returnsStoredBytes() throws Exception {
+        byte[] data = new byte[256 * 1024];
+        new Random(42).nextBytes(data);
+
+        try (InputStream in = blobStore.openStream(blobStore.put(data))) {
+            assertEquals(0xFF & data[0], in.read());
+            assertEquals(1024, in.skip(1024));
+            byte[] rest = in.readAllBytes();
+            assertArrayEquals(Arrays.copyOfRange(data, 1025, data.length), rest);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void openStream_withUnknownKey_throwsNoSuchFileException() {
+        assertThrows(NoSuchFileException.class, () -> blobStore.openStream(HashUtil.sha256Hex(new byte[]{9})));
+    }
+
+    @Test
+    void keysStoredBefore_listsOnlyBlobsStoredBeforeInstant() throws Exception {
+        String oldKey = blobStore.put(new byte[]{1, 2, 3});
+        Files.setLastModifiedTime(blobStore.resolve(oldKey), FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        blobStore.put(new byte[]{4, 5, 6});
+        Path temporary = Files.createTempFile(rootDirectory, "blob", ".tmp");
+        Files.setLastModifiedTime(temporary, FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+
+        try (Stream<String> keys = blobStore.keysStoredBefore(Instant.now().minus(Duration.ofMinutes(1)))) {
+            assertEquals(List.of(oldKey), keys.toList());
+        }
+    }
+
+    @Test
+    void keysStoredBefore_withoutRootDirectory_returnsNoKeys() {
+        blobStore = new LocalFileSystemBlobStore(rootDirectory.resolve("missing"));
+
+        assertEquals(0, blobStore.keysStoredBefore(Instant.now()).count());
+    }
+
+    @Test
+    void put_withExistingBlob_refreshesStorageTime() throws Exception {
+        byte[] data = new byte[]{1, 2, 3};
+        String key = blobStore.put(data);
+        Files.setLastModifiedTime(blobStore.resolve(key), FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+
+        blobStore.put(data);
+
+        try (Stream<String> keys = blobStore.keysStoredBefore(Instant.now().minus(Duration.ofMinutes(1)))) {
+            assertEquals(0, keys.count());
+        }
+    }
+
+    @Test
+    void delete_removesStoredBlob() {
+        String key = blobStore.put(new byte[]{1, 2, 3});
+
+        blobStore.delete(key);
+
+        assertThrows(NoSuchFileException.class, () -> blobStore.read(key));
+    }
+}
\ No newline at end of file
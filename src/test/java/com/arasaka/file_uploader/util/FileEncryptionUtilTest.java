@@ -1,79 +1,167 @@
 package com.arasaka.file_uploader.util;
 
+import com.arasaka.file_uploader.crypto.ChunkedEncryptionFormat;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
+import static org.mockito.ArgumentMatchers.anyString;
 
 class FileEncryptionUtilTest {
 
-    private Cipher cipher;
     private SecretKey secretKey;
 
     @BeforeEach
-    void setUp() {
-        cipher = mock(Cipher.class);
-        secretKey = mock(SecretKey.class);
+    void setUp() throws Exception {
+        secretKey = KeyGeneratorUtil.generateSecretKey();
     }
 
     @Test
     void encryptFileToBytes_withValidFile_returnsEncryptedBytes() throws Exception {
-        try (MockedStatic<Cipher> mockedCipher = Mockito.mockStatic(Cipher.class);
-             MockedStatic<KeyGeneratorUtil> mockedKeyGen = Mockito.mockStatic(KeyGeneratorUtil.class)) {
-            mockedCipher.when(() -> Cipher.getInstance("AES")).thenReturn(cipher);
-            mockedKeyGen.when(KeyGeneratorUtil::getOrGenerateSecretKey).thenReturn(secretKey);
-            when(cipher.doFinal(any(byte[].class))).thenReturn(new byte[]{1, 2, 3});
+        byte[] result = FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, secretKey);
 
-            byte[] result = FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6});
+        assertNotNull(result);
+        assertEquals(ChunkedEncryptionFormat.HEADER_LENGTH + ChunkedEncryptionFormat.TAG_LENGTH + 3, result.length);
+        assertTrue(ChunkedEncryptionFormat.hasHeader(result, result.length));
+        assertFalse(new String(result).contains(new String(new byte[]{4, 5, 6})));
+    }
 
-            assertNotNull(result);
-            assertArrayEquals(new byte[]{1, 2, 3}, result);
-        }
+    @Test
+    void encryptFileToBytes_withSameFile_returnsDifferentBytes() throws Exception {
+        byte[] first = FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, secretKey);
+        byte[] second = FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, secretKey);
+
+        assertFalse(Arrays.equals(first, second));
     }
 
     @Test
-    void encryptFileToBytes_withEncryptionError_throwsException() throws Exception {
-        try (MockedStatic<Cipher> mockedCipher = Mockito.mockStatic(Cipher.class);
-             MockedStatic<KeyGeneratorUtil> mockedKeyGen = Mockito.mockStatic(KeyGeneratorUtil.class)) {
-            mockedCipher.when(() -> Cipher.getInstance("AES")).thenReturn(cipher);
-            mockedKeyGen.when(KeyGeneratorUtil::getOrGenerateSecretKey).thenReturn(secretKey);
-            when(cipher.doFinal(any(byte[].class))).thenThrow(new IllegalBlockSizeException());
-
-            assertThrows(IllegalBlockSizeException.class, () -> FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}));
-        }
+    void encryptFileToBytes_withNullKey_throwsException() {
+        assertThrows(Exception.class, () -> FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, null));
     }
 
     @Test
     void decryptFileFromBytes_withValidEncryptedData_returnsDecryptedBytes() throws Exception {
-        try (MockedStatic<Cipher> mockedCipher = Mockito.mockStatic(Cipher.class);
-             MockedStatic<KeyGeneratorUtil> mockedKeyGen = Mockito.mockStatic(KeyGeneratorUtil.class)) {
-            mockedCipher.when(() -> Cipher.getInstance("AES/ECB/PKCS5Padding")).thenReturn(cipher);
-            mockedKeyGen.when(KeyGeneratorUtil::getOrGenerateSecretKey).thenReturn(secretKey);
-            when(cipher.doFinal(any(byte[].class))).thenReturn(new byte[]{4, 5, 6});
+        byte[] encrypted = FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, secretKey);
+
+        byte[] result = FileEncryptionUtil.decryptFileFromBytes(encrypted, secretKey);
+
+        assertNotNull(result);
+        assertArrayEquals(new byte[]{4, 5, 6}, result);
+    }
+
+    @Test
+    void decryptFileFromBytes_withEmptyFile_returnsEmptyBytes() throws Exception {
+        byte[] encrypted = FileEncryptionUtil.encryptFileToBytes(new byte[0], secretKey);
+
+        assertArrayEquals(new byte[0], FileEncryptionUtil.decryptFileFromBytes(encrypted, secretKey));
+    }
+
+    @Test
+    void decryptFileFromBytes_withMultipleChunks_returnsDecryptedBytes() throws Exception {
+        byte[] file = randomBytes(3 * ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE + 123);
+        byte[] exactChunks = randomBytes(2 * ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE);
+
+        assertArrayEquals(file, FileEncryptionUtil.decryptFileFromBytes(FileEncryptionUtil.encryptFileToBytes(file, secretKey), secretKey));
+        assertArrayEquals(exactChunks, FileEncryptionUtil.decryptFileFromBytes(FileEncryptionUtil.encryptFileToBytes(exactChunks, secretKey), secretKey));
+    }
+
+    @Test
+    void decryptFileFromBytes_withLegacyEncryptedData_returnsDecryptedBytes() throws Exception {
+        byte[] legacyEncrypted = encryptLegacy(new byte[]{4, 5, 6});
+
+        assertArrayEquals(new byte[]{4, 5, 6}, FileEncryptionUtil.decryptFileFromBytes(legacyEncrypted, secretKey));
+    }
+
+    @Test
+    void decryptFileFromBytes_withDecryptionError_throwsException() {
+        assertThrows(IllegalBlockSizeException.class, () -> FileEncryptionUtil.decryptFileFromBytes(new byte[]{1, 2, 3}, secretKey));
+    }
 
-            byte[] result = FileEncryptionUtil.decryptFileFromBytes(new byte[]{1, 2, 3});
+    @Test
+    void decryptFileFromBytes_withWrongKey_throwsException() throws Exception {
+        byte[] encrypted = FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, secretKey);
+
+        assertThrows(AEADBadTagException.class, () -> FileEncryptionUtil.decryptFileFromBytes(encrypted, KeyGeneratorUtil.generateSecretKey()));
+    }
+
+    @Test
+    void decryptFileFromBytes_withTamperedData_throwsException() throws Exception {
+        byte[] encrypted = FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, secretKey);
+        encrypted[ChunkedEncryptionFormat.HEADER_LENGTH] ^= 1;
+
+        assertThrows(AEADBadTagException.class, () -> FileEncryptionUtil.decryptFileFromBytes(encrypted, secretKey));
+    }
 
-            assertNotNull(result);
-            assertArrayEquals(new byte[]{4, 5, 6}, result);
+    @Test
+    void encryptingStream_producesBytesDecryptableAsArray() throws Exception {
+        byte[] file = randomBytes(ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE + 1);
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        try (OutputStream encryptingStream = FileEncryptionUtil.encryptingStream(encrypted, secretKey)) {
+            encryptingStream.write(file, 0, 10);
+            encryptingStream.write(file, 10, file.length - 10);
         }
+
+        assertArrayEquals(file, FileEncryptionUtil.decryptFileFromBytes(encrypted.toByteArray(), secretKey));
     }
 
     @Test
-    void decryptFileFromBytes_withDecryptionError_throwsException() throws Exception {
-        try (MockedStatic<Cipher> mockedCipher = Mockito.mockStatic(Cipher.class);
-             MockedStatic<KeyGeneratorUtil> mockedKeyGen = Mockito.mockStatic(KeyGeneratorUtil.class)) {
-            mockedCipher.when(() -> Cipher.getInstance("AES/ECB/PKCS5Padding")).thenReturn(cipher);
-            mockedKeyGen.when(KeyGeneratorUtil::getOrGenerateSecretKey).thenReturn(secretKey);
-            when(cipher.doFinal(any(byte[].class))).thenThrow(new IllegalBlockSizeException("Decryption error"));
-
-            assertThrows(IllegalBlockSizeException.class, () -> FileEncryptionUtil.decryptFileFromBytes(new byte[]{1, 2, 3}));
+    void decryptingStream_withEncryptedBytes_returnsDecryptedBytes() throws Exception {
+        byte[] file = randomBytes(2 * ChunkedEncryptionFormat.DEFAULT_CHUNK_SIZE);
+
+        try (InputStream decryptingStream = FileEncryptionUtil.decryptingStream(
+                new ByteArrayInputStream(FileEncryptionUtil.encryptFileToBytes(file, secretKey)), secretKey)) {
+            assertArrayEquals(file, decryptingStream.readAllBytes());
         }
     }
+
+    @Test
+    void decryptingStream_withLegacyEncryptedData_returnsDecryptedBytes() throws Exception {
+        byte[] file = randomBytes(1000);
+
+        try (InputStream decryptingStream = FileEncryptionUtil.decryptingStream(new ByteArrayInputStream(encryptLegacy(file)), secretKey)) {
+            assertArrayEquals(file, decryptingStream.readAllBytes());
+        }
+    }
+
+    @Test
+    void encryptAndDecrypt_reusePooledCipherInstances() throws Exception {
+        byte[] legacyEncrypted = encryptLegacy(new byte[]{4, 5, 6});
+        FileEncryptionUtil.decryptFileFromBytes(FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, secretKey), secretKey);
+        FileEncryptionUtil.decryptFileFromBytes(legacyEncrypted, secretKey);
+
+        try (MockedStatic<Cipher> mockedCipher = Mockito.mockStatic(Cipher.class, Mockito.CALLS_REAL_METHODS)) {
+            for (int i = 0; i < 10; i++) {
+                byte[] encrypted = FileEncryptionUtil.encryptFileToBytes(new byte[]{4, 5, 6}, secretKey);
+                FileEncryptionUtil.decryptFileFromBytes(encrypted, secretKey);
+                FileEncryptionUtil.decryptFileFromBytes(legacyEncrypted, secretKey);
+            }
+
+            mockedCipher.verify(() -> Cipher.getInstance(anyString()), Mockito.never());
+        }
+    }
+
+    private byte[] encryptLegacy(byte[] file) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
+        return cipher.doFinal(file);
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.arasaka.file_uploader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class HashUtilTest {
+
+    @Test
+    void sha256Hex_withKnownInput_returnsKnownHash() {
+        String hash = HashUtil.sha256Hex("abc".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", hash);
+    }
+
+    @Test
+    void sha256Hex_withDifferentInputs_returnsDifferentHashes() {
+        assertNotEquals(HashUtil.sha256Hex(new byte[]{1}), HashUtil.sha256Hex(new byte[]{2}));
+    }
+}
\ No newline at end of file
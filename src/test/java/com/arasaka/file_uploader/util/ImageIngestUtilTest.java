@@ -0,0 +1,86 @@
+package com.arasaka.file_uploader.util;
+
+import com.arasaka.file_uploader.domain.IngestedImage;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageIngestUtilTest {
+
+    @Test
+    void ingest_withJpeg_detectsMimeTypeAndDimensions() throws IOException {
+        byte[] content = readTestImage();
+
+        IngestedImage image = ImageIngestUtil.ingest(new MockMultipartFile("images", "image.jpg", null, content));
+
+        assertEquals("image.jpg", image.originalFilename());
+        assertArrayEquals(content, image.content().getInputStream().readAllBytes());
+        assertEquals(content.length, image.size());
+        assertEquals("image/jpeg", image.mimeType());
+        assertEquals(HashUtil.sha256Hex(content), image.contentHash());
+        assertTrue(image.width() > 0);
+        assertTrue(image.height() > 0);
+    }
+
+    @Test
+    void ingest_withNonImage_hasNoDimensions() {
+        byte[] content = "not an image".getBytes(StandardCharsets.UTF_8);
+
+        IngestedImage image = ImageIngestUtil.ingest(new MockMultipartFile("images", "text.txt", null, content));
+
+        assertEquals("text/plain", image.mimeType());
+        assertEquals(0, image.width());
+        assertEquals(0, image.height());
+    }
+
+    @Test
+    void ingest_streamsEachUploadOnceWithoutLoadingIt() throws IOException {
+        MultipartFile upload = spy(new MockMultipartFile("images", "image.jpg", null, readTestImage()));
+
+        List<IngestedImage> images = ImageIngestUtil.ingest(List.of(upload));
+
+        assertEquals(1, images.size());
+        verify(upload, times(1)).getInputStream();
+        verify(upload, never()).getBytes();
+    }
+
+    @Test
+    void ingest_withImageLargerThanBuffer_hashesWholeContent() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        BufferedImage noise = new BufferedImage(400, 400, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < noise.getHeight(); y++) {
+            for (int x = 0; x < noise.getWidth(); x++) {
+                noise.setRGB(x, y, random.nextInt());
+            }
+        }
+        ImageIO.write(noise, "png", png);
+        byte[] content = png.toByteArray();
+
+        IngestedImage image = ImageIngestUtil.ingest(new MockMultipartFile("images", "noise.png", null, content));
+
+        assertTrue(content.length > 64 * 1024);
+        assertEquals("image/png", image.mimeType());
+        assertEquals(400, image.width());
+        assertEquals(400, image.height());
+        assertEquals(HashUtil.sha256Hex(content), image.contentHash());
+    }
+
+    private byte[] readTestImage() throws IOException {
+        try (InputStream inputStream = getClass().getResourceAsStream("/test1.jpg")) {
+            return inputStream.readAllBytes();
+        }
+    }
+}
\ No newline at end of file
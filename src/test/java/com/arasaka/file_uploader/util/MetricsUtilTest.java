@@ -0,0 +1,77 @@
+package com.arasaka.file_uploader.util;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsUtilTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void addRegistry() {
+        Metrics.addRegistry(registry);
+    }
+
+    @AfterEach
+    void removeRegistry() {
+        Metrics.removeRegistry(registry);
+        registry.close();
+    }
+
+    @Test
+    void time_withSucceedingStage_recordsDurationAndReturnsResult() {
+        String result = MetricsUtil.time("test", () -> "done");
+
+        assertEquals("done", result);
+        assertEquals(1, registry.get(MetricsUtil.STAGE_DURATION).tag("stage", "test").timer().count());
+        assertNull(registry.find(MetricsUtil.STAGE_FAILURES).tag("stage", "test").counter());
+    }
+
+    @Test
+    void time_withFailingStage_recordsDurationAndFailure() {
+        IOException exception = assertThrows(IOException.class, () -> MetricsUtil.time("test", () -> {
+            throw new IOException("failed");
+        }));
+
+        assertEquals("failed", exception.getMessage());
+        assertEquals(1, registry.get(MetricsUtil.STAGE_DURATION).tag("stage", "test").timer().count());
+        assertEquals(1, registry.get(MetricsUtil.STAGE_FAILURES).tag("stage", "test").counter().count());
+    }
+
+    @Test
+    void recordBytes_recordsInAndOutSeparately() {
+        MetricsUtil.recordBytesIn("test", 100);
+        MetricsUtil.recordBytesOut("test", 40);
+
+        assertEquals(100, registry.get(MetricsUtil.BYTES_IN).tag("stage", "test").summary().totalAmount());
+        assertEquals(40, registry.get(MetricsUtil.BYTES_OUT).tag("stage", "test").summary().totalAmount());
+    }
+
+    @Test
+    void recordEncode_recordsDurationAndSizeByFormatAndSettings() {
+        MetricsUtil.recordEncode("jpeg", "quality=0.75,progressive=false", 2_000_000, 500);
+
+        assertEquals(1, registry.get(MetricsUtil.ENCODE_DURATION).tags("format", "jpeg", "settings", "quality=0.75,progressive=false")
+                .timer().count());
+        assertEquals(500, registry.get(MetricsUtil.ENCODED_BYTES).tags("format", "jpeg", "settings", "quality=0.75,progressive=false")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void checkIngestedImages_recordsValidateStage() {
+        SimpleValidatorUtil.checkIngestedImages(List.of());
+
+        assertTrue(registry.get(MetricsUtil.STAGE_DURATION).tag("stage", MetricsUtil.VALIDATE).timer().count() > 0);
+    }
+}
\ No newline at end of file
@@ -5,11 +5,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -26,65 +34,103 @@ class ResourceUtilTest {
     }
 
     @Test
-    void ImageEntityToResponseEntity_withValidImageEntity_returnsResponseEntity() {
-        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class);
-             MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
+    void ImageEntityToResponseEntity_withValidImageEntity_returnsResponseEntity() throws Exception {
+        try (MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
             byte[] decryptedData = new byte[]{1, 2, 3};
-            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.decryptFileFromBytes(any(byte[].class))).thenReturn(decryptedData);
             mockedApacheUtil.when(() -> ApacheUtil.getExtensionFromMimeType(anyString())).thenReturn(".jpg");
 
             when(imageEntity.getFileName()).thenReturn("image");
             when(imageEntity.getFileType()).thenReturn("image/jpeg");
             when(imageEntity.getFileSize()).thenReturn(3L);
-            when(imageEntity.getEncryptedData()).thenReturn(new byte[]{4, 5, 6});
+            when(imageEntity.getBlobKey()).thenReturn("blobKey");
+            when(imageEntity.getUpdatedAt()).thenReturn(LocalDateTime.of(2024, 1, 1, 12, 0));
 
-            ResponseEntity<Resource> response = ResourceUtil.ImageEntityToResponseEntity(imageEntity);
+            ResponseEntity<Resource> response = ResourceUtil.ImageEntityToResponseEntity(imageEntity, entity -> new ByteArrayInputStream(decryptedData));
 
             assertNotNull(response);
-            assertEquals(200, response.getStatusCodeValue());
-            assertInstanceOf(ByteArrayResource.class, response.getBody());
+            assertEquals(200, response.getStatusCode().value());
+            assertEquals("\"blobKey\"", response.getHeaders().getETag());
+            assertTrue(response.getHeaders().getLastModified() > 0);
+            assertNotNull(response.getBody());
+            assertEquals(3L, response.getBody().contentLength());
+            assertArrayEquals(decryptedData, response.getBody().getInputStream().readAllBytes());
+        }
+    }
+
+    @Test
+    void ImageEntityToResponseEntity_doesNotReadContentUntilBodyIsWritten() {
+        try (MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
+            mockedApacheUtil.when(() -> ApacheUtil.getExtensionFromMimeType(anyString())).thenReturn(".jpg");
+            when(imageEntity.getFileType()).thenReturn("image/jpeg");
+            Function<ImageEntity, InputStream> contentReader = mock();
+
+            ResourceUtil.ImageEntityToResponseEntity(imageEntity, contentReader);
+
+            verifyNoInteractions(contentReader);
         }
     }
 
     @Test
     void ImageEntityToResponseEntity_withInvalidImageEntity_throwsException() {
-        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
-            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.decryptFileFromBytes(any(byte[].class))).thenThrow(new Exception("Decryption error"));
+        when(imageEntity.getFileType()).thenReturn("invalid");
 
-            when(imageEntity.getEncryptedData()).thenReturn(new byte[]{4, 5, 6});
+        assertThrows(Exception.class, () -> ResourceUtil.ImageEntityToResponseEntity(imageEntity, entity -> new ByteArrayInputStream(new byte[]{1, 2, 3})));
+    }
 
-            assertThrows(Exception.class, () -> ResourceUtil.ImageEntityToResponseEntity(imageEntity));
+    @Test
+    void ImageVariantToResponseEntity_rendersVariantOnceWhenBodyIsWritten() throws Exception {
+        try (MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
+            mockedApacheUtil.when(() -> ApacheUtil.getExtensionFromMimeType(anyString())).thenReturn(".jpg");
+            when(imageEntity.getFileType()).thenReturn("image/jpeg");
+            when(imageEntity.getBlobKey()).thenReturn("blobKey");
+            when(imageEntity.getOriginalBlobKey()).thenReturn("originalBlobKey");
+            Supplier<byte[]> renderer = mock();
+            when(renderer.get()).thenReturn(new byte[]{1, 2, 3});
+
+            ResponseEntity<Resource> response = ResourceUtil.ImageVariantToResponseEntity(imageEntity, 50, 40, renderer);
+
+            verifyNoInteractions(renderer);
+            assertEquals("\"originalBlobKey-50x40\"", response.getHeaders().getETag());
+            assertEquals(3L, response.getBody().contentLength());
+            assertArrayEquals(new byte[]{1, 2, 3}, response.getBody().getInputStream().readAllBytes());
+            verify(renderer, times(1)).get();
         }
     }
 
     @Test
-    void ImagesInZipToResponseEntity_withValidImageEntities_returnsResponseEntity() {
-        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class);
-             MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
+    void ImagesInZipToResponseEntity_withValidImageEntities_returnsResponseEntity() throws Exception {
+        try (MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
             byte[] decryptedData = new byte[]{1, 2, 3};
-            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.decryptFileFromBytes(any(byte[].class))).thenReturn(decryptedData);
             mockedApacheUtil.when(() -> ApacheUtil.getExtensionFromMimeType(anyString())).thenReturn(".jpg");
 
             when(imageEntity.getFileName()).thenReturn("image");
             when(imageEntity.getFileType()).thenReturn("image/jpeg");
-            when(imageEntity.getEncryptedData()).thenReturn(new byte[]{4, 5, 6});
 
-            ResponseEntity<Resource> response = ResourceUtil.ImagesInZipToResponseEntity(imageEntities);
+            ResponseEntity<StreamingResponseBody> response = ResourceUtil.ImagesInZipToResponseEntity(imageEntities::forEach, entity -> new ByteArrayInputStream(decryptedData));
 
             assertNotNull(response);
-            assertEquals(200, response.getStatusCodeValue());
-            assertInstanceOf(ByteArrayResource.class, response.getBody());
+            assertEquals(200, response.getStatusCode().value());
+            assertNotNull(response.getBody());
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            response.getBody().writeTo(baos);
+
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+                ZipEntry entry = zis.getNextEntry();
+                assertNotNull(entry);
+                assertEquals("image.jpg", entry.getName());
+                assertArrayEquals(decryptedData, zis.readAllBytes());
+            }
         }
     }
 
     @Test
     void ImagesInZipToResponseEntity_withInvalidImageEntities_throwsException() {
-        try (MockedStatic<FileEncryptionUtil> mockedFileEncryptionUtil = Mockito.mockStatic(FileEncryptionUtil.class)) {
-            mockedFileEncryptionUtil.when(() -> FileEncryptionUtil.decryptFileFromBytes(any(byte[].class))).thenThrow(new Exception("Decryption error"));
-
-            when(imageEntity.getEncryptedData()).thenReturn(new byte[]{4, 5, 6});
+        ResponseEntity<StreamingResponseBody> response = ResourceUtil.ImagesInZipToResponseEntity(imageEntities::forEach, entity -> {
+            throw new IllegalStateException("Decryption error");
+        });
 
-            assertThrows(Exception.class, () -> ResourceUtil.ImagesInZipToResponseEntity(imageEntities));
-        }
+        assertNotNull(response.getBody());
+        assertThrows(Exception.class, () -> response.getBody().writeTo(new ByteArrayOutputStream()));
     }
 }
\ No newline at end of file
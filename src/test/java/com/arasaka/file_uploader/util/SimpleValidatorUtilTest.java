@@ -1,71 +1,114 @@
 package com.arasaka.file_uploader.util;
 
-import org.junit.jupiter.api.BeforeEach;
+import com.arasaka.file_uploader.domain.IngestedImage;
+import com.arasaka.file_uploader.domain.TargetSize;
+import com.arasaka.file_uploader.type.ImageValidType;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
-import org.mockito.Mockito;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.core.io.ByteArrayResource;
 
-import java.io.InputStream;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 class SimpleValidatorUtilTest {
 
-    private MultipartFile image;
-    private List<MultipartFile> images;
+    @Test
+    void isValidFileType_withValidMimeTypes_returnsTrue() {
+        List<IngestedImage> images = List.of(
+                new IngestedImage("a.jpg", new ByteArrayResource(new byte[0]), 0, "image/jpeg", 1, 1, "hash"),
+                new IngestedImage("b.png", new ByteArrayResource(new byte[0]), 0, "image/png", 1, 1, "hash"));
+
+        boolean result = SimpleValidatorUtil.isValidFileType(images);
 
-    @BeforeEach
-    void setUp() {
-        image = mock(MultipartFile.class);
-        images = List.of(image);
+        assertTrue(result);
     }
 
     @Test
-    void isValidFileType_withValidMimeTypes_returnsTrue() throws Exception {
-        try (MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
-            InputStream inputStream = mock(InputStream.class);
-            when(image.getInputStream()).thenReturn(inputStream);
-            mockedApacheUtil.when(() -> ApacheUtil.getMimeTypeFromInputStream(inputStream)).thenReturn("image/jpeg");
+    void isValidFileType_withInvalidMimeType_returnsFalse() {
+        List<IngestedImage> images = List.of(
+                new IngestedImage("a.jpg", new ByteArrayResource(new byte[0]), 0, "image/jpeg", 1, 1, "hash"),
+                new IngestedImage("b.pdf", new ByteArrayResource(new byte[0]), 0, "application/pdf", 0, 0, "hash"));
+
+        boolean result = SimpleValidatorUtil.isValidFileType(images);
 
-            boolean result = SimpleValidatorUtil.isValidFileType(images);
+        assertFalse(result);
+    }
+
+    @Test
+    void isValidFileType_withEmptyImageList_returnsTrue() {
+        boolean result = SimpleValidatorUtil.isValidFileType(List.of());
 
-            assertTrue(result);
-        }
+        assertTrue(result);
     }
 
     @Test
-    void isValidFileType_withInvalidMimeType_returnsFalse() throws Exception {
-        try (MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
-            InputStream inputStream = mock(InputStream.class);
-            when(image.getInputStream()).thenReturn(inputStream);
-            mockedApacheUtil.when(() -> ApacheUtil.getMimeTypeFromInputStream(inputStream)).thenReturn("application/pdf");
+    void isValidImageSize_withImagesWithinLimit_returnsTrue() {
+        List<IngestedImage> images = List.of(new IngestedImage("a.jpg", new ByteArrayResource(new byte[0]), 0, "image/jpeg", 5000, 5000, "hash"));
 
-            boolean result = SimpleValidatorUtil.isValidFileType(images);
+        boolean result = SimpleValidatorUtil.isValidImageSize(images);
 
-            assertFalse(result);
-        }
+        assertTrue(result);
     }
 
     @Test
-    void isValidFileType_withExceptionDuringValidation_returnsFalse() throws Exception {
-        try (MockedStatic<ApacheUtil> mockedApacheUtil = Mockito.mockStatic(ApacheUtil.class)) {
-            when(image.getInputStream()).thenThrow(new RuntimeException("Error"));
+    void isValidImageSize_withImageAboveLimit_returnsFalse() {
+        List<IngestedImage> images = List.of(
+                new IngestedImage("a.jpg", new ByteArrayResource(new byte[0]), 0, "image/jpeg", 100, 100, "hash"),
+                new IngestedImage("b.png", new ByteArrayResource(new byte[0]), 0, "image/png", 12000, 100, "hash"));
 
-            boolean result = SimpleValidatorUtil.isValidFileType(images);
+        boolean result = SimpleValidatorUtil.isValidImageSize(images);
 
-            assertFalse(result);
-        }
+        assertFalse(result);
     }
 
     @Test
-    void isValidFileType_withEmptyImageList_returnsTrue() {
-        boolean result = SimpleValidatorUtil.isValidFileType(List.of());
+    void checkImageSize_withImageAboveLimit_throwsIllegalArgumentException() {
+        assertDoesNotThrow(() -> SimpleValidatorUtil.checkImageSize(5000, 5000));
+        assertThrows(IllegalArgumentException.class, () -> SimpleValidatorUtil.checkImageSize(100, 5001));
+    }
 
-        assertTrue(result);
+    @Test
+    void checkUploadParameters_parsesFormat() {
+        assertEquals(ImageValidType.JPEG, SimpleValidatorUtil.checkUploadParameters(100, 100, "jpeg"));
+        assertNull(SimpleValidatorUtil.checkUploadParameters(null, null, null));
+    }
+
+    @Test
+    void checkUploadParameters_withInvalidParameters_throwsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> SimpleValidatorUtil.checkUploadParameters(100, null, null));
+        assertThrows(IllegalArgumentException.class, () -> SimpleValidatorUtil.checkUploadParameters(100, 100, "gif"));
+    }
+
+    @Test
+    void checkRenditionSizes_parsesDistinctSizes() {
+        assertEquals(List.of(new TargetSize(1600, 1200), new TargetSize(100, 100)),
+                SimpleValidatorUtil.checkRenditionSizes(null, null, List.of("1600x1200", "100x100", "1600x1200")));
+        assertTrue(SimpleValidatorUtil.checkRenditionSizes(100, 100, null).isEmpty());
+    }
+
+    @Test
+    void checkRenditionSizes_withInvalidSizes_throwsIllegalArgumentException() {
+        assertEquals("Sizes cannot be given together with width and height",
+                assertThrows(IllegalArgumentException.class, () -> SimpleValidatorUtil.checkRenditionSizes(100, null, List.of("100x100"))).getMessage());
+        assertEquals("Invalid size",
+                assertThrows(IllegalArgumentException.class, () -> SimpleValidatorUtil.checkRenditionSizes(null, null, List.of("100"))).getMessage());
+        assertEquals("Invalid size",
+                assertThrows(IllegalArgumentException.class, () -> SimpleValidatorUtil.checkRenditionSizes(null, null, List.of("6000x100"))).getMessage());
+    }
+
+    @Test
+    void checkIngestedImages_withInvalidImage_throwsIllegalArgumentException() {
+        List<IngestedImage> invalidType = List.of(new IngestedImage("b.pdf", new ByteArrayResource(new byte[0]), 0, "application/pdf", 0, 0, "hash"));
+        List<IngestedImage> tooLarge = List.of(new IngestedImage("b.png", new ByteArrayResource(new byte[0]), 0, "image/png", 12000, 100, "hash"));
+
+        assertEquals("Invalid file type",
+                assertThrows(IllegalArgumentException.class, () -> SimpleValidatorUtil.checkIngestedImages(invalidType)).getMessage());
+        assertEquals("Image size exceeds limit",
+                assertThrows(IllegalArgumentException.class, () -> SimpleValidatorUtil.checkIngestedImages(tooLarge)).getMessage());
     }
 }
\ No newline at end of file